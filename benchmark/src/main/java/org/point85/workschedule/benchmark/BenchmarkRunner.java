@@ -0,0 +1,68 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Class BenchmarkRunner runs the work schedule benchmarks with a throughput
+ * profile, an allocation profile or both. The allocation profile reports the
+ * bytes allocated per operation from the GC profiler.
+ * <p>
+ * Usage: BenchmarkRunner [throughput | allocation] [benchmark regex]
+ *
+ * @author Kent Randall
+ *
+ */
+public final class BenchmarkRunner {
+	private static final String THROUGHPUT = "throughput";
+	private static final String ALLOCATION = "allocation";
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		String profile = args.length > 0 ? args[0] : null;
+		String include = args.length > 1 ? args[1] : WorkScheduleBenchmark.class.getSimpleName();
+
+		if (profile == null || profile.equals(THROUGHPUT)) {
+			ChainedOptionsBuilder options = new OptionsBuilder().include(include).mode(Mode.Throughput)
+					.timeUnit(TimeUnit.SECONDS);
+			new Runner(options.build()).run();
+		}
+
+		if (profile == null || profile.equals(ALLOCATION)) {
+			ChainedOptionsBuilder options = new OptionsBuilder().include(include).mode(Mode.AverageTime)
+					.timeUnit(TimeUnit.MICROSECONDS).addProfiler(GCProfiler.class);
+			new Runner(options.build()).run();
+		}
+	}
+}
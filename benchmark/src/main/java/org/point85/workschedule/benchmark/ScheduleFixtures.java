@@ -0,0 +1,208 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.WorkSchedule;
+
+/**
+ * Class ScheduleFixtures builds the work schedules of the unit tests that are
+ * used as benchmark fixtures.
+ *
+ * @author Kent Randall
+ *
+ */
+public final class ScheduleFixtures {
+	// reference date for start of shift rotations
+	static final LocalDate REFERENCE_DATE = LocalDate.of(2016, 10, 31);
+
+	/**
+	 * Benchmark schedules
+	 */
+	public enum Fixture {
+		DNO, DUPONT, TEAM_21_FIXED, PANAMA, ICU_INTERNS
+	}
+
+	private ScheduleFixtures() {
+	}
+
+	/**
+	 * Build the work schedule for this fixture
+	 *
+	 * @param fixture {@link Fixture}
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule create(Fixture fixture) throws Exception {
+		switch (fixture) {
+		case DNO:
+			return createDNO();
+		case DUPONT:
+			return createDupont();
+		case TEAM_21_FIXED:
+			return create21TeamFixed();
+		case PANAMA:
+			return createPanama();
+		case ICU_INTERNS:
+			return createICUInterns();
+		default:
+			throw new IllegalArgumentException(fixture.name());
+		}
+	}
+
+	static WorkSchedule createDNO() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("DNO Plan", "Day, night and off with 3 teams");
+
+		// Day shift, starts at 07:00 for 12 hours
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+
+		// Night shift, starts at 19:00 for 12 hours
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(1));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(2));
+
+		return schedule;
+	}
+
+	static WorkSchedule createDupont() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("DuPont Shift Schedule", "DuPont 12-hour rotating shifts with 4 teams");
+
+		// Day shift, starts at 07:00 for 12 hours
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+
+		// Night shift, starts at 19:00 for 12 hours
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DuPont", "DuPont");
+		rotation.addSegment(night, 4, 3);
+		rotation.addSegment(day, 3, 1);
+		rotation.addSegment(night, 3, 3);
+		rotation.addSegment(day, 4, 7);
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(7));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(14));
+		schedule.createTeam("Team 4", "Forth team", rotation, REFERENCE_DATE.minusDays(21));
+
+		return schedule;
+	}
+
+	static WorkSchedule create21TeamFixed() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("21 Team Fixed 8 6D Plan", "Fixed plan with 21 teams and 8-hr shifts");
+
+		Shift[] shifts = new Shift[] {
+				schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8)),
+				schedule.createShift("Swing", "Swing shift", LocalTime.of(15, 0, 0), Duration.ofHours(8)),
+				schedule.createShift("Night", "Night shift", LocalTime.of(23, 0, 0), Duration.ofHours(8)) };
+
+		int teamNumber = 1;
+
+		for (Shift shift : shifts) {
+			Rotation rotation = schedule.createRotation(shift.getName(), shift.getName());
+			rotation.addSegment(shift, 6, 3);
+			rotation.addSegment(shift, 5, 3);
+			rotation.addSegment(shift, 6, 2);
+			rotation.addSegment(shift, 6, 2);
+			rotation.addSegment(shift, 6, 2);
+			rotation.addSegment(shift, 6, 2);
+
+			// 7 teams, a week apart
+			for (int i = 0; i < 7; i++) {
+				schedule.createTeam("Team " + teamNumber, shift.getName() + " team", rotation,
+						REFERENCE_DATE.plusDays(7 * i));
+				teamNumber++;
+			}
+		}
+
+		return schedule;
+	}
+
+	static WorkSchedule createPanama() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("Panama", "Slow rotation with 4 teams and 12-hr shifts");
+
+		// Day shift, starts at 07:00 for 12 hours
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+
+		// Night shift, starts at 19:00 for 12 hours
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("Panama",
+				"2 days on, 2 days off, 3 days on, 2 days off, 2 days on, 3 days off");
+
+		// 2 days on, 2 off, 3 on, 2 off, 2 on, 3 off (and repeat) then nights
+		for (Shift shift : new Shift[] { day, night }) {
+			rotation.addSegment(shift, 2, 2);
+			rotation.addSegment(shift, 3, 2);
+			rotation.addSegment(shift, 2, 3);
+			rotation.addSegment(shift, 2, 2);
+			rotation.addSegment(shift, 3, 2);
+			rotation.addSegment(shift, 2, 3);
+		}
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(28));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(7));
+		schedule.createTeam("Team 4", "Fourth team", rotation, REFERENCE_DATE.minusDays(35));
+
+		return schedule;
+	}
+
+	static WorkSchedule createICUInterns() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("ICU Interns Plan", "Day, cross-cover and night shifts for interns");
+
+		// Day shift #1, starts at 07:00 for 15.5 hours
+		Shift crossover = schedule.createShift("Crossover", "Day shift #1 cross-over", LocalTime.of(7, 0, 0),
+				Duration.ofHours(15).plusMinutes(30));
+
+		// Day shift #2, starts at 07:00 for 14 hours
+		Shift day = schedule.createShift("Day", "Day shift #2", LocalTime.of(7, 0, 0), Duration.ofHours(14));
+
+		// Night shift, starts at 22:00 for 14 hours
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(14));
+
+		Rotation rotation = schedule.createRotation("ICU", "ICU");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(crossover, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(3));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(2));
+		schedule.createTeam("Team 4", "Forth team", rotation, REFERENCE_DATE.minusDays(1));
+
+		return schedule;
+	}
+}
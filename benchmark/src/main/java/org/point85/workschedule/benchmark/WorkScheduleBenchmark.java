@@ -0,0 +1,210 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.Team;
+import org.point85.workschedule.TeamMember;
+import org.point85.workschedule.TeamMemberException;
+import org.point85.workschedule.WorkSchedule;
+import org.point85.workschedule.benchmark.ScheduleFixtures.Fixture;
+
+/**
+ * Class WorkScheduleBenchmark measures the public queries of
+ * {@link WorkSchedule} and {@link Team} for each fixture schedule over a short,
+ * a one year and a twenty year range. Day queries are made for every day of the
+ * range, the duration queries once for the whole range.
+ *
+ * @author Kent Randall
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkScheduleBenchmark {
+	// start of every range
+	private static final LocalDateTime RANGE_START = LocalDateTime.of(LocalDate.of(2021, 10, 1), LocalTime.of(7, 0, 0));
+
+	// members assigned to each team
+	private static final int MEMBER_COUNT = 10;
+
+	/**
+	 * Query ranges
+	 */
+	public enum Range {
+		SHORT(7), YEAR(365), TWENTY_YEARS(20 * 365 + 5);
+
+		private final int days;
+
+		Range(int days) {
+			this.days = days;
+		}
+
+		public int getDays() {
+			return days;
+		}
+	}
+
+	@Param
+	private Fixture fixture;
+
+	@Param
+	private Range range;
+
+	private WorkSchedule schedule;
+
+	private LocalDateTime from;
+	private LocalDateTime to;
+
+	// every day in the range
+	private LocalDate[] days;
+
+	// middle of the night on every day in the range
+	private LocalDateTime[] times;
+
+	// shift instance starts of the first team
+	private LocalDateTime[] memberShiftStarts;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		schedule = ScheduleFixtures.create(fixture);
+
+		from = RANGE_START;
+		to = RANGE_START.plusDays(range.getDays());
+
+		days = new LocalDate[range.getDays()];
+		times = new LocalDateTime[range.getDays()];
+
+		for (int i = 0; i < days.length; i++) {
+			days[i] = from.toLocalDate().plusDays(i);
+			times[i] = days[i].atTime(3, 0);
+		}
+
+		// holidays in every year of the range
+		for (int year = from.getYear(); year <= to.getYear(); year++) {
+			schedule.createNonWorkingPeriod("New Year " + year, "New Year's day", LocalDate.of(year, 1, 1).atStartOfDay(),
+					Duration.ofHours(24));
+			schedule.createNonWorkingPeriod("Christmas " + year, "Christmas day",
+					LocalDate.of(year, 12, 25).atStartOfDay(), Duration.ofHours(24));
+		}
+
+		// members of every team and a replacement on each week for the first team
+		int memberNumber = 1;
+		for (Team team : schedule.getTeams()) {
+			for (int i = 0; i < MEMBER_COUNT; i++) {
+				String id = String.valueOf(memberNumber++);
+				team.addMember(new TeamMember("Member " + id, "Team member", id));
+			}
+		}
+
+		Team firstTeam = schedule.getTeams().get(0);
+		TeamMember replacement = new TeamMember("Replacement", "Replacement member", "0");
+		List<LocalDateTime> starts = new ArrayList<>();
+
+		for (LocalDate day : days) {
+			ShiftInstance instance = firstTeam.getShiftInstanceForDay(day);
+
+			if (instance == null) {
+				continue;
+			}
+			starts.add(instance.getStartTime());
+
+			if (starts.size() % 7 == 0) {
+				TeamMemberException exception = new TeamMemberException(instance.getStartTime());
+				exception.setReason("Vacation");
+				exception.setRemoval(firstTeam.getAssignedMembers().get(0));
+				exception.setAddition(replacement);
+				firstTeam.addMemberException(exception);
+			}
+		}
+		memberShiftStarts = starts.toArray(new LocalDateTime[0]);
+	}
+
+	@Benchmark
+	public void shiftInstancesForDay(Blackhole blackhole) throws Exception {
+		for (LocalDate day : days) {
+			blackhole.consume(schedule.getShiftInstancesForDay(day));
+		}
+	}
+
+	@Benchmark
+	public void allShiftInstancesForDay(Blackhole blackhole) throws Exception {
+		for (LocalDate day : days) {
+			blackhole.consume(schedule.getAllShiftInstancesForDay(day));
+		}
+	}
+
+	@Benchmark
+	public void shiftInstancesForTime(Blackhole blackhole) throws Exception {
+		for (LocalDateTime time : times) {
+			blackhole.consume(schedule.getShiftInstancesForTime(time));
+		}
+	}
+
+	@Benchmark
+	public void teamWorkingTime(Blackhole blackhole) throws Exception {
+		for (Team team : schedule.getTeams()) {
+			blackhole.consume(team.calculateWorkingTime(from, to));
+		}
+	}
+
+	@Benchmark
+	public Duration nonWorkingTime() throws Exception {
+		return schedule.calculateNonWorkingTime(from, to);
+	}
+
+	@Benchmark
+	public void teamMembers(Blackhole blackhole) {
+		Team firstTeam = schedule.getTeams().get(0);
+
+		for (LocalDateTime start : memberShiftStarts) {
+			blackhole.consume(firstTeam.getMembers(start));
+		}
+	}
+}
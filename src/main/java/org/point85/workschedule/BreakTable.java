@@ -0,0 +1,181 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class BreakTable holds the breaks of a shift as offsets in seconds from the
+ * start of the shift. Overlapping breaks are merged and breaks are clipped to
+ * the shift, so the break time up to an offset is found by binary search. A
+ * table is not changed after it is built, so it can be shared between threads.
+ *
+ * @author Kent Randall
+ *
+ */
+final class BreakTable {
+	private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+	// break start and end offsets from the shift start, sorted and disjoint
+	private final int[] startOffsets;
+	private final int[] endOffsets;
+
+	// break seconds of this break and all earlier breaks
+	private final int[] cumulativeSeconds;
+
+	// shift and breaks that the table was built from, and their modification
+	// counts when built
+	private final long shiftModificationCount;
+	private final Break[] breaks;
+	private final long[] breakModificationCounts;
+
+	BreakTable(Shift shift) {
+		shiftModificationCount = shift.getModificationCount();
+		breaks = shift.getBreaks().toArray(new Break[0]);
+		breakModificationCounts = new long[breaks.length];
+
+		for (int i = 0; i < breaks.length; i++) {
+			breakModificationCounts[i] = breaks[i].getModificationCount();
+		}
+
+		int shiftStart = shift.getStart().toSecondOfDay();
+		int shiftDuration = (int) shift.getDurationSeconds();
+		int count = breaks.length;
+
+		// start offset in the high half and end offset in the low half for sorting,
+		// a break can be clipped to two parts of the shift
+		long[] offsets = new long[2 * count];
+		int clipped = 0;
+
+		for (Break breakPeriod : breaks) {
+			int start = Math.floorMod(breakPeriod.getStart().toSecondOfDay() - shiftStart, SECONDS_PER_DAY);
+			long end = start + breakPeriod.getDurationSeconds();
+
+			// the part from the start of the break
+			if (start < shiftDuration) {
+				offsets[clipped++] = ((long) start << 32) | Math.min(end, shiftDuration);
+			}
+
+			// the part from the start of the shift of a break starting before it
+			if (end > SECONDS_PER_DAY) {
+				long wrappedEnd = Math.min(end - SECONDS_PER_DAY, shiftDuration);
+
+				if (wrappedEnd > 0) {
+					offsets[clipped++] = wrappedEnd;
+				}
+			}
+		}
+		Arrays.sort(offsets, 0, clipped);
+
+		int[] starts = new int[clipped];
+		int[] ends = new int[clipped];
+		int merged = 0;
+
+		for (int i = 0; i < clipped; i++) {
+			int start = (int) (offsets[i] >>> 32);
+			int end = (int) offsets[i];
+
+			if (merged > 0 && start <= ends[merged - 1]) {
+				ends[merged - 1] = Math.max(ends[merged - 1], end);
+			} else {
+				starts[merged] = start;
+				ends[merged] = end;
+				merged++;
+			}
+		}
+
+		startOffsets = Arrays.copyOf(starts, merged);
+		endOffsets = Arrays.copyOf(ends, merged);
+		cumulativeSeconds = new int[merged];
+
+		int sum = 0;
+		for (int i = 0; i < merged; i++) {
+			sum += endOffsets[i] - startOffsets[i];
+			cumulativeSeconds[i] = sum;
+		}
+	}
+
+	// true if the shift's start, duration and breaks have not changed since the
+	// table was built
+	boolean isCurrent(Shift shift) {
+		if (shift.getModificationCount() != shiftModificationCount) {
+			return false;
+		}
+
+		List<Break> current = shift.getBreaks();
+
+		if (current.size() != breaks.length) {
+			return false;
+		}
+
+		for (int i = 0; i < breaks.length; i++) {
+			if (current.get(i) != breaks[i] || breaks[i].getModificationCount() != breakModificationCounts[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the break seconds within the shift
+	 *
+	 * @return Break seconds
+	 */
+	int getBreakSeconds() {
+		return cumulativeSeconds.length > 0 ? cumulativeSeconds[cumulativeSeconds.length - 1] : 0;
+	}
+
+	/**
+	 * Get the break seconds from the start of the shift up to the specified offset
+	 *
+	 * @param offset Seconds from the start of the shift
+	 * @return Break seconds
+	 */
+	int getBreakSecondsBefore(long offset) {
+		// number of breaks starting before the offset
+		int low = 0;
+		int high = startOffsets.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (startOffsets[mid] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		if (low == 0) {
+			return 0;
+		}
+
+		// clip the last break to the offset
+		int last = low - 1;
+		int unfinished = (int) Math.max(0, endOffsets[last] - offset);
+		return cumulativeSeconds[last] - unfinished;
+	}
+}
@@ -0,0 +1,368 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class CompiledWorkSchedule is an immutable snapshot of a {@link WorkSchedule}
+ * created by {@link WorkSchedule#compile()}. The rotation of every team and the
+ * non-working periods are held in precomputed tables, so the queries can be
+ * called from any number of threads without locking. The teams, and the shifts
+ * and members of the shift instances returned, are read-only copies taken when
+ * compiling so later changes to the schedule are not seen. Changing a copy
+ * throws an UnsupportedOperationException.
+ *
+ * @author Kent Randall
+ *
+ */
+public final class CompiledWorkSchedule {
+	// name of the schedule that was compiled
+	private final String scheduleName;
+
+	// copies of the teams in the schedule
+	private final List<Team> teams;
+
+	// rotation table of each team
+	private final RotationTable[] tables;
+
+	// rotation start of each team
+	private final LocalDate[] rotationStarts;
+
+	// holidays and planned down time
+	private final NonWorkingPeriodIndex nonWorkingPeriods;
+
+	CompiledWorkSchedule(WorkSchedule workSchedule, NonWorkingPeriodIndex nonWorkingPeriods) throws Exception {
+		this.scheduleName = workSchedule.getName();
+		this.nonWorkingPeriods = nonWorkingPeriods;
+
+		// copies shared by the teams
+		Map<Object, Object> copies = new IdentityHashMap<>();
+		List<Team> teamCopies = new ArrayList<>();
+
+		for (Team team : workSchedule.getTeams()) {
+			teamCopies.add(copyTeam(team, copies));
+		}
+		teams = Collections.unmodifiableList(teamCopies);
+
+		// rotation tables are built before the copies become read-only
+
+		int count = teams.size();
+		tables = new RotationTable[count];
+		rotationStarts = new LocalDate[count];
+
+		for (int k = 0; k < count; k++) {
+			Team team = teams.get(k);
+			tables[k] = team.getRotation().getTable();
+			rotationStarts[k] = team.getRotationStart();
+			team.setReadOnly();
+		}
+
+		// shared rotations, shifts and members
+		for (Object copy : copies.values()) {
+			((Named) copy).setReadOnly();
+		}
+	}
+
+	private static Team copyTeam(Team team, Map<Object, Object> copies) throws Exception {
+		Team copy = new Team(team.getName(), team.getDescription(), copyRotation(team.getRotation(), copies),
+				team.getRotationStart());
+
+		for (TeamMember member : team.getAssignedMembers()) {
+			copy.addMember(copyMember(member, copies));
+		}
+
+		for (TeamMemberException exception : team.getMemberExceptions()) {
+			TeamMemberException exceptionCopy = new TeamMemberException(exception.getDateTime());
+			exceptionCopy.setReason(exception.getReason());
+			exceptionCopy.setAddition(copyMember(exception.getAddition(), copies));
+			exceptionCopy.setRemoval(copyMember(exception.getRemoval(), copies));
+			copy.addMemberException(exceptionCopy);
+		}
+		return copy;
+	}
+
+	private static Rotation copyRotation(Rotation rotation, Map<Object, Object> copies) throws Exception {
+		Rotation copy = (Rotation) copies.get(rotation);
+
+		if (copy == null) {
+			copy = new Rotation(rotation.getName(), rotation.getDescription());
+
+			for (RotationSegment segment : rotation.getRotationSegments()) {
+				Shift shift = segment.getStartingShift() != null ? copyShift(segment.getStartingShift(), copies)
+						: null;
+				RotationSegment segmentCopy = new RotationSegment(shift, segment.getDaysOn(), segment.getDaysOff(),
+						copy);
+				segmentCopy.setSequence(segment.getSequence());
+				copy.getRotationSegments().add(segmentCopy);
+			}
+			copies.put(rotation, copy);
+		}
+		return copy;
+	}
+
+	private static Shift copyShift(Shift shift, Map<Object, Object> copies) throws Exception {
+		Shift copy = (Shift) copies.get(shift);
+
+		if (copy == null) {
+			copy = new Shift(shift.getName(), shift.getDescription(), shift.getStart(), shift.getDuration());
+
+			for (Break breakPeriod : shift.getBreaks()) {
+				copy.addBreak(new Break(breakPeriod.getName(), breakPeriod.getDescription(), breakPeriod.getStart(),
+						breakPeriod.getDuration()));
+			}
+			copies.put(shift, copy);
+		}
+		return copy;
+	}
+
+	private static TeamMember copyMember(TeamMember member, Map<Object, Object> copies) throws Exception {
+		if (member == null) {
+			return null;
+		}
+
+		TeamMember copy = (TeamMember) copies.get(member);
+
+		if (copy == null) {
+			copy = new TeamMember(member.getName(), member.getDescription(), member.getMemberID());
+			copies.put(member, copy);
+		}
+		return copy;
+	}
+
+	/**
+	 * Get the name of the work schedule that was compiled
+	 *
+	 * @return Schedule name
+	 */
+	public String getName() {
+		return scheduleName;
+	}
+
+	/**
+	 * Get read-only copies of the teams at the time of compiling
+	 *
+	 * @return Unmodifiable list of {@link Team}
+	 */
+	public List<Team> getTeams() {
+		return teams;
+	}
+
+	// days from the start of the team's rotation to this date
+	private long getRotationDay(int k, LocalDate date) throws Exception {
+		long rotationDay = date.toEpochDay() - rotationStarts[k].toEpochDay();
+
+		if (rotationDay < 0) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), rotationStarts[k],
+					date);
+			throw new Exception(msg);
+		}
+		return rotationDay;
+	}
+
+	/**
+	 * Check to see if this day is contained in a non-working period
+	 *
+	 * @param day Date to check
+	 * @return True if in a non-working period
+	 */
+	public boolean isNonWorkingDay(LocalDate day) {
+		return nonWorkingPeriods.isNonWorkingDay(day.toEpochDay());
+	}
+
+	/**
+	 * Get the list of shift instances for the specified date that start in that
+	 * date
+	 *
+	 * @param day LocalDate
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForDay(LocalDate day) throws Exception {
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		if (isNonWorkingDay(day)) {
+			return workingShifts;
+		}
+
+		for (int k = 0; k < tables.length; k++) {
+			RotationTable table = tables[k];
+
+			if (table.getDayCount() == 0) {
+				continue;
+			}
+
+			int dayInRotation = table.getDayInRotation(getRotationDay(k, day));
+			Shift shift = table.getShift(dayInRotation);
+
+			if (shift != null) {
+				// end from the table since the shift copy can still be changed
+				LocalDateTime start = LocalDateTime.of(day,
+						LocalTime.ofSecondOfDay(table.getShiftStartSecond(dayInRotation)));
+				LocalDateTime end = start.plusSeconds(table.getShiftWorkingSeconds(dayInRotation));
+				workingShifts.add(new ShiftInstance(shift, start, end, teams.get(k)));
+			}
+		}
+
+		Collections.sort(workingShifts);
+
+		return workingShifts;
+	}
+
+	/**
+	 * Get the list of shift instances for the specified date that start in that
+	 * date or cross over from midnight the previous day
+	 *
+	 * @param day LocalDate
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getAllShiftInstancesForDay(LocalDate day) throws Exception {
+		// starting in this day
+		List<ShiftInstance> workingShifts = getShiftInstancesForDay(day);
+
+		// now check previous day
+		for (ShiftInstance instance : getShiftInstancesForDay(day.minusDays(1))) {
+			if (instance.getEndTime().toLocalDate().equals(day)) {
+				// shift ends in this day
+				workingShifts.add(instance);
+			}
+		}
+
+		Collections.sort(workingShifts);
+
+		return workingShifts;
+	}
+
+	/**
+	 * Get the list of shift instances for the specified date and time of day
+	 *
+	 * @param dateTime Date and time of day
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForTime(LocalDateTime dateTime) throws Exception {
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		for (ShiftInstance instance : getAllShiftInstancesForDay(dateTime.toLocalDate())) {
+			if (instance.isInShiftInstance(dateTime)) {
+				workingShifts.add(instance);
+			}
+		}
+
+		return workingShifts;
+	}
+
+	/**
+	 * Calculate the schedule working time of a team between the specified dates
+	 * and times
+	 *
+	 * @param team {@link Team} in the compiled schedule
+	 * @param from Starting date and time of day
+	 * @param to   Ending date and time of day
+	 * @return Duration of working time
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(Team team, LocalDateTime from, LocalDateTime to) throws Exception {
+		int k = teams.indexOf(team);
+
+		if (k < 0) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("team.not.in.schedule"), team.getName(),
+					scheduleName);
+			throw new Exception(msg);
+		}
+
+		checkRange(from, to);
+		return Duration.ofSeconds(calculateWorkingSeconds(k, from, to));
+	}
+
+	/**
+	 * Calculate the scheduled working time between the specified dates and times of
+	 * day. Non-working periods are removed.
+	 *
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		long sum = 0;
+
+		if (tables.length > 0) {
+			checkRange(from, to);
+		}
+
+		for (int k = 0; k < tables.length; k++) {
+			sum += calculateWorkingSeconds(k, from, to);
+		}
+
+		// remove the non-working time
+		sum -= nonWorkingPeriods.getNonWorkingSeconds(NonWorkingPeriodIndex.toEpochSecond(from),
+				NonWorkingPeriodIndex.toEpochSecond(to));
+
+		// clip if negative
+		return Duration.ofSeconds(Math.max(sum, 0));
+	}
+
+	/**
+	 * Calculate the non-working time between the specified dates and times of day.
+	 *
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Non-working time duration
+	 */
+	public Duration calculateNonWorkingTime(LocalDateTime from, LocalDateTime to) {
+		long seconds = nonWorkingPeriods.getNonWorkingSeconds(NonWorkingPeriodIndex.toEpochSecond(from),
+				NonWorkingPeriodIndex.toEpochSecond(to));
+		return Duration.ofSeconds(seconds);
+	}
+
+	private void checkRange(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+	}
+
+	private long calculateWorkingSeconds(int k, LocalDateTime from, LocalDateTime to) throws Exception {
+		// check that the rotation has started
+		getRotationDay(k, from.toLocalDate());
+
+		long origin = rotationStarts[k].toEpochDay() * RotationTable.SECONDS_PER_DAY;
+		RotationTable table = tables[k];
+
+		return table.getCumulativeWorkingSeconds(Team.toRoundedSecond(to) - origin)
+				- table.getCumulativeWorkingSeconds(Team.toRoundedSecond(from) - origin);
+	}
+}
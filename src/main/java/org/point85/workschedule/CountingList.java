@@ -0,0 +1,96 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Class CountingList is a list that counts every change made to it, so that a
+ * table built from the list can tell that it is stale even if the size is
+ * unchanged. Changes are made while holding the lock passed to the constructor.
+ *
+ * @author Kent Randall
+ *
+ * @param <E> Element type
+ */
+final class CountingList<E> extends AbstractList<E> implements RandomAccess {
+	private final List<E> elements = new ArrayList<>();
+
+	// held while changing the list
+	private final Object lock;
+
+	// number of changes to the list
+	private volatile long modificationCount;
+
+	CountingList(Object lock) {
+		this.lock = lock;
+	}
+
+	long getModificationCount() {
+		return modificationCount;
+	}
+
+	@Override
+	public E get(int index) {
+		return elements.get(index);
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	@Override
+	public E set(int index, E element) {
+		synchronized (lock) {
+			E previous = elements.set(index, element);
+			modificationCount++;
+			return previous;
+		}
+	}
+
+	@Override
+	public void add(int index, E element) {
+		synchronized (lock) {
+			elements.add(index, element);
+			modCount++;
+			modificationCount++;
+		}
+	}
+
+	@Override
+	public E remove(int index) {
+		synchronized (lock) {
+			E removed = elements.remove(index);
+			modCount++;
+			modificationCount++;
+			return removed;
+		}
+	}
+}
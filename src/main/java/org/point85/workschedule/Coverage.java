@@ -0,0 +1,213 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class Coverage is a step function of the number of teams and team members on
+ * shift in a range of date and time created by
+ * {@link WorkSchedule#getCoverage(LocalDateTime, LocalDateTime)}. Each step
+ * starts when the counts change. A shift instance covers its start and not its
+ * end, so a team handing over to another is counted once at the hand over.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class Coverage {
+	// start of each step in seconds from the epoch
+	private final long[] stepSeconds;
+
+	// teams on shift in each step
+	private final int[] teamCounts;
+
+	// team members on shift in each step
+	private final int[] memberCounts;
+
+	// number of steps
+	private final int stepCount;
+
+	// end of the range in seconds from the epoch (exclusive)
+	private final long endSecond;
+
+	Coverage(long[] stepSeconds, int[] teamCounts, int[] memberCounts, int stepCount, long endSecond) {
+		this.stepSeconds = stepSeconds;
+		this.teamCounts = teamCounts;
+		this.memberCounts = memberCounts;
+		this.stepCount = stepCount;
+		this.endSecond = endSecond;
+	}
+
+	/**
+	 * Get the number of steps
+	 * 
+	 * @return Step count
+	 */
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * Get the start of a step
+	 * 
+	 * @param step Step index
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStepStart(int step) {
+		return toLocalDateTime(stepSeconds[step]);
+	}
+
+	/**
+	 * Get the end of a step, which is the start of the next step
+	 * 
+	 * @param step Step index
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStepEnd(int step) {
+		return toLocalDateTime(getStepEndSecond(step));
+	}
+
+	/**
+	 * Get the number of teams on shift in a step
+	 * 
+	 * @param step Step index
+	 * @return Team count
+	 */
+	public int getTeamCount(int step) {
+		return teamCounts[step];
+	}
+
+	/**
+	 * Get the number of team members on shift in a step
+	 * 
+	 * @param step Step index
+	 * @return Member count
+	 */
+	public int getMemberCount(int step) {
+		return memberCounts[step];
+	}
+
+	/**
+	 * Get the number of teams on shift at this date and time of day
+	 * 
+	 * @param dateTime Date and time
+	 * @return Team count, or 0 if outside of the range
+	 */
+	public int getTeamCount(LocalDateTime dateTime) {
+		int step = findStep(dateTime.toEpochSecond(ZoneOffset.UTC));
+		return step >= 0 ? teamCounts[step] : 0;
+	}
+
+	/**
+	 * Get the number of team members on shift at this date and time of day
+	 * 
+	 * @param dateTime Date and time
+	 * @return Member count, or 0 if outside of the range
+	 */
+	public int getMemberCount(LocalDateTime dateTime) {
+		int step = findStep(dateTime.toEpochSecond(ZoneOffset.UTC));
+		return step >= 0 ? memberCounts[step] : 0;
+	}
+
+	/**
+	 * Find the intervals in which fewer than the minimum number of teams are on
+	 * shift. Adjacent steps under the minimum are joined.
+	 * 
+	 * @param minimum Minimum number of teams
+	 * @return List of {@link CoverageGap}
+	 */
+	public List<CoverageGap> getTeamGaps(int minimum) {
+		return findGaps(teamCounts, minimum);
+	}
+
+	/**
+	 * Find the intervals in which fewer than the minimum number of team members
+	 * are on shift. Adjacent steps under the minimum are joined.
+	 * 
+	 * @param minimum Minimum number of team members
+	 * @return List of {@link CoverageGap}
+	 */
+	public List<CoverageGap> getMemberGaps(int minimum) {
+		return findGaps(memberCounts, minimum);
+	}
+
+	private List<CoverageGap> findGaps(int[] counts, int minimum) {
+		List<CoverageGap> gaps = new ArrayList<>();
+
+		int step = 0;
+		while (step < stepCount) {
+			if (counts[step] >= minimum) {
+				step++;
+				continue;
+			}
+
+			// join the following steps under the minimum
+			int first = step;
+			int lowest = counts[step];
+
+			while (step < stepCount && counts[step] < minimum) {
+				lowest = Math.min(lowest, counts[step]);
+				step++;
+			}
+
+			gaps.add(new CoverageGap(toLocalDateTime(stepSeconds[first]), toLocalDateTime(getStepEndSecond(step - 1)),
+					lowest));
+		}
+		return gaps;
+	}
+
+	private long getStepEndSecond(int step) {
+		return step + 1 < stepCount ? stepSeconds[step + 1] : endSecond;
+	}
+
+	// step containing this second, or -1 if outside of the range
+	private int findStep(long second) {
+		if (stepCount == 0 || second < stepSeconds[0] || second >= endSecond) {
+			return -1;
+		}
+
+		int low = 0;
+		int high = stepCount - 1;
+
+		// last step starting on or before the second
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+
+			if (stepSeconds[mid] <= second) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private static LocalDateTime toLocalDateTime(long second) {
+		return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Class CoverageGap is an interval of a {@link Coverage} in which fewer teams
+ * or team members are on shift than a required minimum.
+ * 
+ * @author Kent Randall
+ *
+ */
+public class CoverageGap {
+	// start of the gap (inclusive)
+	private final LocalDateTime startDateTime;
+
+	// end of the gap (exclusive)
+	private final LocalDateTime endDateTime;
+
+	// lowest count in the gap
+	private final int lowestCount;
+
+	CoverageGap(LocalDateTime startDateTime, LocalDateTime endDateTime, int lowestCount) {
+		this.startDateTime = startDateTime;
+		this.endDateTime = endDateTime;
+		this.lowestCount = lowestCount;
+	}
+
+	/**
+	 * Get the starting date and time of day
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStartDateTime() {
+		return startDateTime;
+	}
+
+	/**
+	 * Get the ending date and time of day
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getEndDateTime() {
+		return endDateTime;
+	}
+
+	/**
+	 * Get the duration of the gap
+	 * 
+	 * @return Duration
+	 */
+	public Duration getDuration() {
+		return Duration.between(startDateTime, endDateTime);
+	}
+
+	/**
+	 * Get the lowest count of teams or members on shift in the gap
+	 * 
+	 * @return Lowest count
+	 */
+	public int getLowestCount() {
+		return lowestCount;
+	}
+
+	/**
+	 * Build a string representation of this gap
+	 */
+	@Override
+	public String toString() {
+		return startDateTime + " - " + endDateTime + ": " + lowestCount;
+	}
+}
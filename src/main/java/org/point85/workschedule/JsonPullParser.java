@@ -0,0 +1,364 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+/**
+ * Class JsonPullParser reads JSON tokens one at a time from a character stream.
+ * Only the current token is held, so documents of any size can be read with a
+ * fixed amount of memory.
+ * 
+ * @author Kent Randall
+ *
+ */
+class JsonPullParser {
+	enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL, END_DOCUMENT
+	}
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+
+	// characters read before the buffer
+	private long offset = 0;
+
+	// text of the current name, string or number
+	private final StringBuilder text = new StringBuilder();
+
+	// true if the container at each depth is an object
+	private boolean[] isObject = new boolean[16];
+
+	// true if a name is expected next in the object at each depth
+	private boolean[] expectingName = new boolean[16];
+
+	// nesting depth of objects and arrays
+	private int depth = 0;
+
+	// true if the next value in the container follows a comma
+	private boolean needsComma = false;
+
+	JsonPullParser(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Read the next token
+	 * 
+	 * @return {@link Token}
+	 * @throws Exception exception
+	 */
+	Token next() throws Exception {
+		int c = skipWhitespace();
+
+		if (c < 0) {
+			if (depth > 0) {
+				throw syntaxError("end of input");
+			}
+			return Token.END_DOCUMENT;
+		}
+
+		if (c == '}' || c == ']') {
+			position++;
+			return endContainer(c);
+		}
+
+		if (needsComma) {
+			if (c != ',') {
+				throw syntaxError("expected ','");
+			}
+			position++;
+			c = skipWhitespace();
+		}
+
+		if (depth > 0 && expectingName[depth - 1]) {
+			if (c != '"') {
+				throw syntaxError("expected a name");
+			}
+			position++;
+			readString();
+
+			if (skipWhitespace() != ':') {
+				throw syntaxError("expected ':'");
+			}
+			position++;
+			expectingName[depth - 1] = false;
+			needsComma = false;
+			return Token.NAME;
+		}
+
+		Token token = readValue(c);
+
+		if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY) {
+			valueEnded();
+		}
+		return token;
+	}
+
+	/**
+	 * Get the text of the current name, string or number
+	 * 
+	 * @return Text
+	 */
+	String getText() {
+		return text.toString();
+	}
+
+	/**
+	 * Skip the value that follows a name, including all of its content
+	 * 
+	 * @param token First token of the value
+	 * @throws Exception exception
+	 */
+	void skipValue(Token token) throws Exception {
+		if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY) {
+			return;
+		}
+
+		int level = 1;
+		while (level > 0) {
+			Token skipped = next();
+
+			if (skipped == Token.BEGIN_OBJECT || skipped == Token.BEGIN_ARRAY) {
+				level++;
+			} else if (skipped == Token.END_OBJECT || skipped == Token.END_ARRAY) {
+				level--;
+			}
+		}
+	}
+
+	/**
+	 * Create an exception for unexpected content at the current position
+	 * 
+	 * @param detail What was expected or found
+	 * @return Exception
+	 */
+	Exception syntaxError(String detail) {
+		String msg = MessageFormat.format(WorkSchedule.getMessage("json.syntax"), offset + position, detail);
+		return new Exception(msg);
+	}
+
+	private Token readValue(int c) throws Exception {
+		switch (c) {
+		case '{':
+			position++;
+			beginContainer(true);
+			return Token.BEGIN_OBJECT;
+
+		case '[':
+			position++;
+			beginContainer(false);
+			return Token.BEGIN_ARRAY;
+
+		case '"':
+			position++;
+			readString();
+			return Token.STRING;
+
+		case 't':
+			readLiteral("true");
+			return Token.TRUE;
+
+		case 'f':
+			readLiteral("false");
+			return Token.FALSE;
+
+		case 'n':
+			readLiteral("null");
+			return Token.NULL;
+
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				readNumber();
+				return Token.NUMBER;
+			}
+			throw syntaxError("unexpected character '" + (char) c + "'");
+		}
+	}
+
+	private void beginContainer(boolean object) {
+		if (depth == isObject.length) {
+			isObject = Arrays.copyOf(isObject, depth * 2);
+			expectingName = Arrays.copyOf(expectingName, depth * 2);
+		}
+		isObject[depth] = object;
+		expectingName[depth] = object;
+		depth++;
+		needsComma = false;
+	}
+
+	private Token endContainer(int c) throws Exception {
+		boolean object = c == '}';
+
+		if (depth == 0 || isObject[depth - 1] != object) {
+			throw syntaxError("unexpected '" + (char) c + "'");
+		}
+
+		if (object && !expectingName[depth - 1]) {
+			throw syntaxError("expected a value");
+		}
+
+		depth--;
+		valueEnded();
+		return object ? Token.END_OBJECT : Token.END_ARRAY;
+	}
+
+	private void valueEnded() {
+		needsComma = depth > 0;
+
+		// an object's value has ended, expect the next name
+		if (depth > 0 && isObject[depth - 1]) {
+			expectingName[depth - 1] = true;
+		}
+	}
+
+	private void readString() throws Exception {
+		text.setLength(0);
+
+		while (true) {
+			int c = read();
+
+			if (c < 0) {
+				throw syntaxError("unterminated string");
+			}
+
+			if (c == '"') {
+				return;
+			}
+
+			if (c != '\\') {
+				text.append((char) c);
+				continue;
+			}
+
+			int escaped = read();
+			switch (escaped) {
+			case '"':
+			case '\\':
+			case '/':
+				text.append((char) escaped);
+				break;
+			case 'b':
+				text.append('\b');
+				break;
+			case 'f':
+				text.append('\f');
+				break;
+			case 'n':
+				text.append('\n');
+				break;
+			case 'r':
+				text.append('\r');
+				break;
+			case 't':
+				text.append('\t');
+				break;
+			case 'u':
+				int code = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(read(), 16);
+
+					if (digit < 0) {
+						throw syntaxError("bad unicode escape");
+					}
+					code = (code << 4) | digit;
+				}
+				text.append((char) code);
+				break;
+			default:
+				throw syntaxError("bad escape");
+			}
+		}
+	}
+
+	private void readNumber() throws Exception {
+		text.setLength(0);
+
+		while (true) {
+			int c = peek();
+
+			if (c < 0 || !(c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9'))) {
+				return;
+			}
+			text.append((char) c);
+			position++;
+		}
+	}
+
+	private void readLiteral(String literal) throws Exception {
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw syntaxError("expected " + literal);
+			}
+		}
+	}
+
+	private int skipWhitespace() throws Exception {
+		while (true) {
+			int c = peek();
+
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return c;
+			}
+			position++;
+		}
+	}
+
+	private int peek() throws Exception {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	private int read() throws Exception {
+		int c = peek();
+
+		if (c >= 0) {
+			position++;
+		}
+		return c;
+	}
+
+	private boolean fill() throws IOException {
+		offset += limit;
+		position = 0;
+		limit = reader.read(buffer, 0, buffer.length);
+
+		if (limit < 0) {
+			limit = 0;
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Class JsonStreamWriter writes JSON directly to a character stream as names
+ * and values are added. Commas are placed from the nesting state, so no
+ * document is built in memory.
+ * 
+ * @author Kent Randall
+ *
+ */
+class JsonStreamWriter {
+	private final Writer writer;
+
+	// true if the container at each depth already has a member
+	private boolean[] hasMember = new boolean[16];
+
+	// nesting depth of objects and arrays
+	private int depth = 0;
+
+	// true if a name has been written and its value is next
+	private boolean afterName = false;
+
+	JsonStreamWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	JsonStreamWriter beginObject() throws IOException {
+		beforeValue();
+		writer.write('{');
+		push();
+		return this;
+	}
+
+	JsonStreamWriter endObject() throws IOException {
+		depth--;
+		writer.write('}');
+		return this;
+	}
+
+	JsonStreamWriter beginArray() throws IOException {
+		beforeValue();
+		writer.write('[');
+		push();
+		return this;
+	}
+
+	JsonStreamWriter endArray() throws IOException {
+		depth--;
+		writer.write(']');
+		return this;
+	}
+
+	JsonStreamWriter name(String name) throws IOException {
+		beforeValue();
+		writeString(name);
+		writer.write(':');
+		afterName = true;
+		return this;
+	}
+
+	JsonStreamWriter value(String value) throws IOException {
+		beforeValue();
+
+		if (value == null) {
+			writer.write("null");
+		} else {
+			writeString(value);
+		}
+		return this;
+	}
+
+	JsonStreamWriter value(long value) throws IOException {
+		beforeValue();
+		writer.write(Long.toString(value));
+		return this;
+	}
+
+	// write a name and a string value if the value is not null
+	JsonStreamWriter optional(String name, Object value) throws IOException {
+		if (value != null) {
+			name(name).value(value.toString());
+		}
+		return this;
+	}
+
+	private void push() {
+		if (depth == hasMember.length) {
+			hasMember = Arrays.copyOf(hasMember, depth * 2);
+		}
+		hasMember[depth++] = false;
+	}
+
+	private void beforeValue() throws IOException {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+
+		if (depth > 0) {
+			if (hasMember[depth - 1]) {
+				writer.write(',');
+			}
+			hasMember[depth - 1] = true;
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		writer.write('"');
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+			case '"':
+				writer.write("\\\"");
+				break;
+			case '\\':
+				writer.write("\\\\");
+				break;
+			case '\n':
+				writer.write("\\n");
+				break;
+			case '\r':
+				writer.write("\\r");
+				break;
+			case '\t':
+				writer.write("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					writer.write(String.format("\\u%04x", (int) c));
+				} else {
+					writer.write(c);
+				}
+			}
+		}
+		writer.write('"');
+	}
+}
@@ -24,6 +24,7 @@ SOFTWARE.
 
 package org.point85.workschedule;
 
+import java.text.MessageFormat;
 import java.util.Objects;
 
 /**
@@ -42,6 +43,9 @@ abstract class Named {
 	// database primary key
 	private Long primaryKey;
 
+	// set for the copies held by a compiled work schedule
+	private boolean readOnly = false;
+
 	protected Named() {
 
 	}
@@ -67,6 +71,8 @@ abstract class Named {
 	 * @throws Exception exception
 	 */
 	public void setName(String name) throws Exception {
+		checkModifiable();
+
 		if (name == null) {
 			throw new Exception(WorkSchedule.getMessage("name.not.defined"));
 		}
@@ -88,6 +94,7 @@ abstract class Named {
 	 * @param description Description
 	 */
 	public void setDescription(String description) {
+		checkModifiable();
 		this.description = description;
 	}
 
@@ -132,9 +139,33 @@ abstract class Named {
 	 * @param key Key
 	 */
 	public void setKey(Long key) {
+		checkModifiable();
 		this.primaryKey = key;
 	}
 
+	/**
+	 * Check to see if this object is a read-only copy in a
+	 * {@link CompiledWorkSchedule}
+	 * 
+	 * @return True if it cannot be changed
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	// make this object read-only
+	void setReadOnly() {
+		this.readOnly = true;
+	}
+
+	// throw if this object is read-only
+	void checkModifiable() {
+		if (readOnly) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("read.only"), getName());
+			throw new UnsupportedOperationException(msg);
+		}
+	}
+
 	/**
 	 * Get a string representation of a named object
 	 */
@@ -60,6 +60,22 @@ public class NonWorkingPeriod extends Named implements Comparable<NonWorkingPeri
 		setDuration(duration);
 	}
 
+	/**
+	 * Set the name, which is unique among the non-working periods of a work
+	 * schedule
+	 * 
+	 * @param name Name
+	 * @throws Exception exception
+	 */
+	@Override
+	public void setName(String name) throws Exception {
+		super.setName(name);
+
+		if (workSchedule != null) {
+			workSchedule.invalidateNonWorkingPeriods();
+		}
+	}
+
 	/**
 	 * Get period start date and time
 	 * 
@@ -81,6 +97,10 @@ public class NonWorkingPeriod extends Named implements Comparable<NonWorkingPeri
 		}
 
 		this.startDateTime = startDateTime;
+
+		if (workSchedule != null) {
+			workSchedule.invalidateNonWorkingPeriods();
+		}
 	}
 
 	/**
@@ -114,6 +134,10 @@ public class NonWorkingPeriod extends Named implements Comparable<NonWorkingPeri
 		}
 
 		this.duration = duration;
+
+		if (workSchedule != null) {
+			workSchedule.invalidateNonWorkingPeriods();
+		}
 	}
 
 	/**
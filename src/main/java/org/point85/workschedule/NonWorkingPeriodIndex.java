@@ -0,0 +1,411 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class NonWorkingPeriodIndex keeps the non-working periods of a work schedule
+ * in arrays of epoch seconds sorted by start. Overlapping and adjacent periods
+ * are merged into disjoint intervals so that the non-working days and
+ * non-working time can be found by binary search.
+ *
+ * @author Kent Randall
+ *
+ */
+class NonWorkingPeriodIndex {
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	// indexed periods sorted by start
+	private NonWorkingPeriod[] periods = new NonWorkingPeriod[INITIAL_CAPACITY];
+
+	// period start and end in seconds from the epoch
+	private long[] startSeconds = new long[INITIAL_CAPACITY];
+	private long[] endSeconds = new long[INITIAL_CAPACITY];
+
+	// number of indexed periods
+	private int size = 0;
+
+	// start and end of the merged intervals, sorted and disjoint
+	private long[] intervalStarts = new long[INITIAL_CAPACITY];
+	private long[] intervalEnds = new long[INITIAL_CAPACITY];
+
+	// first period in each merged interval
+	private int[] intervalFirstPeriods = new int[INITIAL_CAPACITY];
+
+	// sum of the durations of all earlier intervals
+	private long[] cumulativeSeconds = new long[INITIAL_CAPACITY + 1];
+
+	// number of merged intervals
+	private int intervalCount = 0;
+
+	// first position of a period added or removed since the last merge
+	private int unmergedPosition = Integer.MAX_VALUE;
+
+	// number of indexed periods with each name
+	private final Map<String, Integer> nameCounts = new HashMap<>();
+
+	/**
+	 * Replace the index content with these periods
+	 *
+	 * @param nonWorkingPeriods List of {@link NonWorkingPeriod}
+	 * @throws Exception Exception
+	 */
+	void rebuild(List<NonWorkingPeriod> nonWorkingPeriods) throws Exception {
+		size = 0;
+		nameCounts.clear();
+		ensureCapacity(nonWorkingPeriods.size());
+
+		for (NonWorkingPeriod period : nonWorkingPeriods) {
+			insert(period);
+		}
+		unmergedPosition = Integer.MAX_VALUE;
+		mergeFrom(0);
+	}
+
+	/**
+	 * Add a period to the index. The intervals are merged again by
+	 * {@link #merge()}.
+	 *
+	 * @param period {@link NonWorkingPeriod}
+	 * @throws Exception Exception
+	 */
+	void add(NonWorkingPeriod period) throws Exception {
+		ensureCapacity(size + 1);
+		unmergedPosition = Math.min(unmergedPosition, insert(period));
+	}
+
+	/**
+	 * Remove a period from the index. The intervals are merged again by
+	 * {@link #merge()}.
+	 *
+	 * @param period {@link NonWorkingPeriod}
+	 */
+	void remove(NonWorkingPeriod period) {
+		for (int i = 0; i < size; i++) {
+			if (periods[i] == period) {
+				int moved = size - i - 1;
+				System.arraycopy(periods, i + 1, periods, i, moved);
+				System.arraycopy(startSeconds, i + 1, startSeconds, i, moved);
+				System.arraycopy(endSeconds, i + 1, endSeconds, i, moved);
+				size--;
+				periods[size] = null;
+				nameCounts.computeIfPresent(period.getName(), (name, count) -> count > 1 ? count - 1 : null);
+				unmergedPosition = Math.min(unmergedPosition, i);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Merge the periods added or removed since the last merge into the intervals,
+	 * so that a run of changes is merged once before the next query
+	 */
+	void merge() {
+		if (unmergedPosition != Integer.MAX_VALUE) {
+			mergeFrom(unmergedPosition);
+			unmergedPosition = Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Copy this index. The copy is sized to its content and is not changed if this
+	 * index is changed.
+	 *
+	 * @return {@link NonWorkingPeriodIndex}
+	 */
+	NonWorkingPeriodIndex copy() {
+		NonWorkingPeriodIndex copy = new NonWorkingPeriodIndex();
+		copy.periods = Arrays.copyOf(periods, size);
+		copy.startSeconds = Arrays.copyOf(startSeconds, size);
+		copy.endSeconds = Arrays.copyOf(endSeconds, size);
+		copy.size = size;
+		copy.intervalStarts = Arrays.copyOf(intervalStarts, intervalCount);
+		copy.intervalEnds = Arrays.copyOf(intervalEnds, intervalCount);
+		copy.intervalFirstPeriods = Arrays.copyOf(intervalFirstPeriods, intervalCount);
+		copy.cumulativeSeconds = Arrays.copyOf(cumulativeSeconds, intervalCount + 1);
+		copy.intervalCount = intervalCount;
+		copy.nameCounts.putAll(nameCounts);
+		return copy;
+	}
+
+	/**
+	 * Get the number of indexed periods
+	 *
+	 * @return Period count
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Check to see if a period with this name is indexed
+	 *
+	 * @param name Period name
+	 * @return True if indexed
+	 */
+	boolean containsName(String name) {
+		return nameCounts.containsKey(name);
+	}
+
+	/**
+	 * Check to see if this day is contained in a non-working period. The
+	 * period's starting and ending dates are both included.
+	 *
+	 * @param epochDay Day from the epoch
+	 * @return True if in a non-working period
+	 */
+	boolean isNonWorkingDay(long epochDay) {
+		// last interval starting on or before this day
+		int last = countStartingBefore((epochDay + 1) * SECONDS_PER_DAY) - 1;
+
+		if (last < 0) {
+			return false;
+		}
+
+		return Math.floorDiv(intervalEnds[last], SECONDS_PER_DAY) >= epochDay;
+	}
+
+	/**
+	 * Find the first day on or after this day that is not in a non-working period.
+	 * Intervals ending and starting on the same day are skipped an interval at a
+	 * time.
+	 *
+	 * @param epochDay Day from the epoch
+	 * @return Day from the epoch
+	 */
+	long nextWorkingDay(long epochDay) {
+		long day = epochDay;
+
+		while (isNonWorkingDay(day)) {
+			// past the end of the last interval starting on or before the day
+			int last = countStartingBefore((day + 1) * SECONDS_PER_DAY) - 1;
+			day = Math.floorDiv(intervalEnds[last], SECONDS_PER_DAY) + 1;
+		}
+		return day;
+	}
+
+	/**
+	 * Find the last day on or before this day that is not in a non-working period.
+	 * Intervals ending and starting on the same day are skipped an interval at a
+	 * time.
+	 *
+	 * @param epochDay Day from the epoch
+	 * @return Day from the epoch
+	 */
+	long previousWorkingDay(long epochDay) {
+		long day = epochDay;
+
+		while (isNonWorkingDay(day)) {
+			// before the start of the first interval reaching the day
+			int low = 0;
+			int high = countStartingBefore((day + 1) * SECONDS_PER_DAY) - 1;
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+
+				if (Math.floorDiv(intervalEnds[mid], SECONDS_PER_DAY) >= day) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			day = Math.floorDiv(intervalStarts[low], SECONDS_PER_DAY) - 1;
+		}
+		return day;
+	}
+
+	/**
+	 * Calculate the non-working seconds between the specified seconds from the
+	 * epoch. Time covered by more than one period is counted once.
+	 *
+	 * @param fromSecond Starting second
+	 * @param toSecond   Ending second
+	 * @return Non-working seconds
+	 */
+	long getNonWorkingSeconds(long fromSecond, long toSecond) {
+		// intervals starting before the end
+		int last = countStartingBefore(toSecond);
+
+		// first interval ending after the start
+		int first = countEndingOnOrBefore(fromSecond);
+
+		if (first >= last) {
+			return 0;
+		}
+
+		long sum = cumulativeSeconds[last] - cumulativeSeconds[first];
+
+		// clip the edge intervals
+		if (intervalStarts[first] < fromSecond) {
+			sum -= fromSecond - intervalStarts[first];
+		}
+
+		if (intervalEnds[last - 1] > toSecond) {
+			sum -= intervalEnds[last - 1] - toSecond;
+		}
+		return sum;
+	}
+
+	// number of intervals starting before this second
+	private int countStartingBefore(long second) {
+		int low = 0;
+		int high = intervalCount;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (intervalStarts[mid] < second) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// number of intervals ending on or before this second
+	private int countEndingOnOrBefore(long second) {
+		int low = 0;
+		int high = intervalCount;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (intervalEnds[mid] <= second) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// number of periods starting before this second
+	private int countPeriodsStartingBefore(long second) {
+		int low = 0;
+		int high = size;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (startSeconds[mid] < second) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// insert a period in start order, returning its position
+	private int insert(NonWorkingPeriod period) throws Exception {
+		long start = toEpochSecond(period.getStartDateTime());
+		long end = toEpochSecond(period.getEndDateTime());
+
+		// after any periods with the same start
+		int position = countPeriodsStartingBefore(start + 1);
+
+		int moved = size - position;
+		System.arraycopy(periods, position, periods, position + 1, moved);
+		System.arraycopy(startSeconds, position, startSeconds, position + 1, moved);
+		System.arraycopy(endSeconds, position, endSeconds, position + 1, moved);
+
+		periods[position] = period;
+		startSeconds[position] = start;
+		endSeconds[position] = end;
+		size++;
+		nameCounts.merge(period.getName(), 1, Integer::sum);
+
+		return position;
+	}
+
+	// merge the periods into intervals again from the interval before the one
+	// holding the period at this position, earlier intervals are unchanged
+	private void mergeFrom(int position) {
+		int k = 0;
+
+		while (k < intervalCount && intervalFirstPeriods[k] <= position) {
+			k++;
+		}
+		k = Math.max(k - 2, 0);
+
+		int i = k < intervalCount ? intervalFirstPeriods[k] : 0;
+		intervalCount = k;
+
+		for (; i < size; i++) {
+			if (intervalCount > 0 && startSeconds[i] <= intervalEnds[intervalCount - 1]) {
+				// overlapping or adjacent, so extend the last interval
+				if (endSeconds[i] > intervalEnds[intervalCount - 1]) {
+					long added = endSeconds[i] - intervalEnds[intervalCount - 1];
+					intervalEnds[intervalCount - 1] = endSeconds[i];
+					cumulativeSeconds[intervalCount] += added;
+				}
+			} else {
+				intervalStarts[intervalCount] = startSeconds[i];
+				intervalEnds[intervalCount] = endSeconds[i];
+				intervalFirstPeriods[intervalCount] = i;
+				cumulativeSeconds[intervalCount + 1] = cumulativeSeconds[intervalCount] + endSeconds[i]
+						- startSeconds[i];
+				intervalCount++;
+			}
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= periods.length) {
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, periods.length * 2);
+		periods = Arrays.copyOf(periods, newCapacity);
+		startSeconds = Arrays.copyOf(startSeconds, newCapacity);
+		endSeconds = Arrays.copyOf(endSeconds, newCapacity);
+		intervalStarts = Arrays.copyOf(intervalStarts, newCapacity);
+		intervalEnds = Arrays.copyOf(intervalEnds, newCapacity);
+		intervalFirstPeriods = Arrays.copyOf(intervalFirstPeriods, newCapacity);
+		cumulativeSeconds = Arrays.copyOf(cumulativeSeconds, newCapacity + 1);
+	}
+
+	/**
+	 * Convert a local date and time to seconds from the epoch. The date and time
+	 * are taken as UTC, the zone that non-working time has always been measured
+	 * in, so a daylight saving time change does not lengthen or shorten a period.
+	 *
+	 * @param dateTime Local date and time
+	 * @return Seconds from the epoch
+	 */
+	static long toEpochSecond(LocalDateTime dateTime) {
+		return dateTime.toEpochSecond(ZoneOffset.UTC);
+	}
+}
@@ -26,10 +26,14 @@ package org.point85.workschedule;
 
 import java.time.Duration;
 import java.time.LocalTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Class Rotation maintains a sequenced list of shift and off-shift time
@@ -43,8 +47,17 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	// working periods in the rotation
 	private List<RotationSegment> rotationSegments = new ArrayList<>();
 
-	// list of working and non-working days
-	private List<TimePeriod> periods;
+	// working and non-working days, read from the rotation table
+	private final List<TimePeriod> periods = new PeriodList();
+
+	// the days if the period list has been changed directly, else null
+	private List<TimePeriod> changedPeriods;
+
+	// shift and working time by day in the rotation
+	private volatile RotationTable table;
+
+	// changed whenever a segment is added or changed
+	private volatile long modificationCount;
 
 	// name of the day off time period
 	private static final String DAY_OFF_NAME = "DAY_OFF";
@@ -85,33 +98,76 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	}
 
 	/**
-	 * Get the shifts and off-shifts in the rotation
+	 * Get the shifts and off-shifts in the rotation. The list is read from the
+	 * compact rotation table, so the days are not expanded into separate list
+	 * entries until the list is changed. A changed list defines the rotation
+	 * until a segment is added or changed.
 	 * 
 	 * @return List of periods
 	 */
 	public List<TimePeriod> getPeriods() {
-		if (periods == null) {
-			periods = new ArrayList<>();
+		return periods;
+	}
+
+	/**
+	 * Get the table of shift start, duration and running working time for each
+	 * day in the rotation. The table is rebuilt if a shift's start or duration has
+	 * changed. Operations get the table once and use it throughout, so that the
+	 * check and the cache hit are reported once.
+	 * 
+	 * @return {@link RotationTable}
+	 */
+	RotationTable getTable() {
+		return getTable(true);
+	}
 
-			// sort by sequence number
-			Collections.sort(rotationSegments);
+	// the table, reporting a hit only if asked
+	private RotationTable getTable(boolean reportHit) {
+		RotationTable current = table;
+
+		if (current == null) {
+			// first build
+			current = new RotationTable(this);
+			table = current;
+			cacheAccessed(ScheduleMetricsListener.CacheEvent.MISS);
+		} else if (!current.isCurrent(this)) {
+			current = new RotationTable(this);
+			table = current;
+			cacheAccessed(ScheduleMetricsListener.CacheEvent.REBUILD);
+		} else if (reportHit) {
+			cacheAccessed(ScheduleMetricsListener.CacheEvent.HIT);
+		}
+		return current;
+	}
 
-			for (RotationSegment segment : rotationSegments) {
-				// add the on days
-				if (segment.getStartingShift() != null) {
-					for (int i = 0; i < segment.getDaysOn(); i++) {
-						periods.add(segment.getStartingShift());
-					}
-				}
+	// number of changes to the segments
+	long getModificationCount() {
+		return modificationCount;
+	}
 
-				// add the off days
-				for (int i = 0; i < segment.getDaysOff(); i++) {
-					periods.add(Rotation.DAY_OFF);
-				}
-			}
+	// the days if the period list has been changed directly, else null
+	List<TimePeriod> getChangedPeriods() {
+		return changedPeriods;
+	}
+
+	// a segment's shift, days or sequence changed
+	void segmentChanged() {
+		changedPeriods = null;
+		periodsChanged();
+	}
+
+	private void periodsChanged() {
+		modificationCount++;
+
+		if (workSchedule != null) {
+			workSchedule.scheduleChanged();
 		}
+	}
 
-		return periods;
+	private void cacheAccessed(ScheduleMetricsListener.CacheEvent event) {
+		if (workSchedule != null) {
+			workSchedule.cacheAccessed(ScheduleMetricsListener.Cache.ROTATION_TABLE, event);
+		}
 	}
 
 	/**
@@ -121,7 +177,7 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 */
 
 	public int getDayCount() {
-		return getPeriods().size();
+		return getTable().getDayCount();
 	}
 
 	/**
@@ -130,7 +186,7 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 * @return Duration
 	 */
 	public Duration getDuration() {
-		return Duration.ofDays(getPeriods().size());
+		return Duration.ofDays(getDayCount());
 	}
 
 	/**
@@ -139,14 +195,16 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 * @return Duration of working time
 	 */
 	public Duration getWorkingTime() {
-		Duration sum = Duration.ZERO;
+		return Duration.ofSeconds(getTable().getWorkingSeconds());
+	}
 
-		for (TimePeriod period : getPeriods()) {
-			if (period.isWorkingPeriod()) {
-				sum = sum.plus(period.getDuration());
-			}
-		}
-		return sum;
+	/**
+	 * Get the shift rotation's total working time less the shift breaks
+	 * 
+	 * @return Duration of working time net of breaks
+	 */
+	public Duration getNetWorkingTime() {
+		return Duration.ofSeconds(getTable().getNetWorkingSeconds());
 	}
 
 	/**
@@ -155,7 +213,7 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 * @return List of {@link RotationSegment}
 	 */
 	public List<RotationSegment> getRotationSegments() {
-		return rotationSegments;
+		return isReadOnly() ? Collections.unmodifiableList(rotationSegments) : rotationSegments;
 	}
 
 	/**
@@ -169,6 +227,8 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 * @throws Exception Exception
 	 */
 	public RotationSegment addSegment(Shift startingShift, int daysOn, int daysOff) throws Exception {
+		checkModifiable();
+
 		if (startingShift == null) {
 			throw new Exception("The starting shift must be specified.");
 		}
@@ -176,8 +236,12 @@ public class Rotation extends Named implements Comparable<Rotation> {
 		rotationSegments.add(segment);
 		segment.setSequence(rotationSegments.size());
 
-		// invalidate periods cache
-		periods = null;
+		// the rotation table is rebuilt since the segments have changed
+		changedPeriods = null;
+
+		if (workSchedule != null) {
+			workSchedule.scheduleChanged();
+		}
 
 		return segment;
 	}
@@ -259,4 +323,101 @@ public class Rotation extends Named implements Comparable<Rotation> {
 		return named + "\n" + rper + ": [" + periodsString + "], " + rd + ": " + getDuration() + ", " + rda + ": "
 				+ getDuration().toDays() + ", " + rw + ": " + getWorkingTime();
 	}
+
+	// list of the day periods backed by the rotation table until it is changed
+	private class PeriodList extends AbstractList<TimePeriod> implements RandomAccess {
+		@Override
+		public TimePeriod get(int index) {
+			return changedPeriods != null ? changedPeriods.get(index) : get(getTable(false), index);
+		}
+
+		@Override
+		public int size() {
+			return changedPeriods != null ? changedPeriods.size() : getTable(false).getDayCount();
+		}
+
+		private TimePeriod get(RotationTable current, int index) {
+			if (changedPeriods != null) {
+				return changedPeriods.get(index);
+			}
+
+			if (index < 0 || index >= current.getDayCount()) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+
+			Shift shift = current.getShift(index);
+			return shift != null ? shift : DAY_OFF;
+		}
+
+		private int size(RotationTable current) {
+			return changedPeriods != null ? changedPeriods.size() : current.getDayCount();
+		}
+
+		// iterate from the table got once, not once per day
+		@Override
+		public Iterator<TimePeriod> iterator() {
+			RotationTable current = getTable(false);
+
+			return new Iterator<TimePeriod>() {
+				private int cursor = 0;
+				private int last = -1;
+
+				@Override
+				public boolean hasNext() {
+					return cursor < size(current);
+				}
+
+				@Override
+				public TimePeriod next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					last = cursor++;
+					return get(current, last);
+				}
+
+				@Override
+				public void remove() {
+					if (last < 0) {
+						throw new IllegalStateException();
+					}
+					PeriodList.this.remove(last);
+					cursor = last;
+					last = -1;
+				}
+			};
+		}
+
+		@Override
+		public TimePeriod set(int index, TimePeriod period) {
+			TimePeriod previous = getChangedList().set(index, period);
+			periodsChanged();
+			return previous;
+		}
+
+		@Override
+		public void add(int index, TimePeriod period) {
+			getChangedList().add(index, period);
+			modCount++;
+			periodsChanged();
+		}
+
+		@Override
+		public TimePeriod remove(int index) {
+			TimePeriod previous = getChangedList().remove(index);
+			modCount++;
+			periodsChanged();
+			return previous;
+		}
+
+		// the days are expanded the first time the list is changed
+		private List<TimePeriod> getChangedList() {
+			checkModifiable();
+
+			if (changedPeriods == null) {
+				changedPeriods = new ArrayList<>(this);
+			}
+			return changedPeriods;
+		}
+	}
 }
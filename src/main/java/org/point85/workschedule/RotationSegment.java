@@ -83,7 +83,9 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 * @param startingShift {@link Shift}
 	 */
 	public void setStartingShift(Shift startingShift) {
+		checkModifiable();
 		this.startingShift = startingShift;
+		segmentChanged();
 	}
 
 	/**
@@ -101,7 +103,9 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 * @param daysOn Day count
 	 */
 	public void setDaysOn(int daysOn) {
+		checkModifiable();
 		this.daysOn = daysOn;
+		segmentChanged();
 	}
 
 	/**
@@ -119,7 +123,9 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 * @param daysOff Day count
 	 */
 	public void setDaysOff(int daysOff) {
+		checkModifiable();
 		this.daysOff = daysOff;
+		segmentChanged();
 	}
 
 	/**
@@ -137,6 +143,7 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 * @param primaryKey Key
 	 */
 	public void setKey(Integer primaryKey) {
+		checkModifiable();
 		this.primaryKey = primaryKey;
 	}
 
@@ -164,7 +171,23 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 * @param sequence Sequence
 	 */
 	public void setSequence(int sequence) {
+		checkModifiable();
 		this.sequence = sequence;
+		segmentChanged();
+	}
+
+	// a segment of a read-only rotation cannot be changed
+	private void checkModifiable() {
+		if (rotation != null) {
+			rotation.checkModifiable();
+		}
+	}
+
+	// the rotation table is rebuilt after a change
+	private void segmentChanged() {
+		if (rotation != null) {
+			rotation.segmentChanged();
+		}
 	}
 
 	/**
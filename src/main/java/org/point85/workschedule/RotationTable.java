@@ -0,0 +1,532 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class RotationTable is the compact form of a rotation. Each day holds the
+ * ordinal of its shift in a short array, and the working time is kept for each
+ * run of days on and off instead of for each day. A table is not changed after
+ * it is built, so it can be shared between threads.
+ *
+ * @author Kent Randall
+ *
+ */
+final class RotationTable {
+	static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	// ordinal for a day off
+	private static final short DAY_OFF = -1;
+
+	// distinct shifts in the rotation by ordinal
+	private final Shift[] shifts;
+
+	// starting second of day, duration and net of breaks duration of each shift
+	private final int[] shiftStartSeconds;
+	private final int[] shiftWorkingSeconds;
+	private final int[] shiftNetWorkingSeconds;
+
+	// breaks of each shift
+	private final BreakTable[] shiftBreaks;
+
+	// shift ordinal worked on each day, DAY_OFF if a day off
+	private final short[] dayOrdinals;
+
+	// first day of each segment, then the day count
+	private final int[] segmentStartDays;
+
+	// days on and shift ordinal of each segment
+	private final int[] segmentDaysOn;
+	private final short[] segmentOrdinals;
+
+	// working seconds and net working seconds before each segment, then the
+	// rotation totals
+	private final long[] segmentCumulativeSeconds;
+	private final long[] segmentCumulativeNetSeconds;
+
+	// rotation modification count and segments when built
+	private final long rotationModificationCount;
+	private final RotationSegment[] sourceSegments;
+
+	RotationTable(Rotation rotation) {
+		rotationModificationCount = rotation.getModificationCount();
+		sourceSegments = rotation.getRotationSegments().toArray(new RotationSegment[0]);
+
+		List<RotationSegment> segments;
+		List<TimePeriod> changedPeriods = rotation.getChangedPeriods();
+
+		if (changedPeriods != null) {
+			// the period list was changed directly
+			segments = toSegments(changedPeriods);
+		} else {
+			// sort by sequence number
+			segments = new ArrayList<>(Arrays.asList(sourceSegments));
+			Collections.sort(segments);
+		}
+
+		// assign shift ordinals and drop empty segments
+		Map<Shift, Short> ordinals = new IdentityHashMap<>();
+		List<Shift> distinctShifts = new ArrayList<>();
+		int segmentCount = 0;
+		int dayCount = 0;
+
+		for (RotationSegment segment : segments) {
+			int daysOn = segment.getStartingShift() != null ? segment.getDaysOn() : 0;
+
+			if (daysOn > 0 && !ordinals.containsKey(segment.getStartingShift())) {
+				ordinals.put(segment.getStartingShift(), (short) distinctShifts.size());
+				distinctShifts.add(segment.getStartingShift());
+			}
+
+			if (daysOn + segment.getDaysOff() > 0) {
+				segmentCount++;
+				dayCount += daysOn + segment.getDaysOff();
+			}
+		}
+
+		int shiftCount = distinctShifts.size();
+		shifts = distinctShifts.toArray(new Shift[shiftCount]);
+		shiftStartSeconds = new int[shiftCount];
+		shiftWorkingSeconds = new int[shiftCount];
+		shiftNetWorkingSeconds = new int[shiftCount];
+		shiftBreaks = new BreakTable[shiftCount];
+
+		for (int i = 0; i < shiftCount; i++) {
+			shiftStartSeconds[i] = shifts[i].getStart().toSecondOfDay();
+			shiftWorkingSeconds[i] = (int) shifts[i].getDurationSeconds();
+			shiftBreaks[i] = shifts[i].getBreakTable();
+			shiftNetWorkingSeconds[i] = shiftWorkingSeconds[i] - shiftBreaks[i].getBreakSeconds();
+		}
+
+		dayOrdinals = new short[dayCount];
+		segmentStartDays = new int[segmentCount + 1];
+		segmentDaysOn = new int[segmentCount];
+		segmentOrdinals = new short[segmentCount];
+		segmentCumulativeSeconds = new long[segmentCount + 1];
+		segmentCumulativeNetSeconds = new long[segmentCount + 1];
+
+		int day = 0;
+		int k = 0;
+
+		for (RotationSegment segment : segments) {
+			int daysOn = segment.getStartingShift() != null ? segment.getDaysOn() : 0;
+			int daysOff = segment.getDaysOff();
+
+			if (daysOn + daysOff == 0) {
+				continue;
+			}
+
+			short ordinal = daysOn > 0 ? ordinals.get(segment.getStartingShift()) : DAY_OFF;
+			long onSeconds = daysOn > 0 ? (long) daysOn * shiftWorkingSeconds[ordinal] : 0;
+			long onNetSeconds = daysOn > 0 ? (long) daysOn * shiftNetWorkingSeconds[ordinal] : 0;
+
+			segmentStartDays[k] = day;
+			segmentDaysOn[k] = daysOn;
+			segmentOrdinals[k] = ordinal;
+			segmentCumulativeSeconds[k + 1] = segmentCumulativeSeconds[k] + onSeconds;
+			segmentCumulativeNetSeconds[k + 1] = segmentCumulativeNetSeconds[k] + onNetSeconds;
+
+			Arrays.fill(dayOrdinals, day, day + daysOn, ordinal);
+			Arrays.fill(dayOrdinals, day + daysOn, day + daysOn + daysOff, DAY_OFF);
+
+			day += daysOn + daysOff;
+			k++;
+		}
+		segmentStartDays[segmentCount] = dayCount;
+	}
+
+	// runs of days on and off of a day period list, any period other than a shift
+	// is a day off
+	private static List<RotationSegment> toSegments(List<TimePeriod> periods) {
+		List<RotationSegment> segments = new ArrayList<>();
+		Shift shift = null;
+		int daysOn = 0;
+		int daysOff = 0;
+
+		for (TimePeriod period : periods) {
+			if (period instanceof Shift) {
+				if (daysOff > 0 || (daysOn > 0 && period != shift)) {
+					segments.add(new RotationSegment(shift, daysOn, daysOff, null));
+					daysOn = 0;
+					daysOff = 0;
+				}
+				shift = (Shift) period;
+				daysOn++;
+			} else {
+				daysOff++;
+			}
+		}
+
+		if (daysOn + daysOff > 0) {
+			segments.add(new RotationSegment(shift, daysOn, daysOff, null));
+		}
+		return segments;
+	}
+
+	// true if neither the rotation's segments nor the start, duration or breaks
+	// of its shifts have changed since the table was built
+	boolean isCurrent(Rotation rotation) {
+		if (rotation.getModificationCount() != rotationModificationCount) {
+			return false;
+		}
+
+		List<RotationSegment> current = rotation.getRotationSegments();
+
+		if (current.size() != sourceSegments.length) {
+			return false;
+		}
+
+		for (int i = 0; i < sourceSegments.length; i++) {
+			if (current.get(i) != sourceSegments[i]) {
+				return false;
+			}
+		}
+
+		// a shift's break table is rebuilt after any change to the shift
+		for (int i = 0; i < shifts.length; i++) {
+			if (shifts[i].getBreakTable() != shiftBreaks[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of days in the rotation
+	 *
+	 * @return Day count
+	 */
+	int getDayCount() {
+		return dayOrdinals.length;
+	}
+
+	/**
+	 * Get the working seconds of the entire rotation
+	 *
+	 * @return Working seconds
+	 */
+	long getWorkingSeconds() {
+		return segmentCumulativeSeconds[segmentOrdinals.length];
+	}
+
+	/**
+	 * Get the working seconds net of breaks of the entire rotation
+	 *
+	 * @return Working seconds
+	 */
+	long getNetWorkingSeconds() {
+		return segmentCumulativeNetSeconds[segmentOrdinals.length];
+	}
+
+	/**
+	 * Get the working seconds of all shifts that start before the specified day in
+	 * the rotation
+	 *
+	 * @param day Day in the rotation, starting at 0. The day count is the entire
+	 *            rotation.
+	 * @return Working seconds
+	 */
+	long getCumulativeWorkingSeconds(int day) {
+		return getSecondsBeforeDay(day, false);
+	}
+
+	/**
+	 * Get the shift worked on the specified day in the rotation
+	 *
+	 * @param day Day in the rotation, starting at 0
+	 * @return {@link Shift}, or null if a day off
+	 */
+	Shift getShift(int day) {
+		short ordinal = dayOrdinals[day];
+		return ordinal != DAY_OFF ? shifts[ordinal] : null;
+	}
+
+	/**
+	 * Get the starting second of day of the shift on the specified day in the
+	 * rotation
+	 *
+	 * @param day Day in the rotation, starting at 0
+	 * @return Second of day, or zero if a day off
+	 */
+	int getShiftStartSecond(int day) {
+		short ordinal = dayOrdinals[day];
+		return ordinal != DAY_OFF ? shiftStartSeconds[ordinal] : 0;
+	}
+
+	/**
+	 * Get the duration in seconds of the shift on the specified day in the
+	 * rotation
+	 *
+	 * @param day Day in the rotation, starting at 0
+	 * @return Working seconds, or zero if a day off
+	 */
+	int getShiftWorkingSeconds(int day) {
+		short ordinal = dayOrdinals[day];
+		return ordinal != DAY_OFF ? shiftWorkingSeconds[ordinal] : 0;
+	}
+
+	// working seconds of the shifts starting before this day in the rotation, found
+	// from the segment containing the day
+	private long getSecondsBeforeDay(int day, boolean net) {
+		int segmentCount = segmentOrdinals.length;
+
+		if (day >= getDayCount()) {
+			return net ? segmentCumulativeNetSeconds[segmentCount] : segmentCumulativeSeconds[segmentCount];
+		}
+
+		int low = findSegment(day);
+
+		long sum = net ? segmentCumulativeNetSeconds[low] : segmentCumulativeSeconds[low];
+		int daysOn = Math.min(day - segmentStartDays[low], segmentDaysOn[low]);
+
+		if (daysOn > 0) {
+			short ordinal = segmentOrdinals[low];
+			sum += (long) daysOn * (net ? shiftNetWorkingSeconds[ordinal] : shiftWorkingSeconds[ordinal]);
+		}
+		return sum;
+	}
+
+	// last segment starting on or before this day in the rotation
+	private int findSegment(int day) {
+		int low = 0;
+		int high = segmentOrdinals.length - 1;
+
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+
+			if (segmentStartDays[mid] <= day) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Find the first working day on or after the specified day. The days off are
+	 * skipped a segment at a time.
+	 *
+	 * @param rotationDay Days from the start of the rotation
+	 * @return Days from the start of the rotation, or Long.MAX_VALUE if the
+	 *         rotation has no working days
+	 */
+	long nextWorkingDay(long rotationDay) {
+		if (getWorkingSeconds() == 0) {
+			return Long.MAX_VALUE;
+		}
+
+		int day = getDayInRotation(rotationDay);
+		int k = findSegment(day);
+
+		if (day - segmentStartDays[k] < segmentDaysOn[k]) {
+			return rotationDay;
+		}
+
+		// first following segment with days on, possibly in the next rotation
+		int segmentCount = segmentOrdinals.length;
+		long cycleStart = rotationDay - day;
+
+		for (int i = 1; i <= segmentCount; i++) {
+			int j = k + i;
+			long start = cycleStart;
+
+			if (j >= segmentCount) {
+				j -= segmentCount;
+				start += getDayCount();
+			}
+
+			if (segmentDaysOn[j] > 0) {
+				return start + segmentStartDays[j];
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Find the last working day on or before the specified day. The days off are
+	 * skipped a segment at a time.
+	 *
+	 * @param rotationDay Days from the start of the rotation
+	 * @return Days from the start of the rotation, or Long.MIN_VALUE if the
+	 *         rotation has no working days
+	 */
+	long previousWorkingDay(long rotationDay) {
+		if (getWorkingSeconds() == 0) {
+			return Long.MIN_VALUE;
+		}
+
+		int day = getDayInRotation(rotationDay);
+		int k = findSegment(day);
+		int daysIntoSegment = day - segmentStartDays[k];
+
+		if (segmentDaysOn[k] > 0) {
+			// on this day or the segment's last day on
+			return rotationDay - Math.max(daysIntoSegment - segmentDaysOn[k] + 1, 0);
+		}
+
+		// last preceding segment with days on, possibly in the previous rotation
+		int segmentCount = segmentOrdinals.length;
+		long cycleStart = rotationDay - day;
+
+		for (int i = 1; i <= segmentCount; i++) {
+			int j = k - i;
+			long start = cycleStart;
+
+			if (j < 0) {
+				j += segmentCount;
+				start -= getDayCount();
+			}
+
+			if (segmentDaysOn[j] > 0) {
+				return start + segmentStartDays[j] + segmentDaysOn[j] - 1;
+			}
+		}
+		return Long.MIN_VALUE;
+	}
+
+	/**
+	 * Get the day in the rotation for a day counted from the start of the
+	 * rotation. Days before the start are counted back from the end of the
+	 * rotation.
+	 *
+	 * @param rotationDay Days from the start of the rotation
+	 * @return Day in the rotation, starting at 0
+	 */
+	int getDayInRotation(long rotationDay) {
+		return (int) Math.floorMod(rotationDay, (long) dayOrdinals.length);
+	}
+
+	/**
+	 * Check to see if the shift instance starting on the specified day is in
+	 * progress at the specified second. The start and end of the instance are
+	 * both included. There are no instances before the start of the rotation.
+	 *
+	 * @param rotationDay    Days from the start of the rotation
+	 * @param rotationSecond Seconds from midnight of the rotation start
+	 * @return True if in the shift instance
+	 */
+	boolean isInShift(long rotationDay, long rotationSecond) {
+		if (rotationDay < 0) {
+			return false;
+		}
+
+		short ordinal = dayOrdinals[getDayInRotation(rotationDay)];
+
+		if (ordinal == DAY_OFF) {
+			return false;
+		}
+
+		int duration = shiftWorkingSeconds[ordinal];
+		long start = rotationDay * SECONDS_PER_DAY + shiftStartSeconds[ordinal];
+		return rotationSecond >= start && rotationSecond <= start + duration;
+	}
+
+	/**
+	 * Calculate the working seconds of the shift instances from the start of the
+	 * rotation up to the specified second. Whole rotations are multiplied out,
+	 * then the shifts starting on the previous day and on this day are clipped to
+	 * the second.
+	 *
+	 * @param rotationSecond Seconds from midnight of the rotation start
+	 * @return Working seconds, zero if before the start of the rotation
+	 */
+	long getCumulativeWorkingSeconds(long rotationSecond) {
+		return getCumulativeSeconds(rotationSecond, false);
+	}
+
+	/**
+	 * Calculate the working seconds net of breaks of the shift instances from the
+	 * start of the rotation up to the specified second. The break time of a
+	 * clipped shift is found in its break table.
+	 *
+	 * @param rotationSecond Seconds from midnight of the rotation start
+	 * @return Working seconds, zero if before the start of the rotation
+	 */
+	long getCumulativeNetWorkingSeconds(long rotationSecond) {
+		return getCumulativeSeconds(rotationSecond, true);
+	}
+
+	private long getCumulativeSeconds(long rotationSecond, boolean net) {
+		if (dayOrdinals.length == 0) {
+			return 0;
+		}
+
+		long day = Math.floorDiv(rotationSecond, SECONDS_PER_DAY);
+
+		// no shifts start before the rotation
+		if (day < 0) {
+			return 0;
+		} else if (day == 0) {
+			return getPartialWorkingSeconds(0, rotationSecond, net);
+		}
+
+		// shifts starting two or more days ago have ended
+		long sum = getWorkingSecondsBefore(day - 1, net);
+
+		// shifts starting yesterday and today
+		sum += getPartialWorkingSeconds(day - 1, rotationSecond, net);
+		sum += getPartialWorkingSeconds(day, rotationSecond, net);
+
+		return sum;
+	}
+
+	// working seconds of the shifts that start before this day in the rotation
+	private long getWorkingSecondsBefore(long day, boolean net) {
+		long cycles = Math.floorDiv(day, (long) dayOrdinals.length);
+		long cycleSeconds = net ? getNetWorkingSeconds() : getWorkingSeconds();
+
+		return cycles * cycleSeconds + getSecondsBeforeDay(getDayInRotation(day), net);
+	}
+
+	// working seconds of the shift starting on this day up to the second
+	private long getPartialWorkingSeconds(long day, long rotationSecond, boolean net) {
+		short ordinal = dayOrdinals[getDayInRotation(day)];
+
+		if (ordinal == DAY_OFF) {
+			return 0;
+		}
+
+		int duration = shiftWorkingSeconds[ordinal];
+		long worked = rotationSecond - (day * SECONDS_PER_DAY + shiftStartSeconds[ordinal]);
+
+		if (worked <= 0) {
+			return 0;
+		} else if (worked > duration) {
+			worked = duration;
+		}
+
+		if (net) {
+			worked -= shiftBreaks[ordinal].getBreakSecondsBefore(worked);
+		}
+		return worked;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+/**
+ * Interface ScheduleMetricsListener receives the timing of work schedule queries
+ * and the use of its internal caches, for example to record them in a metrics
+ * registry. A listener is set with
+ * {@link WorkSchedule#setMetricsListener(ScheduleMetricsListener)}. When no
+ * listener is set, the queries are not timed. A listener is called on the
+ * querying thread and must be thread-safe if the schedule is shared.
+ * 
+ * @author Kent Randall
+ *
+ */
+public interface ScheduleMetricsListener {
+	/**
+	 * Instrumented queries
+	 */
+	enum Query {
+		SHIFT_INSTANCES_FOR_DAY, ALL_SHIFT_INSTANCES_FOR_DAY, SHIFT_INSTANCES_FOR_TIME, WORKING_TIME,
+		NON_WORKING_TIME, TEAM_MEMBERS, TEAM_WORKING_TIME
+	}
+
+	/**
+	 * Instrumented caches
+	 */
+	enum Cache {
+		// rotation day table of a rotation
+		ROTATION_TABLE,
+
+		// team member exceptions by shift instance start
+		MEMBER_EXCEPTIONS,
+
+		// optional shift instances by day
+		SHIFT_INSTANCES
+	}
+
+	/**
+	 * Result of a cache access
+	 */
+	enum CacheEvent {
+		HIT, MISS, REBUILD
+	}
+
+	/**
+	 * Called when a query completes normally
+	 * 
+	 * @param query         {@link Query}
+	 * @param elapsedNanos  Elapsed time in nanoseconds
+	 * @param instanceCount Number of shift instances or team members returned
+	 */
+	default void queryCompleted(Query query, long elapsedNanos, int instanceCount) {
+		// not recorded
+	}
+
+	/**
+	 * Called when a cache is accessed
+	 * 
+	 * @param cache {@link Cache}
+	 * @param event {@link CacheEvent}
+	 */
+	default void cacheAccessed(Cache cache, CacheEvent event) {
+		// not recorded
+	}
+}
@@ -0,0 +1,383 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Class ScheduleReportWriter renders work schedule reports to an
+ * {@link Appendable} such as a {@link java.io.Writer} or a StringBuilder. The
+ * localized labels are resolved once for the writer's locale and the text is
+ * collected in a fixed size buffer, so a roster report over many years is
+ * streamed in constant memory. The shift instances are read with a
+ * {@link ShiftInstanceCursor} rather than a list per day.
+ *
+ * @author Kent Randall
+ *
+ */
+public class ScheduleReportWriter {
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	// characters buffered before passing them to the output
+	private static final int BUFFER_SIZE = 8192;
+
+	// report output
+	private final Appendable out;
+
+	// pending text
+	private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+
+	// format for percentages
+	private final NumberFormat percentFormat;
+
+	// localized labels
+	private final String scheduleLabel;
+	private final String rotationDurationLabel;
+	private final String scheduleWorkingLabel;
+	private final String shiftsLabel;
+	private final String teamsLabel;
+	private final String coverageLabel;
+	private final String nonWorkingLabel;
+	private final String totalNonWorkingLabel;
+	private final String periodStartLabel;
+	private final String periodEndLabel;
+	private final String breaksLabel;
+	private final String rotationStartLabel;
+	private final String rotationPercentageLabel;
+	private final String teamHoursLabel;
+	private final String membersLabel;
+	private final String memberIdLabel;
+	private final String rotationPeriodsLabel;
+	private final String rotationDaysLabel;
+	private final String rotationWorkingLabel;
+	private final String onLabel;
+	private final String offLabel;
+	private final String teamLabel;
+	private final String shiftLabel;
+	private final String workingShiftsLabel;
+	private final String dayLabel;
+	private final String noWorkingShiftsLabel;
+
+	/**
+	 * Construct a report writer for the default locale
+	 * 
+	 * @param out Report output
+	 */
+	public ScheduleReportWriter(Appendable out) {
+		this(out, Locale.getDefault());
+	}
+
+	/**
+	 * Construct a report writer for the specified locale
+	 * 
+	 * @param out    Report output
+	 * @param locale Locale of the labels and numbers
+	 */
+	public ScheduleReportWriter(Appendable out, Locale locale) {
+		this.out = out;
+
+		percentFormat = NumberFormat.getNumberInstance(locale);
+		percentFormat.setMaximumFractionDigits(2);
+
+		ResourceBundle messages = WorkSchedule.getMessages(locale);
+		scheduleLabel = messages.getString("schedule");
+		rotationDurationLabel = messages.getString("rotation.duration");
+		scheduleWorkingLabel = messages.getString("schedule.working");
+		shiftsLabel = messages.getString("schedule.shifts");
+		teamsLabel = messages.getString("schedule.teams");
+		coverageLabel = messages.getString("schedule.coverage");
+		nonWorkingLabel = messages.getString("schedule.non");
+		totalNonWorkingLabel = messages.getString("schedule.total");
+		periodStartLabel = messages.getString("period.start");
+		periodEndLabel = messages.getString("period.end");
+		breaksLabel = messages.getString("breaks");
+		rotationStartLabel = messages.getString("rotation.start");
+		rotationPercentageLabel = messages.getString("rotation.percentage");
+		teamHoursLabel = messages.getString("team.hours");
+		membersLabel = messages.getString("team.members");
+		memberIdLabel = messages.getString("member.id");
+		rotationPeriodsLabel = messages.getString("rotation.periods");
+		rotationDaysLabel = messages.getString("rotation.days");
+		rotationWorkingLabel = messages.getString("rotation.working");
+		onLabel = messages.getString("rotation.on");
+		offLabel = messages.getString("rotation.off");
+		teamLabel = messages.getString("team");
+		shiftLabel = messages.getString("shift");
+		workingShiftsLabel = messages.getString("shifts.working");
+		dayLabel = messages.getString("shifts.day");
+		noWorkingShiftsLabel = messages.getString("shifts.non.working");
+	}
+
+	/**
+	 * Write the definition of a work schedule with its shifts, teams and
+	 * non-working periods. The text is the same as
+	 * {@link WorkSchedule#toString()}.
+	 * 
+	 * @param schedule {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public void writeSchedule(WorkSchedule schedule) throws Exception {
+		try {
+			buffer.append(scheduleLabel).append(": ");
+			appendNamed(schedule);
+
+			buffer.append('\n').append(rotationDurationLabel).append(": ").append(schedule.getRotationDuration())
+					.append(", ").append(scheduleWorkingLabel).append(": ").append(schedule.getRotationWorkingTime());
+
+			// shifts
+			buffer.append('\n').append(shiftsLabel).append(": ");
+			int count = 1;
+			for (Shift shift : schedule.getShifts()) {
+				buffer.append("\n   (").append(count).append(") ");
+				appendShift(shift);
+				count++;
+			}
+
+			// teams
+			buffer.append('\n').append(teamsLabel).append(": ");
+			count = 1;
+			float teamPercent = 0.0f;
+			for (Team team : schedule.getTeams()) {
+				buffer.append("\n   (").append(count).append(") ");
+				teamPercent += appendTeam(team);
+				count++;
+			}
+			buffer.append('\n').append(coverageLabel).append(": ").append(percentFormat.format(teamPercent))
+					.append('%');
+
+			// non-working periods
+			List<NonWorkingPeriod> periods = schedule.getNonWorkingPeriods();
+
+			if (!periods.isEmpty()) {
+				buffer.append('\n').append(nonWorkingLabel).append(':');
+
+				Duration totalMinutes = Duration.ZERO;
+
+				count = 1;
+				for (NonWorkingPeriod period : periods) {
+					totalMinutes = totalMinutes.plusMinutes(period.getDuration().toMinutes());
+					buffer.append("\n   (").append(count).append(") ");
+					appendNamed(period);
+					buffer.append(", ").append(periodStartLabel).append(": ").append(period.getStartDateTime())
+							.append(" (").append(period.getDuration()).append("), ").append(periodEndLabel)
+							.append(": ").append(period.getEndDateTime());
+					count++;
+					drainIfFull();
+				}
+				buffer.append('\n').append(totalNonWorkingLabel).append(": ").append(totalMinutes);
+			}
+		} finally {
+			drain();
+		}
+	}
+
+	/**
+	 * Write the shift instances of a work schedule starting in each day of the
+	 * specified range. The text is the same as
+	 * {@link WorkSchedule#printShiftInstances(LocalDate, LocalDate)}.
+	 * 
+	 * @param schedule {@link WorkSchedule}
+	 * @param start    Starting date (inclusive)
+	 * @param end      Ending date (inclusive)
+	 * @throws Exception exception
+	 */
+	public void writeShiftInstances(WorkSchedule schedule, LocalDate start, LocalDate end) throws Exception {
+		if (start.isAfter(end)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), start, end);
+			throw new Exception(msg);
+		}
+
+		String lineSeparator = System.lineSeparator();
+
+		ShiftInstanceCursor cursor = new ShiftInstanceCursor(schedule);
+		cursor.open(LocalDateTime.of(start, LocalTime.MIDNIGHT), LocalDateTime.of(end.plusDays(1), LocalTime.MIDNIGHT));
+		boolean more = cursor.next();
+
+		try {
+			buffer.append(workingShiftsLabel).append(lineSeparator);
+
+			long days = end.toEpochDay() - start.toEpochDay() + 1;
+			LocalDate day = start;
+
+			for (long i = 0; i < days; i++) {
+				buffer.append('[').append(i + 1).append("] ").append(dayLabel).append(": ").append(day)
+						.append(lineSeparator);
+
+				// instances starting in this day
+				long dayEnd = (day.toEpochDay() + 1) * SECONDS_PER_DAY;
+				int count = 0;
+
+				while (more && cursor.getStartSecond() < dayEnd) {
+					count++;
+					buffer.append("   (").append(count).append(')');
+					appendShiftInstance(day, cursor.getShift(), cursor.getTeam());
+					buffer.append(lineSeparator);
+					drainIfFull();
+
+					more = cursor.next();
+				}
+
+				if (count == 0) {
+					buffer.append("   ").append(noWorkingShiftsLabel).append(lineSeparator);
+				}
+
+				day = day.plusDays(1);
+				drainIfFull();
+			}
+		} finally {
+			drain();
+		}
+	}
+
+	/**
+	 * Pass any buffered text to the output and flush the output if it is
+	 * {@link Flushable}
+	 * 
+	 * @throws IOException IO exception
+	 */
+	public void flush() throws IOException {
+		drain();
+
+		if (out instanceof Flushable) {
+			((Flushable) out).flush();
+		}
+	}
+
+	private void appendNamed(Named named) {
+		buffer.append(named.getName());
+
+		String description = named.getDescription();
+		if (description != null) {
+			buffer.append(" (").append(description).append(')');
+		}
+	}
+
+	private void appendTimePeriod(TimePeriod period) throws Exception {
+		appendNamed(period);
+		buffer.append(", ").append(periodStartLabel).append(": ").append(period.getStart()).append(" (")
+				.append(period.getDuration()).append("), ").append(periodEndLabel).append(": ")
+				.append(period.getEnd());
+	}
+
+	private void appendShift(Shift shift) throws Exception {
+		appendTimePeriod(shift);
+
+		List<Break> breaks = shift.getBreaks();
+
+		if (!breaks.isEmpty()) {
+			buffer.append("\n      ").append(breaks.size()).append(' ').append(breaksLabel).append(':');
+		}
+
+		for (Break breakPeriod : breaks) {
+			buffer.append("\n      ");
+			appendTimePeriod(breakPeriod);
+		}
+	}
+
+	// the team's percentage worked is returned for the schedule coverage
+	private float appendTeam(Team team) throws Exception {
+		float percentage = team.getPercentageWorked();
+
+		appendNamed(team);
+		buffer.append(", ").append(rotationStartLabel).append(": ").append(team.getRotationStart()).append(", ");
+		appendRotation(team.getRotation());
+		buffer.append(", ").append(rotationPercentageLabel).append(": ").append(percentFormat.format(percentage))
+				.append("%, ").append(teamHoursLabel).append(": ").append(team.getHoursWorkedPerWeek()).append('\n')
+				.append(membersLabel);
+
+		for (TeamMember member : team.getAssignedMembers()) {
+			buffer.append("\n\t");
+			appendMember(member);
+		}
+		drainIfFull();
+
+		return percentage;
+	}
+
+	private void appendRotation(Rotation rotation) throws Exception {
+		appendNamed(rotation);
+		buffer.append('\n').append(rotationPeriodsLabel).append(": [");
+
+		boolean first = true;
+		for (TimePeriod period : rotation.getPeriods()) {
+			if (!first) {
+				buffer.append(", ");
+			}
+			first = false;
+
+			buffer.append(period.getName()).append(" (").append(period.isWorkingPeriod() ? onLabel : offLabel)
+					.append(')');
+		}
+
+		Duration duration = rotation.getDuration();
+		buffer.append("], ").append(rotationDurationLabel).append(": ").append(duration).append(", ")
+				.append(rotationDaysLabel).append(": ").append(duration.toDays()).append(", ")
+				.append(rotationWorkingLabel).append(": ").append(rotation.getWorkingTime());
+	}
+
+	private void appendMember(TeamMember member) {
+		appendNamed(member);
+		buffer.append(", ").append(memberIdLabel).append(": ").append(member.getMemberID());
+	}
+
+	private void appendShiftInstance(LocalDate day, Shift shift, Team team) {
+		LocalDateTime startTime = LocalDateTime.of(day, shift.getStart());
+
+		buffer.append(' ').append(teamLabel).append(": ").append(team.getName()).append(" (")
+				.append(team.getDescription()).append("), ").append(shiftLabel).append(": ").append(shift.getName())
+				.append(", ").append(periodStartLabel).append(": ").append(startTime).append(", ")
+				.append(periodEndLabel).append(": ").append(startTime.plus(shift.getDuration())).append('\n')
+				.append(membersLabel);
+
+		for (TeamMember member : team.getMembers(startTime)) {
+			buffer.append("\n\t");
+			appendMember(member);
+		}
+	}
+
+	private void drainIfFull() throws IOException {
+		if (buffer.length() >= BUFFER_SIZE) {
+			drain();
+		}
+	}
+
+	private void drain() throws IOException {
+		if (buffer.length() > 0) {
+			out.append(buffer);
+			buffer.setLength(0);
+		}
+	}
+}
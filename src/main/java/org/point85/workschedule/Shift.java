@@ -28,6 +28,7 @@ import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -44,6 +45,9 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	// breaks
 	private List<Break> breaks = new ArrayList<>();
 
+	// break offsets from the shift start
+	private volatile BreakTable breakTable;
+
 	/**
 	 * Default constructor
 	 */
@@ -61,7 +65,7 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 * @return List {@link Break}
 	 */
 	public List<Break> getBreaks() {
-		return this.breaks;
+		return isReadOnly() ? Collections.unmodifiableList(breaks) : this.breaks;
 	}
 
 	/**
@@ -70,6 +74,8 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 * @param breakPeriod {@link Break}
 	 */
 	public void addBreak(Break breakPeriod) {
+		checkModifiable();
+
 		if (!this.breaks.contains(breakPeriod)) {
 			this.breaks.add(breakPeriod);
 		}
@@ -81,6 +87,8 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 * @param breakPeriod {@link Break}
 	 */
 	public void removeBreak(Break breakPeriod) {
+		checkModifiable();
+
 		if (this.breaks.contains(breakPeriod)) {
 			this.breaks.remove(breakPeriod);
 		}
@@ -102,6 +110,15 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 		return period;
 	}
 
+	@Override
+	void setReadOnly() {
+		super.setReadOnly();
+
+		for (Break breakPeriod : breaks) {
+			breakPeriod.setReadOnly();
+		}
+	}
+
 	private int toRoundedSecond(LocalTime time) {
 		int second = time.toSecondOfDay();
 
@@ -138,9 +155,7 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 * @throws Exception exception
 	 */
 	public boolean spansMidnight() throws Exception {
-		int startSecond = toRoundedSecond(getStart());
-		int endSecond = toRoundedSecond(getEnd());
-		return endSecond <= startSecond;
+		return isSpanningMidnight();
 	}
 
 	/**
@@ -155,17 +170,102 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 * @throws Exception exception
 	 */
 	public Duration calculateWorkingTime(LocalTime from, LocalTime to, boolean beforeMidnight) throws Exception {
-		Duration duration;
+		return Duration.ofSeconds(
+				calculateWorkingSeconds(toRoundedSecond(from), toRoundedSecond(to), beforeMidnight, false));
+	}
+
+	/**
+	 * Calculate the working seconds between the specified seconds of the day. The
+	 * shift must not span midnight. No objects are created.
+	 * 
+	 * @param fromSecondOfDay Starting second of the day
+	 * @param toSecondOfDay   Ending second of the day
+	 * @return Working seconds
+	 * @throws Exception exception
+	 */
+	public int workingSecondsBetween(int fromSecondOfDay, int toSecondOfDay) throws Exception {
+		if (isSpanningMidnight()) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("shift.spans.midnight"), getName(),
+					LocalTime.ofSecondOfDay(fromSecondOfDay), LocalTime.ofSecondOfDay(toSecondOfDay));
+			throw new Exception(msg);
+		}
+		return calculateWorkingSeconds(fromSecondOfDay, toSecondOfDay, true, false);
+	}
+
+	/**
+	 * Calculate the working seconds between the specified seconds of the day. No
+	 * objects are created.
+	 * 
+	 * @param fromSecondOfDay Starting second of the day
+	 * @param toSecondOfDay   Ending second of the day
+	 * @param beforeMidnight  If true, and a shift spans midnight, calculate the
+	 *                        time before midnight. Otherwise calculate the time
+	 *                        after midnight.
+	 * @return Working seconds
+	 */
+	public int workingSecondsBetween(int fromSecondOfDay, int toSecondOfDay, boolean beforeMidnight) {
+		return calculateWorkingSeconds(fromSecondOfDay, toSecondOfDay, beforeMidnight, false);
+	}
+
+	/**
+	 * Calculate the working time less the breaks between the specified times of
+	 * day. The shift must not span midnight.
+	 * 
+	 * @param from starting time
+	 * @param to   Ending time
+	 * @return Duration of working time net of breaks
+	 * @throws Exception exception
+	 */
+	public Duration calculateNetWorkingTime(LocalTime from, LocalTime to) throws Exception {
+
+		if (spansMidnight()) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("shift.spans.midnight"), getName(), from, to);
+			throw new Exception(msg);
+		}
+
+		return this.calculateNetWorkingTime(from, to, true);
+	}
+
+	/**
+	 * Calculate the working time less the breaks between the specified times of
+	 * day
+	 * 
+	 * @param from           starting time
+	 * @param to             Ending time
+	 * @param beforeMidnight If true, and a shift spans midnight, calculate the time
+	 *                       before midnight. Otherwise calculate the time after
+	 *                       midnight.
+	 * @return Duration of working time net of breaks
+	 * @throws Exception exception
+	 */
+	public Duration calculateNetWorkingTime(LocalTime from, LocalTime to, boolean beforeMidnight) throws Exception {
+		return Duration.ofSeconds(
+				calculateWorkingSeconds(toRoundedSecond(from), toRoundedSecond(to), beforeMidnight, true));
+	}
+
+	/**
+	 * Calculate the working seconds less the breaks between the specified seconds
+	 * of the day. No objects are created unless the breaks have changed.
+	 * 
+	 * @param fromSecondOfDay Starting second of the day
+	 * @param toSecondOfDay   Ending second of the day
+	 * @param beforeMidnight  If true, and a shift spans midnight, calculate the
+	 *                        time before midnight. Otherwise calculate the time
+	 *                        after midnight.
+	 * @return Working seconds net of breaks
+	 */
+	public int netWorkingSecondsBetween(int fromSecondOfDay, int toSecondOfDay, boolean beforeMidnight) {
+		return calculateWorkingSeconds(fromSecondOfDay, toSecondOfDay, beforeMidnight, true);
+	}
 
-		int startSecond = toRoundedSecond(getStart());
-		int endSecond = toRoundedSecond(getEnd());
-		int fromSecond = toRoundedSecond(from);
-		int toSecond = toRoundedSecond(to);
+	private int calculateWorkingSeconds(int fromSecond, int toSecond, boolean beforeMidnight, boolean net) {
+		int startSecond = getStartSecond();
+		int endSecond = getEndSecond();
 
 		int delta = toSecond - fromSecond;
 
 		// check for 24 hour shift
-		if (delta == 0 && fromSecond == startSecond && getDuration().toHours() == 24) {
+		if (delta == 0 && fromSecond == startSecond && getDurationSeconds() == 86400) {
 			delta = 86400;
 		}
 
@@ -173,7 +273,7 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 			delta = 86400 + toSecond - fromSecond;
 		}
 
-		if (spansMidnight()) {
+		if (isSpanningMidnight()) {
 			// adjust for shift crossing midnight
 			if (fromSecond < startSecond && fromSecond < endSecond) {
 				if (!beforeMidnight) {
@@ -201,9 +301,16 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 			toSecond = endSecond;
 		}
 
-		duration = Duration.ofSeconds((long) toSecond - (long) fromSecond);
+		int seconds = toSecond - fromSecond;
+
+		if (net) {
+			// remove the breaks between the offsets from the shift start
+			BreakTable table = getBreakTable();
+			seconds -= table.getBreakSecondsBefore(toSecond - startSecond)
+					- table.getBreakSecondsBefore(fromSecond - startSecond);
+		}
 
-		return duration;
+		return seconds;
 	}
 
 	/**
@@ -214,29 +321,44 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 * @throws Exception exception
 	 */
 	public boolean isInShift(LocalTime time) throws Exception {
-		boolean answer = false;
+		return isInShift(time.toSecondOfDay(), time.getNano());
+	}
 
-		LocalTime start = getStart();
-		LocalTime end = getEnd();
+	/**
+	 * Test if the specified second of the day falls within the shift. No objects
+	 * are created.
+	 * 
+	 * @param secondOfDay Second of the day
+	 * @return True if in the shift
+	 */
+	public boolean isInShift(int secondOfDay) {
+		return isInShift(secondOfDay, 0);
+	}
 
-		int onStart = time.compareTo(start);
-		int onEnd = time.compareTo(end);
+	private boolean isInShift(int timeSecond, int timeNano) {
+		boolean answer = false;
 
-		int timeSecond = time.toSecondOfDay();
+		LocalTime start = getStart();
+		int startSecond = start.toSecondOfDay();
+		int endSecond = getEndSecond();
 
-		if (start.isBefore(end)) {
+		if (startSecond < endSecond) {
 			// shift did not cross midnight
-			if (onStart >= 0 && onEnd <= 0) {
+			boolean onOrAfterStart = timeSecond > startSecond
+					|| (timeSecond == startSecond && timeNano >= start.getNano());
+			boolean onOrBeforeEnd = timeSecond < endSecond || (timeSecond == endSecond && timeNano == 0);
+
+			if (onOrAfterStart && onOrBeforeEnd) {
 				answer = true;
 			}
 		} else {
 			// shift crossed midnight, check before and after midnight
-			if (timeSecond <= end.toSecondOfDay()) {
+			if (timeSecond <= endSecond) {
 				// after midnight
 				answer = true;
 			} else {
 				// before midnight
-				if (timeSecond >= start.toSecondOfDay()) {
+				if (timeSecond >= startSecond) {
 					answer = true;
 				}
 			}
@@ -261,6 +383,27 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 		return sum;
 	}
 
+	/**
+	 * Get the working time of the shift less the breaks. Overlapping breaks are
+	 * counted once, and break time outside of the shift is not counted.
+	 * 
+	 * @return Duration of working time net of breaks
+	 */
+	public Duration getNetWorkingTime() {
+		return getDuration().minusSeconds(getBreakTable().getBreakSeconds());
+	}
+
+	// break table for the current breaks
+	BreakTable getBreakTable() {
+		BreakTable table = breakTable;
+
+		if (table == null || !table.isCurrent(this)) {
+			table = new BreakTable(this);
+			breakTable = table;
+		}
+		return table;
+	}
+
 	/**
 	 * Get the work schedule that owns this shift
 	 * 
@@ -274,6 +417,15 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 		this.workSchedule = workSchedule;
 	}
 
+	@Override
+	void periodChanged() {
+		super.periodChanged();
+
+		if (workSchedule != null) {
+			workSchedule.scheduleChanged();
+		}
+	}
+
 	/**
 	 * Compare one shift to another one
 	 */
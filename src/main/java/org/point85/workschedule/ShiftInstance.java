@@ -44,12 +44,20 @@ public class ShiftInstance implements Comparable<ShiftInstance> {
 	// start date and time of day
 	private LocalDateTime startDateTime;
 
+	// fixed end date and time of day, or null if from the shift's duration
+	private LocalDateTime endDateTime;
+
 	ShiftInstance(Shift shift, LocalDateTime startDateTime, Team team) {
 		this.shift = shift;
 		this.startDateTime = startDateTime;
 		this.team = team;
 	}
 
+	ShiftInstance(Shift shift, LocalDateTime startDateTime, LocalDateTime endDateTime, Team team) {
+		this(shift, startDateTime, team);
+		this.endDateTime = endDateTime;
+	}
+
 	/**
 	 * Get the shift for this instance
 	 * 
@@ -74,7 +82,7 @@ public class ShiftInstance implements Comparable<ShiftInstance> {
 	 * @return LocalDateTime
 	 */
 	public LocalDateTime getEndTime() {
-		return startDateTime.plus(shift.getDuration());
+		return endDateTime != null ? endDateTime : startDateTime.plus(shift.getDuration());
 	}
 
 	/**
@@ -0,0 +1,163 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class ShiftInstanceCache holds the most recently used lists of shift
+ * instances of a work schedule by day. The least recently used day is evicted
+ * when the cache is full, and all days are dropped when the schedule's teams,
+ * rotations, shifts or non-working periods change. The cached lists cannot be
+ * modified.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class ShiftInstanceCache {
+	// maximum number of cached lists
+	private final int maximumSize;
+
+	// lists keyed by epoch day and kind, in access order
+	private final Map<Long, List<ShiftInstance>> entries;
+
+	// schedule state that the cached lists were computed for
+	private long periodListVersion;
+	private long modificationCount;
+
+	// lookup counts
+	private long hitCount = 0;
+	private long missCount = 0;
+
+	ShiftInstanceCache(int maximumSize) {
+		this.maximumSize = maximumSize;
+		this.entries = new LinkedHashMap<Long, List<ShiftInstance>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, List<ShiftInstance>> eldest) {
+				return size() > ShiftInstanceCache.this.maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * Get the maximum number of cached lists
+	 * 
+	 * @return Maximum size
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Get the number of cached lists
+	 * 
+	 * @return Size
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found a cached list
+	 * 
+	 * @return Hit count
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Get the number of lookups that did not find a cached list
+	 * 
+	 * @return Miss count
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Remove all cached lists. The hit and miss counts are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Get a cached list
+	 * 
+	 * @param epochDay          Day from the epoch
+	 * @param all               True for the instances starting or ending in the
+	 *                          day, false for those starting in the day
+	 * @param periodListVersion Current non-working period list version
+	 * @param modificationCount Current schedule modification count
+	 * @return List of {@link ShiftInstance} or null if not cached
+	 */
+	synchronized List<ShiftInstance> get(long epochDay, boolean all, long periodListVersion,
+			long modificationCount) {
+		checkState(periodListVersion, modificationCount);
+
+		List<ShiftInstance> instances = entries.get(toKey(epochDay, all));
+
+		if (instances != null) {
+			hitCount++;
+		} else {
+			missCount++;
+		}
+		return instances;
+	}
+
+	/**
+	 * Cache a list computed for this schedule state
+	 * 
+	 * @param epochDay          Day from the epoch
+	 * @param all               True for the instances starting or ending in the
+	 *                          day, false for those starting in the day
+	 * @param instances         Unmodifiable list of {@link ShiftInstance}
+	 * @param periodListVersion Non-working period list version when computed
+	 * @param modificationCount Schedule modification count when computed
+	 */
+	synchronized void put(long epochDay, boolean all, List<ShiftInstance> instances, long periodListVersion,
+			long modificationCount) {
+		checkState(periodListVersion, modificationCount);
+		entries.put(toKey(epochDay, all), instances);
+	}
+
+	// drop the cached lists if the schedule has changed
+	private void checkState(long periodListVersion, long modificationCount) {
+		if (periodListVersion != this.periodListVersion || modificationCount != this.modificationCount) {
+			entries.clear();
+			this.periodListVersion = periodListVersion;
+			this.modificationCount = modificationCount;
+		}
+	}
+
+	private static Long toKey(long epochDay, boolean all) {
+		return (epochDay << 1) | (all ? 1 : 0);
+	}
+}
@@ -0,0 +1,317 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class ShiftInstanceCsv exports the shift instances of a work schedule as CSV
+ * rows of the starting and ending seconds from the epoch, the team, the shift,
+ * the number of members and the member IDs separated by semicolons. The rows
+ * are encoded directly into a direct {@link ByteBuffer} that is written to a
+ * channel. Each thread reuses its own buffer for all of the files it writes. The names and IDs are encoded once, so no text is built per
+ * row. A range of dates can be split into files of a number of days each,
+ * written in parallel. Instances starting on a non-working day are skipped as
+ * in {@link WorkSchedule#getShiftInstancesForDay(LocalDate)}.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class ShiftInstanceCsv {
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	// size of the direct buffer
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// direct buffer of each writing thread, since it is only freed by the
+	// garbage collector
+	private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+	// longest decimal long with its sign
+	private static final int MAX_LONG_SIZE = 20;
+
+	private static final byte[] HEADER = "start_epoch,end_epoch,team,shift,member_count,members\n"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	// channel to write to
+	private final WritableByteChannel channel;
+
+	// this thread's buffer of encoded rows
+	private final ByteBuffer buffer;
+
+	// encoded CSV fields of the names and IDs
+	private final Map<Object, byte[]> fields = new IdentityHashMap<>();
+
+	private ShiftInstanceCsv(WritableByteChannel channel) {
+		this.channel = channel;
+
+		// rows left from a failed write are discarded
+		this.buffer = BUFFERS.get();
+		this.buffer.clear();
+	}
+
+	/**
+	 * Write the shift instances of a work schedule starting from the first day to
+	 * the last day
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param first        First day
+	 * @param last         Last day
+	 * @param channel      Channel to write to, which is not closed
+	 * @return Number of rows written
+	 * @throws Exception exception
+	 */
+	public static long write(WorkSchedule workSchedule, LocalDate first, LocalDate last, WritableByteChannel channel)
+			throws Exception {
+		checkRange(workSchedule, first, last);
+		return new ShiftInstanceCsv(channel).writeRows(workSchedule, first.toEpochDay(), last.toEpochDay());
+	}
+
+	/**
+	 * Write the shift instances of a work schedule starting from the first day to
+	 * the last day to a file
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param first        First day
+	 * @param last         Last day
+	 * @param path         File to create or replace
+	 * @return Number of rows written
+	 * @throws Exception exception
+	 */
+	public static long write(WorkSchedule workSchedule, LocalDate first, LocalDate last, Path path)
+			throws Exception {
+		checkRange(workSchedule, first, last);
+		return writeFile(workSchedule, first.toEpochDay(), last.toEpochDay(), path);
+	}
+
+	/**
+	 * Write the shift instances of a work schedule starting from the first day to
+	 * the last day to a file for each partition of days. The files are written in
+	 * parallel on the specified pool and are named by the first day of their
+	 * partition, for example shift-instances-2021-01-01.csv.
+	 * 
+	 * @param workSchedule  {@link WorkSchedule}
+	 * @param first         First day
+	 * @param last          Last day
+	 * @param partitionDays Number of days in each file, the last file can have
+	 *                      fewer
+	 * @param directory     Directory for the files
+	 * @param pool          {@link ForkJoinPool} to run on
+	 * @return Paths of the files in date order
+	 * @throws Exception the first exception of a file
+	 */
+	public static List<Path> writePartitioned(WorkSchedule workSchedule, LocalDate first, LocalDate last,
+			int partitionDays, Path directory, ForkJoinPool pool) throws Exception {
+		checkRange(workSchedule, first, last);
+
+		if (partitionDays < 1) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("csv.partition.too.short"), partitionDays);
+			throw new Exception(msg);
+		}
+
+		// the rotation tables and non-working period index are built before the
+		// tasks share them
+		for (Team team : workSchedule.getTeams()) {
+			team.getRotation().getTable();
+		}
+		workSchedule.isNonWorkingDay(first.toEpochDay());
+
+		List<Path> paths = new ArrayList<>();
+		List<Callable<Long>> tasks = new ArrayList<>();
+
+		for (long day = first.toEpochDay(); day <= last.toEpochDay(); day += partitionDays) {
+			long firstDay = day;
+			long lastDay = Math.min(day + partitionDays - 1, last.toEpochDay());
+			Path path = directory.resolve("shift-instances-" + LocalDate.ofEpochDay(day) + ".csv");
+
+			paths.add(path);
+			tasks.add(() -> writeFile(workSchedule, firstDay, lastDay, path));
+		}
+
+		for (Future<Long> future : pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof Exception ? (Exception) cause : e;
+			}
+		}
+		return paths;
+	}
+
+	private static void checkRange(WorkSchedule workSchedule, LocalDate first, LocalDate last) throws Exception {
+		if (first.isAfter(last)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), last, first);
+			throw new Exception(msg);
+		}
+
+		// check that the rotations have started
+		for (Team team : workSchedule.getTeams()) {
+			team.checkRotationStarted(first.toEpochDay());
+		}
+	}
+
+	private static long writeFile(WorkSchedule workSchedule, long firstDay, long lastDay, Path path)
+			throws Exception {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return new ShiftInstanceCsv(channel).writeRows(workSchedule, firstDay, lastDay);
+		}
+	}
+
+	private long writeRows(WorkSchedule workSchedule, long firstDay, long lastDay) throws Exception {
+		long count = 0;
+		buffer.put(HEADER);
+
+		ShiftInstanceCursor cursor = new ShiftInstanceCursor(workSchedule);
+		cursor.open(firstDay * SECONDS_PER_DAY, (lastDay + 1) * SECONDS_PER_DAY);
+
+		while (cursor.next()) {
+			Team team = cursor.getTeam();
+			Shift shift = cursor.getShift();
+
+			// the member exceptions are keyed by the shift's start time
+			LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(cursor.getStartSecond(), SECONDS_PER_DAY));
+			List<TeamMember> members = team.getMembers(LocalDateTime.of(day, shift.getStart()));
+
+			putLong(cursor.getStartSecond());
+			putByte(',');
+			putLong(cursor.getEndSecond());
+			putByte(',');
+			putField(getField(team, team.getName()));
+			putByte(',');
+			putField(getField(shift, shift.getName()));
+			putByte(',');
+			putLong(members.size());
+			putByte(',');
+
+			for (int i = 0; i < members.size(); i++) {
+				if (i > 0) {
+					putByte(';');
+				}
+				TeamMember member = members.get(i);
+				putField(getField(member, member.getMemberID()));
+			}
+
+			putByte('\n');
+			count++;
+		}
+		drain();
+
+		return count;
+	}
+
+	// the value as a CSV field, quoted if needed
+	private byte[] getField(Object owner, String value) {
+		byte[] field = fields.get(owner);
+
+		if (field == null) {
+			String text = value != null ? value : "";
+
+			boolean quoted = false;
+			for (int i = 0; i < text.length() && !quoted; i++) {
+				char c = text.charAt(i);
+				quoted = c == ',' || c == ';' || c == '"' || c == '\n' || c == '\r';
+			}
+
+			if (quoted) {
+				text = '"' + text.replace("\"", "\"\"") + '"';
+			}
+
+			field = text.getBytes(StandardCharsets.UTF_8);
+			fields.put(owner, field);
+		}
+		return field;
+	}
+
+	private void putField(byte[] field) throws Exception {
+		int offset = 0;
+
+		while (offset < field.length) {
+			ensureRemaining(1);
+			int length = Math.min(buffer.remaining(), field.length - offset);
+			buffer.put(field, offset, length);
+			offset += length;
+		}
+	}
+
+	private void putByte(char c) throws Exception {
+		ensureRemaining(1);
+		buffer.put((byte) c);
+	}
+
+	// decimal digits without creating a string, the seconds of a LocalDate are
+	// well within range
+	private void putLong(long value) throws Exception {
+		ensureRemaining(MAX_LONG_SIZE);
+
+		if (value < 0) {
+			buffer.put((byte) '-');
+			value = -value;
+		}
+
+		long divisor = 1;
+		while (divisor <= value / 10) {
+			divisor *= 10;
+		}
+
+		for (; divisor > 0; divisor /= 10) {
+			buffer.put((byte) ('0' + (value / divisor) % 10));
+		}
+	}
+
+	private void ensureRemaining(int size) throws Exception {
+		if (buffer.remaining() < size) {
+			drain();
+		}
+	}
+
+	private void drain() throws Exception {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,334 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Class ShiftInstanceCursor steps through the shift instances of a work
+ * schedule in order of their start. The teams' rotations are merged with a
+ * heap, and the cursor holds the current instance without creating a
+ * {@link ShiftInstance} for it. Instances starting on a non-working day are
+ * skipped as in {@link WorkSchedule#getShiftInstancesForDay} unless the cursor
+ * is created to include them.
+ *
+ * @author Kent Randall
+ *
+ */
+public class ShiftInstanceCursor {
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	// owning work schedule
+	private final WorkSchedule workSchedule;
+
+	// true to skip instances starting on a non-working day
+	private final boolean skipNonWorkingDays;
+
+	// teams with working shifts
+	private Team[] teams = new Team[0];
+
+	// rotation table of each team, got when opened
+	private RotationTable[] tables = new RotationTable[0];
+
+	// epoch day and starting second of each team's next instance
+	private long[] nextDays = new long[0];
+	private long[] nextStarts = new long[0];
+
+	// team indexes ordered by next instance start
+	private int[] heap = new int[0];
+	private int heapSize = 0;
+
+	// end of the range (exclusive)
+	private long toSecond;
+
+	// last day checked for non-working periods
+	private long checkedDay;
+	private boolean checkedNonWorking;
+
+	// current instance
+	private Team team;
+	private int teamIndex;
+	private Shift shift;
+	private long startSecond;
+	private long endSecond;
+
+	ShiftInstanceCursor(WorkSchedule workSchedule) {
+		this(workSchedule, true);
+	}
+
+	ShiftInstanceCursor(WorkSchedule workSchedule, boolean skipNonWorkingDays) {
+		this.workSchedule = workSchedule;
+		this.skipNonWorkingDays = skipNonWorkingDays;
+	}
+
+	/**
+	 * Position the cursor before the first shift instance starting in this range
+	 *
+	 * @param from Starting date and time (inclusive)
+	 * @param to   Ending date and time (exclusive)
+	 * @throws Exception exception
+	 */
+	public void open(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), from, to);
+			throw new Exception(msg);
+		}
+
+		// check that the rotations have started
+		long fromDay = from.toLocalDate().toEpochDay();
+		for (Team scheduleTeam : workSchedule.getTeams()) {
+			scheduleTeam.checkRotationStarted(fromDay);
+		}
+
+		open(Team.toRoundedSecond(from), Team.toRoundedSecond(to));
+	}
+
+	// position the cursor without checking the rotation starts
+	void open(long fromSecond, long toSecond) {
+		List<Team> scheduleTeams = workSchedule.getTeams();
+		int count = scheduleTeams.size();
+
+		if (teams.length != count) {
+			teams = new Team[count];
+			tables = new RotationTable[count];
+			nextDays = new long[count];
+			nextStarts = new long[count];
+			heap = new int[count];
+		}
+
+		long fromDay = Math.floorDiv(fromSecond, SECONDS_PER_DAY);
+		this.toSecond = toSecond;
+		heapSize = 0;
+		checkedDay = Long.MIN_VALUE;
+		team = null;
+		shift = null;
+
+		for (int k = 0; k < count; k++) {
+			Team scheduleTeam = scheduleTeams.get(k);
+			teams[k] = scheduleTeam;
+			tables[k] = scheduleTeam.getRotation().getTable();
+
+			if (!advance(k, fromDay)) {
+				continue;
+			}
+
+			// an instance on the first day may start before the range
+			if (nextStarts[k] < fromSecond && !advance(k, nextDays[k] + 1)) {
+				continue;
+			}
+
+			heap[heapSize] = k;
+			siftUp(heapSize);
+			heapSize++;
+		}
+	}
+
+	/**
+	 * Move to the next shift instance
+	 *
+	 * @return True if there is an instance, false if the range is finished
+	 * @throws Exception exception
+	 */
+	public boolean next() throws Exception {
+		while (heapSize > 0) {
+			int k = heap[0];
+			long day = nextDays[k];
+
+			if (nextStarts[k] >= toSecond) {
+				// all remaining instances start later
+				heapSize = 0;
+				break;
+			}
+
+			Team nextTeam = teams[k];
+			RotationTable table = tables[k];
+			int dayInRotation = table.getDayInRotation(nextTeam.getRotationDay(day));
+
+			team = nextTeam;
+			teamIndex = k;
+			shift = table.getShift(dayInRotation);
+			startSecond = nextStarts[k];
+			endSecond = startSecond + table.getShiftWorkingSeconds(dayInRotation);
+
+			// move this team to its following instance
+			advance(k, day + 1);
+			siftDown(0);
+
+			if (!skipNonWorkingDays || !isNonWorkingDay(day)) {
+				return true;
+			}
+		}
+
+		team = null;
+		shift = null;
+		return false;
+	}
+
+	/**
+	 * Get the team working the current instance
+	 *
+	 * @return {@link Team}
+	 */
+	public Team getTeam() {
+		return team;
+	}
+
+	// position of the current instance's team in the schedule
+	int getTeamIndex() {
+		return teamIndex;
+	}
+
+	/**
+	 * Get the shift of the current instance
+	 *
+	 * @return {@link Shift}
+	 */
+	public Shift getShift() {
+		return shift;
+	}
+
+	/**
+	 * Get the start of the current instance in seconds from the epoch
+	 *
+	 * @return Starting second
+	 */
+	public long getStartSecond() {
+		return startSecond;
+	}
+
+	/**
+	 * Get the end of the current instance in seconds from the epoch
+	 *
+	 * @return Ending second
+	 */
+	public long getEndSecond() {
+		return endSecond;
+	}
+
+	/**
+	 * Get the starting date and time of day of the current instance
+	 *
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStartTime() {
+		return LocalDateTime.ofEpochSecond(startSecond, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Get the ending date and time of day of the current instance
+	 *
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getEndTime() {
+		return LocalDateTime.ofEpochSecond(endSecond, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Create a {@link ShiftInstance} for the current instance
+	 *
+	 * @return {@link ShiftInstance}
+	 */
+	public ShiftInstance toShiftInstance() {
+		return new ShiftInstance(shift, getStartTime(), team);
+	}
+
+	// find the team's first working day on or after this epoch day and the
+	// rotation start
+	private boolean advance(int k, long fromDay) {
+		Team nextTeam = teams[k];
+		RotationTable table = tables[k];
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0 || table.getWorkingSeconds() == 0) {
+			// never works
+			nextStarts[k] = Long.MAX_VALUE;
+			return false;
+		}
+
+		long day = Math.max(fromDay, nextTeam.getDayFrom());
+		int dayInRotation = table.getDayInRotation(nextTeam.getRotationDay(day));
+
+		while (table.getShiftWorkingSeconds(dayInRotation) == 0) {
+			day++;
+			dayInRotation = dayInRotation + 1 == dayCount ? 0 : dayInRotation + 1;
+		}
+
+		nextDays[k] = day;
+		nextStarts[k] = day * SECONDS_PER_DAY + table.getShiftStartSecond(dayInRotation);
+		return true;
+	}
+
+	private boolean isNonWorkingDay(long day) throws Exception {
+		if (day != checkedDay) {
+			checkedDay = day;
+			checkedNonWorking = workSchedule.isNonWorkingDay(day);
+		}
+		return checkedNonWorking;
+	}
+
+	// order by start, then by team position in the schedule
+	private boolean isBefore(int a, int b) {
+		return nextStarts[a] < nextStarts[b] || (nextStarts[a] == nextStarts[b] && a < b);
+	}
+
+	private void siftUp(int position) {
+		int k = heap[position];
+
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+
+			if (!isBefore(k, heap[parent])) {
+				break;
+			}
+			heap[position] = heap[parent];
+			position = parent;
+		}
+		heap[position] = k;
+	}
+
+	private void siftDown(int position) {
+		int k = heap[position];
+		int half = heapSize >>> 1;
+
+		while (position < half) {
+			int child = 2 * position + 1;
+			int right = child + 1;
+
+			if (right < heapSize && isBefore(heap[right], heap[child])) {
+				child = right;
+			}
+
+			if (!isBefore(heap[child], k)) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = k;
+	}
+}
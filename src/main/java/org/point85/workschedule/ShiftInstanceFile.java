@@ -0,0 +1,377 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class ShiftInstanceFile is a file of precomputed shift instances of a
+ * {@link WorkSchedule} for a range of days. Each instance is a fixed width
+ * record of its start and end in seconds from the epoch, shift index and team
+ * index, in order of start. The file is memory-mapped when opened, and the day
+ * and time queries are answered by binary search over the records with the same
+ * results as the schedule's queries. The header holds a hash of the schedule's
+ * binary encoding, so a file written for an older definition of the schedule is
+ * not opened.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class ShiftInstanceFile {
+	// "WSIF"
+	private static final int MAGIC = 0x57534946;
+
+	// current format version
+	private static final int FORMAT_VERSION = 1;
+
+	// magic, version, schedule hash, first day, last day and record count
+	private static final int HEADER_SIZE = 40;
+
+	// start and end seconds, shift index and team index
+	private static final int RECORD_SIZE = 24;
+
+	// most records that can be mapped
+	private static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	// shifts and teams by index
+	private final Shift[] shifts;
+	private final Team[] teams;
+
+	// days covered by the file
+	private final long firstDay;
+	private final long lastDay;
+
+	// mapped records
+	private final ByteBuffer records;
+	private final int recordCount;
+
+	private ShiftInstanceFile(WorkSchedule workSchedule, long firstDay, long lastDay, ByteBuffer records,
+			int recordCount) {
+		this.shifts = workSchedule.getShifts().toArray(new Shift[0]);
+		this.teams = workSchedule.getTeams().toArray(new Team[0]);
+		this.firstDay = firstDay;
+		this.lastDay = lastDay;
+		this.records = records;
+		this.recordCount = recordCount;
+	}
+
+	/**
+	 * Write the shift instances of a work schedule starting from the first day to
+	 * the last day. The instances starting on the day before the first day are
+	 * also written so that all of the first day's instances can be found.
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param first        First day
+	 * @param last         Last day
+	 * @param path         File to create or replace
+	 * @throws Exception exception
+	 */
+	public static void write(WorkSchedule workSchedule, LocalDate first, LocalDate last, Path path)
+			throws Exception {
+		if (first.isAfter(last)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), last, first);
+			throw new Exception(msg);
+		}
+
+		// check that the rotations have started
+		long firstDay = first.toEpochDay();
+		long lastDay = last.toEpochDay();
+		for (Team team : workSchedule.getTeams()) {
+			team.checkRotationStarted(firstDay);
+		}
+
+		Map<Shift, Integer> shiftIndexes = new IdentityHashMap<>();
+		for (Shift shift : workSchedule.getShifts()) {
+			shiftIndexes.put(shift, shiftIndexes.size());
+		}
+
+		long hash = hash(workSchedule);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+			// the header is rewritten with the count at the end
+			buffer.put(new byte[HEADER_SIZE]);
+			int count = 0;
+
+			ShiftInstanceCursor cursor = new ShiftInstanceCursor(workSchedule);
+			cursor.open((firstDay - 1) * RotationTable.SECONDS_PER_DAY, (lastDay + 1) * RotationTable.SECONDS_PER_DAY);
+
+			while (cursor.next()) {
+				Team team = cursor.getTeam();
+
+				// not before the team's rotation starts
+				if (Math.floorDiv(cursor.getStartSecond(), RotationTable.SECONDS_PER_DAY) < team.getRotationStart()
+						.toEpochDay()) {
+					continue;
+				}
+
+				if (count == MAX_RECORDS) {
+					String msg = MessageFormat.format(WorkSchedule.getMessage("instance.file.too.large"), MAX_RECORDS);
+					throw new Exception(msg);
+				}
+
+				if (buffer.remaining() < RECORD_SIZE) {
+					writeFully(channel, buffer, -1);
+				}
+
+				buffer.putLong(cursor.getStartSecond());
+				buffer.putLong(cursor.getEndSecond());
+				buffer.putInt(shiftIndexes.get(cursor.getShift()));
+				buffer.putInt(cursor.getTeamIndex());
+				count++;
+			}
+			writeFully(channel, buffer, -1);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(FORMAT_VERSION);
+			buffer.putLong(hash);
+			buffer.putLong(firstDay);
+			buffer.putLong(lastDay);
+			buffer.putLong(count);
+			writeFully(channel, buffer, 0);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws Exception {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			if (position < 0) {
+				channel.write(buffer);
+			} else {
+				channel.write(buffer, position + buffer.position());
+			}
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Open a file of shift instances written for this work schedule
+	 * 
+	 * @param workSchedule {@link WorkSchedule} that the file was written for
+	 * @param path         File to open
+	 * @return {@link ShiftInstanceFile}
+	 * @throws Exception if the file is not for the current definition of the
+	 *                   schedule
+	 */
+	public static ShiftInstanceFile open(WorkSchedule workSchedule, Path path) throws Exception {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new Exception(WorkSchedule.getMessage("instance.file.bad.header"));
+			}
+
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+				throw new Exception(WorkSchedule.getMessage("instance.file.bad.header"));
+			}
+
+			if (mapped.getLong(8) != hash(workSchedule)) {
+				String msg = MessageFormat.format(WorkSchedule.getMessage("instance.file.stale"), path,
+						workSchedule.getName());
+				throw new Exception(msg);
+			}
+
+			long count = mapped.getLong(32);
+
+			if (HEADER_SIZE + count * RECORD_SIZE != size) {
+				throw new Exception(WorkSchedule.getMessage("instance.file.bad.header"));
+			}
+
+			// the mapping remains valid after the channel is closed
+			mapped.position(HEADER_SIZE);
+			return new ShiftInstanceFile(workSchedule, mapped.getLong(16), mapped.getLong(24), mapped.slice(),
+					(int) count);
+		}
+	}
+
+	// FNV-1a hash of the schedule's binary encoding
+	static long hash(WorkSchedule workSchedule) throws Exception {
+		long hash = 0xcbf29ce484222325L;
+
+		for (byte b : WorkScheduleCodec.encode(workSchedule)) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Get the first day of the file
+	 * 
+	 * @return LocalDate
+	 */
+	public LocalDate getFirstDay() {
+		return LocalDate.ofEpochDay(firstDay);
+	}
+
+	/**
+	 * Get the last day of the file
+	 * 
+	 * @return LocalDate
+	 */
+	public LocalDate getLastDay() {
+		return LocalDate.ofEpochDay(lastDay);
+	}
+
+	/**
+	 * Get the number of shift instances in the file
+	 * 
+	 * @return Instance count
+	 */
+	public int getInstanceCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Get the list of shift instances for the specified date that start in that
+	 * date
+	 * 
+	 * @param day LocalDate from the first day to the last day
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForDay(LocalDate day) throws Exception {
+		long epochDay = checkDay(day);
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		long dayStart = epochDay * RotationTable.SECONDS_PER_DAY;
+		long dayEnd = dayStart + RotationTable.SECONDS_PER_DAY;
+
+		for (int i = findFirstStart(dayStart); i < recordCount && getStartSecond(i) < dayEnd; i++) {
+			workingShifts.add(toShiftInstance(i));
+		}
+		return workingShifts;
+	}
+
+	/**
+	 * Get the list of shift instances for the specified date that start in that
+	 * date or cross over from midnight the previous day
+	 * 
+	 * @param day LocalDate from the first day to the last day
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getAllShiftInstancesForDay(LocalDate day) throws Exception {
+		long epochDay = checkDay(day);
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		long dayStart = epochDay * RotationTable.SECONDS_PER_DAY;
+		long dayEnd = dayStart + RotationTable.SECONDS_PER_DAY;
+
+		// starting the previous day and ending in this day, or starting in this day
+		for (int i = findFirstStart(dayStart - RotationTable.SECONDS_PER_DAY); i < recordCount
+				&& getStartSecond(i) < dayEnd; i++) {
+			if (getStartSecond(i) >= dayStart || (getEndSecond(i) >= dayStart && getEndSecond(i) < dayEnd)) {
+				workingShifts.add(toShiftInstance(i));
+			}
+		}
+
+		Collections.sort(workingShifts);
+
+		return workingShifts;
+	}
+
+	/**
+	 * Get the list of shift instances for the specified date and time of day
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForTime(LocalDateTime dateTime) throws Exception {
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		for (ShiftInstance instance : getAllShiftInstancesForDay(dateTime.toLocalDate())) {
+			if (instance.isInShiftInstance(dateTime)) {
+				workingShifts.add(instance);
+			}
+		}
+
+		return workingShifts;
+	}
+
+	private long checkDay(LocalDate day) throws Exception {
+		long epochDay = day.toEpochDay();
+
+		if (epochDay < firstDay || epochDay > lastDay) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("instance.file.out.of.range"), day,
+					getFirstDay(), getLastDay());
+			throw new Exception(msg);
+		}
+		return epochDay;
+	}
+
+	// index of the first record starting at or after this second
+	private int findFirstStart(long second) {
+		int low = 0;
+		int high = recordCount;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (getStartSecond(mid) < second) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private long getStartSecond(int i) {
+		return records.getLong(i * RECORD_SIZE);
+	}
+
+	private long getEndSecond(int i) {
+		return records.getLong(i * RECORD_SIZE + 8);
+	}
+
+	private ShiftInstance toShiftInstance(int i) {
+		int offset = i * RECORD_SIZE;
+		Shift shift = shifts[records.getInt(offset + 16)];
+		Team team = teams[records.getInt(offset + 20)];
+		LocalDateTime start = LocalDateTime.ofEpochSecond(getStartSecond(i), 0, ZoneOffset.UTC);
+		return new ShiftInstance(shift, start, team);
+	}
+}
@@ -29,12 +29,14 @@ import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class Team is a named group of individuals who rotate through a shift
@@ -44,6 +46,8 @@ import java.util.Objects;
  *
  */
 public class Team extends Named implements Comparable<Team> {
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
 	// owning work schedule
 	private WorkSchedule workSchedule;
 
@@ -57,10 +61,11 @@ public class Team extends Named implements Comparable<Team> {
 	private List<TeamMember> assignedMembers = new ArrayList<>();
 
 	// member exceptions
-	private List<TeamMemberException> memberExceptions = new ArrayList<>();
+	private final CountingList<TeamMemberException> memberExceptions = new CountingList<>(this);
 
-	// team member exception cache by shift instance start
-	private Map<LocalDateTime, TeamMemberException> exceptionCache;
+	// immutable snapshot of the member exceptions by shift instance start, replaced
+	// as a whole so that it can be read without locking
+	private volatile ExceptionCache exceptionCache = new ExceptionCache(new ConcurrentHashMap<>(), 0);
 
 	/**
 	 * Default constructor
@@ -90,13 +95,23 @@ public class Team extends Named implements Comparable<Team> {
 	 * @param rotationStart Starting date of rotation
 	 */
 	public void setRotationStart(LocalDate rotationStart) {
+		checkModifiable();
 		this.rotationStart = rotationStart;
+
+		if (workSchedule != null) {
+			workSchedule.scheduleChanged();
+		}
 	}
 
-	private long getDayFrom() {
+	long getDayFrom() {
 		return rotationStart.toEpochDay();
 	}
 
+	// days from the start of the rotation to this epoch day
+	long getRotationDay(long epochDay) {
+		return epochDay - getDayFrom();
+	}
+
 	/**
 	 * Get the shift rotation for this team
 	 * 
@@ -112,7 +127,12 @@ public class Team extends Named implements Comparable<Team> {
 	 * @param rotation {@link Rotation}
 	 */
 	public void setRotation(Rotation rotation) {
+		checkModifiable();
 		this.rotation = rotation;
+
+		if (workSchedule != null) {
+			workSchedule.scheduleChanged();
+		}
 	}
 
 	/**
@@ -165,7 +185,7 @@ public class Team extends Named implements Comparable<Team> {
 			throw new Exception(msg);
 		}
 
-		return (int) (deltaDays % getRotation().getDuration().toDays()) + 1;
+		return (int) (deltaDays % getRotation().getDayCount()) + 1;
 	}
 
 	/**
@@ -176,26 +196,15 @@ public class Team extends Named implements Comparable<Team> {
 	 * @throws Exception exception
 	 */
 	public ShiftInstance getShiftInstanceForDay(LocalDate day) throws Exception {
-		ShiftInstance instance = null;
-
-		Rotation shiftRotation = getRotation();
-
-		if (shiftRotation.getDuration().equals(Duration.ZERO)) {
+		if (getRotation().getTable().getDayCount() == 0) {
 			// no instance for that day
-			return instance;
+			return null;
 		}
 
-		int dayInRotation = getDayInRotation(day);
-
-		// shift or off shift
-		TimePeriod period = shiftRotation.getPeriods().get(dayInRotation - 1);
-
-		if (period.isWorkingPeriod()) {
-			LocalDateTime startDateTime = LocalDateTime.of(day, period.getStart());
-			instance = new ShiftInstance((Shift) period, startDateTime, this);
-		}
+		// the rotation must have started
+		getDayInRotation(day);
 
-		return instance;
+		return findShiftInstanceForDay(day);
 	}
 
 	/**
@@ -206,21 +215,53 @@ public class Team extends Named implements Comparable<Team> {
 	 * @throws Exception Exception
 	 */
 	public boolean isDayOff(LocalDate day) throws Exception {
+		// the rotation must have started
+		getDayInRotation(day);
 
-		boolean dayOff = false;
-
-		Rotation shiftRotation = getRotation();
-		int dayInRotation = getDayInRotation(day);
+		return findShiftForDay(day) == null;
+	}
 
-		// shift or off shift
-		TimePeriod period = shiftRotation.getPeriods().get(dayInRotation - 1);
+	/**
+	 * Get the day number in the rotation for this local date without checking the
+	 * rotation start. A date before the start of the rotation is counted backwards
+	 * through the earlier cycles.
+	 * 
+	 * @param date LocalDate
+	 * @return day number in the rotation starting at 1, or 0 if the rotation has
+	 *         no days
+	 */
+	public int findDayInRotation(LocalDate date) {
+		RotationTable table = getRotation().getTable();
 
-		if (!period.isWorkingPeriod()) {
-			dayOff = true;
+		if (table.getDayCount() == 0) {
+			return 0;
 		}
+		return table.getDayInRotation(getRotationDay(date.toEpochDay())) + 1;
+	}
 
-		return dayOff;
+	/**
+	 * Get the shift worked by this team on the specified day without checking the
+	 * rotation start
+	 * 
+	 * @param day LocalDate
+	 * @return {@link Shift}, or null if a day off or the rotation has no days
+	 */
+	public Shift findShiftForDay(LocalDate day) {
+		int dayInRotation = findDayInRotation(day);
+		return dayInRotation > 0 ? getRotation().getTable().getShift(dayInRotation - 1) : null;
+	}
 
+	/**
+	 * Get the {@link ShiftInstance} for the specified day without checking the
+	 * rotation start
+	 * 
+	 * @param day LocalDate
+	 * @return {@link ShiftInstance}, or null if a day off or the rotation has no
+	 *         days
+	 */
+	public ShiftInstance findShiftInstanceForDay(LocalDate day) {
+		Shift shift = findShiftForDay(day);
+		return shift != null ? new ShiftInstance(shift, LocalDateTime.of(day, shift.getStart()), this) : null;
 	}
 
 	/**
@@ -232,81 +273,303 @@ public class Team extends Named implements Comparable<Team> {
 	 * @throws Exception exception
 	 */
 	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		ScheduleMetricsListener listener = workSchedule != null ? workSchedule.getMetricsListener() : null;
+
+		if (listener == null) {
+			return computeWorkingTime(from, to);
+		}
+
+		long start = System.nanoTime();
+		Duration workingTime = computeWorkingTime(from, to);
+		listener.queryCompleted(ScheduleMetricsListener.Query.TEAM_WORKING_TIME, System.nanoTime() - start, 0);
+		return workingTime;
+	}
+
+	// the working time without reporting the query
+	Duration computeWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		return Duration.ofSeconds(workingSecondsBetween(toRoundedSecond(from), toRoundedSecond(to)));
+	}
+
+	/**
+	 * Calculate the schedule working seconds between the specified seconds from
+	 * the epoch. Local date and time are counted as UTC seconds, and no java.time
+	 * objects are created.
+	 * 
+	 * @param fromEpochSecond Starting second
+	 * @param toEpochSecond   Ending second
+	 * @return Working seconds
+	 * @throws Exception exception
+	 */
+	public long workingSecondsBetween(long fromEpochSecond, long toEpochSecond) throws Exception {
+		return workingSecondsBetween(fromEpochSecond, toEpochSecond, false);
+	}
+
+	/**
+	 * Calculate the schedule working time less the shift breaks between the
+	 * specified dates and times
+	 * 
+	 * @param from Starting date and time of day
+	 * @param to   Ending date and time of day
+	 * @return Duration of working time net of breaks
+	 * @throws Exception exception
+	 */
+	public Duration calculateNetWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
 		if (from.isAfter(to)) {
 			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
 			throw new Exception(msg);
 		}
 
-		Duration sum = Duration.ZERO;
+		return Duration.ofSeconds(netWorkingSecondsBetween(toRoundedSecond(from), toRoundedSecond(to)));
+	}
 
-		LocalDate thisDate = from.toLocalDate();
-		LocalTime thisTime = from.toLocalTime();
-		LocalDate toDate = to.toLocalDate();
-		LocalTime toTime = to.toLocalTime();
-		int dayCount = getRotation().getDayCount();
+	/**
+	 * Calculate the schedule working seconds less the shift breaks between the
+	 * specified seconds from the epoch. No java.time objects are created.
+	 * 
+	 * @param fromEpochSecond Starting second
+	 * @param toEpochSecond   Ending second
+	 * @return Working seconds net of breaks
+	 * @throws Exception exception
+	 */
+	public long netWorkingSecondsBetween(long fromEpochSecond, long toEpochSecond) throws Exception {
+		return workingSecondsBetween(fromEpochSecond, toEpochSecond, true);
+	}
 
-		// get the working shift from yesterday
-		Shift lastShift = null;
+	private long workingSecondsBetween(long fromEpochSecond, long toEpochSecond, boolean net) throws Exception {
+		if (fromEpochSecond > toEpochSecond) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"),
+					toLocalDateTime(toEpochSecond), toLocalDateTime(fromEpochSecond));
+			throw new Exception(msg);
+		}
 
-		LocalDate yesterday = thisDate.minusDays(1);
-		ShiftInstance yesterdayInstance = getShiftInstanceForDay(yesterday);
+		// check that the rotation has started
+		checkRotationStarted(Math.floorDiv(fromEpochSecond, SECONDS_PER_DAY));
 
-		if (yesterdayInstance != null) {
-			lastShift = yesterdayInstance.getShift();
+		return getWorkingSeconds(fromEpochSecond, toEpochSecond, net);
+	}
+
+	/**
+	 * Check to see if a shift instance of this team is in progress at the
+	 * specified second from the epoch. The start and end of the instance are both
+	 * included. No java.time objects are created.
+	 * 
+	 * @param epochSecond Second from the epoch
+	 * @return True if on shift
+	 * @throws Exception exception
+	 */
+	public boolean isOnShiftAt(long epochSecond) throws Exception {
+		return isOnShiftAt(epochSecond, false, false);
+	}
+
+	// optionally ignore the instances starting on the day of the second or the day
+	// before
+	boolean isOnShiftAt(long epochSecond, boolean skipToday, boolean skipYesterday) throws Exception {
+		long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+		checkRotationStarted(epochDay);
+
+		RotationTable table = getRotation().getTable();
+
+		if (table.getDayCount() == 0) {
+			return false;
 		}
 
-		// step through each day until done
-		while (thisDate.compareTo(toDate) < 1) {
-			if (lastShift != null && lastShift.spansMidnight()) {
-				// check for days in the middle of the time period
-				boolean lastDay = thisDate.compareTo(toDate) == 0;
+		long rotationDay = getRotationDay(epochDay);
+		long rotationSecond = epochSecond - getDayFrom() * SECONDS_PER_DAY;
 
-				if (!lastDay || (lastDay && !toTime.equals(LocalTime.MIDNIGHT))) {
-					// add time after midnight in this day
-					int afterMidnightSecond = lastShift.getEnd().toSecondOfDay();
-					int fromSecond = thisTime.toSecondOfDay();
+		return (!skipToday && table.isInShift(rotationDay, rotationSecond))
+				|| (!skipYesterday && table.isInShift(rotationDay - 1, rotationSecond));
+	}
 
-					if (afterMidnightSecond > fromSecond) {
-						sum = sum.plusSeconds((long) afterMidnightSecond - (long) fromSecond);
-					}
-				}
-			}
+	/**
+	 * Find the start of this team's first shift instance starting after the
+	 * specified date and time. Days off are skipped using the rotation table
+	 * without probing each day.
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Starting date and time, or null if the team never works
+	 */
+	public LocalDateTime nextShiftStart(LocalDateTime dateTime) {
+		return toBoundary(findShiftBoundary(toRoundedSecond(dateTime), true, false, null));
+	}
 
-			// today's shift
-			ShiftInstance instance = getShiftInstanceForDay(thisDate);
+	/**
+	 * Find the end of this team's first shift instance ending after the specified
+	 * date and time
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Ending date and time, or null if the team never works
+	 */
+	public LocalDateTime nextShiftEnd(LocalDateTime dateTime) {
+		return toBoundary(findShiftBoundary(toRoundedSecond(dateTime), true, true, null));
+	}
 
-			Duration duration = null;
+	/**
+	 * Find the start of this team's last shift instance starting before the
+	 * specified date and time
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Starting date and time, or null if there is none since the start of
+	 *         the rotation
+	 */
+	public LocalDateTime previousShiftStart(LocalDateTime dateTime) {
+		return toBoundary(findShiftBoundary(toRoundedSecond(dateTime), false, false, null));
+	}
 
-			if (instance != null) {
-				lastShift = instance.getShift();
-				// check for last date
-				if (thisDate.compareTo(toDate) == 0) {
-					duration = lastShift.calculateWorkingTime(thisTime, toTime, true);
-				} else {
-					duration = lastShift.calculateWorkingTime(thisTime, LocalTime.MAX, true);
+	/**
+	 * Find the end of this team's last shift instance ending before the specified
+	 * date and time
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Ending date and time, or null if there is none since the start of
+	 *         the rotation
+	 */
+	public LocalDateTime previousShiftEnd(LocalDateTime dateTime) {
+		return toBoundary(findShiftBoundary(toRoundedSecond(dateTime), false, true, null));
+	}
+
+	// date and time of a boundary second, null if not found
+	static LocalDateTime toBoundary(long epochSecond) {
+		return (epochSecond == Long.MAX_VALUE || epochSecond == Long.MIN_VALUE) ? null : toLocalDateTime(epochSecond);
+	}
+
+	/**
+	 * Find the first instance start or end after, or the last one before, the
+	 * specified second. Instances starting before the rotation start or in a
+	 * non-working period of the index are skipped.
+	 * 
+	 * @param epochSecond       Second from the epoch
+	 * @param next              True for after the second, false for before
+	 * @param end               True for the instance end, false for its start
+	 * @param nonWorkingPeriods Non-working periods to skip, or null
+	 * @return Second from the epoch, or Long.MAX_VALUE (next) or Long.MIN_VALUE
+	 *         (previous) if there is none
+	 */
+	long findShiftBoundary(long epochSecond, boolean next, boolean end, NonWorkingPeriodIndex nonWorkingPeriods) {
+		RotationTable table = getRotation().getTable();
+		long none = next ? Long.MAX_VALUE : Long.MIN_VALUE;
+
+		if (table.getDayCount() == 0) {
+			return none;
+		}
+
+		long origin = getDayFrom() * SECONDS_PER_DAY;
+		long rotationSecond = epochSecond - origin;
+		long rotationDay = Math.floorDiv(rotationSecond, SECONDS_PER_DAY);
+		long found = none;
+
+		if (next) {
+			// an instance starting the day before may end after the second
+			long day = findInstanceDay(table, end ? rotationDay - 1 : rotationDay, true, nonWorkingPeriods);
+
+			// later instances start after the best one found so far
+			while (day != Long.MAX_VALUE && day * SECONDS_PER_DAY < found) {
+				long boundary = getBoundary(table, day, end);
+
+				if (boundary > rotationSecond && boundary < found) {
+					found = boundary;
 				}
-				sum = sum.plus(duration);
-			} else {
-				lastShift = null;
+				day = findInstanceDay(table, day + 1, true, nonWorkingPeriods);
 			}
+		} else {
+			long day = findInstanceDay(table, rotationDay, false, nonWorkingPeriods);
 
-			int n = 1;
-			if (getDayInRotation(thisDate) == dayCount) {
-				// move ahead by the rotation count if possible
-				LocalDate rotationEndDate = thisDate.plusDays(dayCount);
+			// earlier instances end before the next day after they start
+			while (day != Long.MIN_VALUE && (end ? (day + 2) : (day + 1)) * SECONDS_PER_DAY > found) {
+				long boundary = getBoundary(table, day, end);
 
-				if (rotationEndDate.compareTo(toDate) < 0) {
-					n = dayCount;
-					sum = sum.plus(getRotation().getWorkingTime());
+				if (boundary < rotationSecond && boundary > found) {
+					found = boundary;
 				}
+				day = findInstanceDay(table, day - 1, false, nonWorkingPeriods);
 			}
+		}
+		return found == none ? none : found + origin;
+	}
+
+	// start or end of the instance starting on this rotation day
+	private static long getBoundary(RotationTable table, long rotationDay, boolean end) {
+		int dayInRotation = table.getDayInRotation(rotationDay);
+		long start = rotationDay * SECONDS_PER_DAY + table.getShiftStartSecond(dayInRotation);
+		return end ? start + table.getShiftWorkingSeconds(dayInRotation) : start;
+	}
+
+	// first (next) or last (previous) rotation working day from this day that is
+	// not a non-working day, jumping over days off and non-working periods
+	private long findInstanceDay(RotationTable table, long rotationDay, boolean next,
+			NonWorkingPeriodIndex nonWorkingPeriods) {
+		long day = next ? Math.max(rotationDay, 0) : rotationDay;
+
+		while (true) {
+			day = next ? table.nextWorkingDay(day) : table.previousWorkingDay(day);
+
+			if (day == Long.MAX_VALUE || day < 0) {
+				// never works or before the start of the rotation
+				return next ? Long.MAX_VALUE : Long.MIN_VALUE;
+			}
+
+			if (nonWorkingPeriods == null) {
+				return day;
+			}
+
+			long epochDay = getDayFrom() + day;
+			long workingDay = next ? nonWorkingPeriods.nextWorkingDay(epochDay)
+					: nonWorkingPeriods.previousWorkingDay(epochDay);
+
+			if (workingDay == epochDay) {
+				return day;
+			}
+			day = workingDay - getDayFrom();
+		}
+	}
+
+	// the rotation must start on or before this epoch day
+	void checkRotationStarted(long epochDay) throws Exception {
+		if (epochDay < getDayFrom()) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), rotationStart,
+					LocalDate.ofEpochDay(epochDay));
+			throw new Exception(msg);
+		}
+	}
+
+	private static LocalDateTime toLocalDateTime(long epochSecond) {
+		return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+	}
 
-			// move ahead n days starting at midnight
-			thisDate = thisDate.plusDays(n);
-			thisTime = LocalTime.MIDNIGHT;
-		} // end day loop
+	// date and time in seconds from the epoch, rounded to the nearest second
+	static long toRoundedSecond(LocalDateTime dateTime) {
+		long second = dateTime.toLocalDate().toEpochDay() * SECONDS_PER_DAY + dateTime.toLocalTime().toSecondOfDay();
 
-		return sum;
+		if (dateTime.getNano() > 500E+06) {
+			second++;
+		}
+		return second;
+	}
+
+	/**
+	 * Calculate the working seconds of this team's shift instances between the
+	 * specified seconds from the epoch, without checking that the rotation has
+	 * started
+	 * 
+	 * @param fromSecond Starting second from the epoch
+	 * @param toSecond   Ending second from the epoch
+	 * @param net        True to remove the shift breaks
+	 * @return Working seconds
+	 */
+	long getWorkingSeconds(long fromSecond, long toSecond, boolean net) {
+		RotationTable table = getRotation().getTable();
+		long origin = getDayFrom() * SECONDS_PER_DAY;
+
+		if (net) {
+			return table.getCumulativeNetWorkingSeconds(toSecond - origin)
+					- table.getCumulativeNetWorkingSeconds(fromSecond - origin);
+		}
+		return table.getCumulativeWorkingSeconds(toSecond - origin)
+				- table.getCumulativeWorkingSeconds(fromSecond - origin);
 	}
 
 	/**
@@ -393,7 +656,7 @@ public class Team extends Named implements Comparable<Team> {
 	}
 
 	public List<TeamMember> getAssignedMembers() {
-		return assignedMembers;
+		return isReadOnly() ? Collections.unmodifiableList(assignedMembers) : assignedMembers;
 	}
 
 	/**
@@ -402,6 +665,8 @@ public class Team extends Named implements Comparable<Team> {
 	 * @param member {@link TeamMember}
 	 */
 	public void addMember(TeamMember member) {
+		checkModifiable();
+
 		if (!this.assignedMembers.contains(member)) {
 			this.assignedMembers.add(member);
 		}
@@ -413,6 +678,8 @@ public class Team extends Named implements Comparable<Team> {
 	 * @param member {@link TeamMember}
 	 */
 	public void removeMember(TeamMember member) {
+		checkModifiable();
+
 		if (this.assignedMembers.contains(member)) {
 			this.assignedMembers.remove(member);
 		}
@@ -427,20 +694,30 @@ public class Team extends Named implements Comparable<Team> {
 		return this.assignedMembers.contains(member);
 	}
 
+	/**
+	 * Get the member exceptions. The list can be changed directly unless the team
+	 * is read-only.
+	 * 
+	 * @return List of {@link TeamMemberException}
+	 */
 	public List<TeamMemberException> getMemberExceptions() {
-		return memberExceptions;
+		return isReadOnly() ? Collections.unmodifiableList(memberExceptions) : memberExceptions;
 	}
 
 	/**
-	 * Add a member exception for this team
+	 * Add a member exception for this team. More than one exception can be added
+	 * for the same shift instance.
 	 * 
 	 * @param memberException {@link TeamMemberException}
 	 */
-	public void addMemberException(TeamMemberException memberException) {
+	public synchronized void addMemberException(TeamMemberException memberException) {
+		checkModifiable();
+		ExceptionCache cache = currentExceptionCache();
 		this.memberExceptions.add(memberException);
 
-		// invalidate cache
-		this.exceptionCache = null;
+		if (cache != null) {
+			cache.put(memberException, memberExceptions.getModificationCount());
+		}
 	}
 
 	/**
@@ -448,11 +725,36 @@ public class Team extends Named implements Comparable<Team> {
 	 * 
 	 * @param memberException {@link TeamMemberException}
 	 */
-	public void removeMemberException(TeamMemberException memberException) {
-		this.memberExceptions.remove(memberException);
+	public synchronized void removeMemberException(TeamMemberException memberException) {
+		checkModifiable();
+		ExceptionCache cache = currentExceptionCache();
 
-		// invalidate cache
-		this.exceptionCache = null;
+		if (this.memberExceptions.remove(memberException) && cache != null) {
+			cache.remove(memberException, memberExceptions.getModificationCount());
+		}
+	}
+
+	// the exception cache if it is up to date with the exception list, else null
+	private ExceptionCache currentExceptionCache() {
+		ExceptionCache cache = exceptionCache;
+		return cache.modificationCount == memberExceptions.getModificationCount() ? cache : null;
+	}
+
+	@Override
+	void setReadOnly() {
+		super.setReadOnly();
+
+		for (TeamMemberException memberException : memberExceptions) {
+			memberException.setReadOnly();
+		}
+	}
+
+	// number of members working the shift instance starting at this second
+	int getMemberCount(long startSecond) {
+		if (getExceptionCache(false).exceptions.isEmpty()) {
+			return assignedMembers.size();
+		}
+		return buildMembers(toLocalDateTime(startSecond)).size();
 	}
 
 	/**
@@ -462,39 +764,125 @@ public class Team extends Named implements Comparable<Team> {
 	 * @return List of {@link TeamMember}
 	 */
 	public List<TeamMember> getMembers(LocalDateTime shiftStart) {
-		List<TeamMember> members = new ArrayList<>();
+		ScheduleMetricsListener listener = workSchedule != null ? workSchedule.getMetricsListener() : null;
 
-		// build the cache if not already done
-		buildMemberCache();
+		if (listener == null) {
+			return buildMembers(shiftStart);
+		}
+
+		long start = System.nanoTime();
+		List<TeamMember> members = buildMembers(shiftStart);
+		listener.queryCompleted(ScheduleMetricsListener.Query.TEAM_MEMBERS, System.nanoTime() - start,
+				members.size());
+		return members;
+	}
+
+	private List<TeamMember> buildMembers(LocalDateTime shiftStart) {
+		ExceptionCache cache = getExceptionCache(true);
 
 		// assigned to the team
-		for (TeamMember member : getAssignedMembers()) {
-			members.add(member);
-		}
+		List<TeamMember> members = new ArrayList<>(getAssignedMembers());
 
 		// any exceptions?
-		TeamMemberException tme = exceptionCache.get(shiftStart);
-		if (tme != null) {
-			if (tme.getAddition() != null) {
-				members.add(tme.getAddition());
-			}
+		List<TeamMemberException> exceptions = shiftStart != null ? cache.exceptions.get(shiftStart) : null;
+
+		if (exceptions != null) {
+			for (TeamMemberException tme : exceptions) {
+				if (tme.getAddition() != null) {
+					members.add(tme.getAddition());
+				}
 
-			if (tme.getRemoval() != null) {
-				members.remove(tme.getRemoval());
+				if (tme.getRemoval() != null) {
+					members.remove(tme.getRemoval());
+				}
 			}
 		}
 		return members;
 	}
 
-	private synchronized void buildMemberCache() {
-		if (exceptionCache == null) {
-			exceptionCache = new HashMap<>();
-		} else {
-			exceptionCache.clear();
+	private void memberCacheAccessed(ScheduleMetricsListener.CacheEvent event) {
+		if (workSchedule != null) {
+			workSchedule.cacheAccessed(ScheduleMetricsListener.Cache.MEMBER_EXCEPTIONS, event);
 		}
+	}
+
+	// the exception cache, rebuilt if the exceptions have been changed
+	private ExceptionCache getExceptionCache(boolean report) {
+		ExceptionCache cache = exceptionCache;
+
+		if (cache.modificationCount != memberExceptions.getModificationCount()) {
+			cache = buildExceptionCache();
 
-		for (TeamMemberException tme : getMemberExceptions()) {
-			exceptionCache.put(tme.getDateTime(), tme);
+			if (report) {
+				memberCacheAccessed(ScheduleMetricsListener.CacheEvent.REBUILD);
+			}
+		} else if (report) {
+			memberCacheAccessed(ScheduleMetricsListener.CacheEvent.HIT);
+		}
+		return cache;
+	}
+
+	private synchronized ExceptionCache buildExceptionCache() {
+		long modificationCount = memberExceptions.getModificationCount();
+		ExceptionCache cache = exceptionCache;
+
+		// another thread may have rebuilt it
+		if (cache.modificationCount == modificationCount) {
+			return cache;
+		}
+
+		Map<LocalDateTime, List<TeamMemberException>> exceptions = new HashMap<>();
+
+		for (TeamMemberException tme : memberExceptions) {
+			if (tme.getDateTime() != null) {
+				exceptions.computeIfAbsent(tme.getDateTime(), start -> new ArrayList<>(1)).add(tme);
+			}
+		}
+
+		Map<LocalDateTime, List<TeamMemberException>> byStart = new ConcurrentHashMap<>(exceptions.size());
+
+		for (Map.Entry<LocalDateTime, List<TeamMemberException>> entry : exceptions.entrySet()) {
+			byStart.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+		}
+
+		cache = new ExceptionCache(byStart, modificationCount);
+		exceptionCache = cache;
+		return cache;
+	}
+
+	// member exceptions by shift instance start at a modification count of the
+	// exception list. Exceptions added or removed through the team replace only
+	// the list of their shift instance start, readers see either the old or the
+	// new list.
+	private static final class ExceptionCache {
+		private final Map<LocalDateTime, List<TeamMemberException>> exceptions;
+		private volatile long modificationCount;
+
+		private ExceptionCache(Map<LocalDateTime, List<TeamMemberException>> exceptions, long modificationCount) {
+			this.exceptions = exceptions;
+			this.modificationCount = modificationCount;
+		}
+
+		private void put(TeamMemberException tme, long modificationCount) {
+			if (tme.getDateTime() != null) {
+				exceptions.compute(tme.getDateTime(), (start, list) -> {
+					List<TeamMemberException> copy = list != null ? new ArrayList<>(list) : new ArrayList<>(1);
+					copy.add(tme);
+					return Collections.unmodifiableList(copy);
+				});
+			}
+			this.modificationCount = modificationCount;
+		}
+
+		private void remove(TeamMemberException tme, long modificationCount) {
+			if (tme.getDateTime() != null) {
+				exceptions.computeIfPresent(tme.getDateTime(), (start, list) -> {
+					List<TeamMemberException> copy = new ArrayList<>(list);
+					copy.remove(tme);
+					return copy.isEmpty() ? null : Collections.unmodifiableList(copy);
+				});
+			}
+			this.modificationCount = modificationCount;
 		}
 	}
 }
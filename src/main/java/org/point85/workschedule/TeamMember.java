@@ -99,6 +99,7 @@ public class TeamMember extends Named implements Comparable<TeamMember> {
 	}
 
 	public void setMemberID(String memberID) {
+		checkModifiable();
 		this.memberID = memberID;
 	}
 
@@ -1,5 +1,6 @@
 package org.point85.workschedule;
 
+import java.text.MessageFormat;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -21,6 +22,9 @@ public class TeamMemberException {
 	// team member to remove
 	private TeamMember removal;
 
+	// set for the copies held by a compiled work schedule
+	private boolean readOnly = false;
+
 	/*
 	 * Construct an exception for the shift instance at this starting date and time
 	 */
@@ -37,6 +41,7 @@ public class TeamMemberException {
 	}
 
 	public void setReason(String reason) {
+		checkModifiable();
 		this.reason = reason;
 	}
 
@@ -45,6 +50,7 @@ public class TeamMemberException {
 	}
 
 	public void setAddition(TeamMember addition) {
+		checkModifiable();
 		this.addition = addition;
 	}
 
@@ -53,9 +59,31 @@ public class TeamMemberException {
 	}
 
 	public void setRemoval(TeamMember removal) {
+		checkModifiable();
 		this.removal = removal;
 	}
 
+	/**
+	 * Check to see if this exception is a read-only copy in a
+	 * {@link CompiledWorkSchedule}
+	 * 
+	 * @return True if it cannot be changed
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	void setReadOnly() {
+		this.readOnly = true;
+	}
+
+	private void checkModifiable() {
+		if (readOnly) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("read.only"), dateTime);
+			throw new UnsupportedOperationException(msg);
+		}
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
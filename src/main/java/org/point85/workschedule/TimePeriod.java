@@ -43,6 +43,17 @@ abstract class TimePeriod extends Named {
 	// length of time period
 	private Duration duration;
 
+	// start (rounded) and end second of day, and duration in seconds, kept with
+	// the start and duration
+	private int startSecond;
+	private int endSecond;
+	private long durationSeconds;
+	private boolean spansMidnight;
+
+	// changed whenever this period's start or duration is changed so that tables
+	// derived from the period can be rebuilt
+	private volatile long modificationCount;
+
 	protected TimePeriod() {
 		super();
 	}
@@ -69,6 +80,8 @@ abstract class TimePeriod extends Named {
 	 * @throws Exception exception
 	 */
 	public void setDuration(Duration duration) throws Exception {
+		checkModifiable();
+
 		if (duration == null || duration.getSeconds() == 0) {
 			throw new Exception(WorkSchedule.getMessage("duration.not.defined"));
 		}
@@ -77,6 +90,8 @@ abstract class TimePeriod extends Named {
 			throw new Exception(WorkSchedule.getMessage("duration.not.allowed"));
 		}
 		this.duration = duration;
+		computeSeconds();
+		periodChanged();
 	}
 
 	/**
@@ -95,10 +110,60 @@ abstract class TimePeriod extends Named {
 	 * @throws Exception exception
 	 */
 	public void setStart(LocalTime startTime) throws Exception {
+		checkModifiable();
+
 		if (startTime == null) {
 			throw new Exception(WorkSchedule.getMessage("start.not.defined"));
 		}
 		this.startTime = startTime;
+		computeSeconds();
+		periodChanged();
+	}
+
+	private void computeSeconds() {
+		if (startTime == null || duration == null) {
+			return;
+		}
+
+		int second = startTime.toSecondOfDay();
+		durationSeconds = duration.getSeconds();
+		endSecond = (int) ((second + durationSeconds) % SECONDS_PER_DAY);
+
+		if (startTime.getNano() > 500E+06) {
+			second++;
+		}
+		startSecond = second;
+		spansMidnight = endSecond <= startSecond;
+	}
+
+	// starting second of day, rounded to the nearest second
+	int getStartSecond() {
+		return startSecond;
+	}
+
+	// ending second of day
+	int getEndSecond() {
+		return endSecond;
+	}
+
+	// duration in seconds
+	long getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	// true if the period ends on or before its start of day
+	boolean isSpanningMidnight() {
+		return spansMidnight;
+	}
+
+	// number of changes to the start and duration
+	long getModificationCount() {
+		return modificationCount;
+	}
+
+	// the start or duration changed
+	void periodChanged() {
+		modificationCount++;
 	}
 
 	/**
@@ -24,18 +24,20 @@ SOFTWARE.
 
 package org.point85.workschedule;
 
-import java.text.DecimalFormat;
 import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Class WorkSchedule represents a named group of teams who collectively work
@@ -52,9 +54,6 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	// resource bundle for exception messages
 	private static final ResourceBundle messages = ResourceBundle.getBundle(MESSAGES_BUNDLE_NAME, Locale.getDefault());
 
-	// cached UTC time zone for working time calculations
-	private static final ZoneId ZONE_ID = ZoneId.of("Z");
-
 	// list of teams
 	private List<Team> teams = new ArrayList<>();
 
@@ -65,7 +64,23 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	private List<Rotation> rotations = new ArrayList<>();
 
 	// holidays and planned down time
-	private List<NonWorkingPeriod> nonWorkingPeriods = new ArrayList<>();
+	private final CountingList<NonWorkingPeriod> nonWorkingPeriods = new CountingList<>(this);
+
+	// non-working periods sorted for searching
+	private NonWorkingPeriodIndex nonWorkingPeriodIndex = new NonWorkingPeriodIndex();
+
+	// modification count of the non-working period list when indexed, or -1 if a
+	// period has been changed after indexing
+	private long indexedPeriodCount = 0;
+
+	// changed when teams, shifts, rotations or non-working periods change
+	private volatile long modificationCount = 0;
+
+	// optional cache of shift instances by day
+	private volatile ShiftInstanceCache shiftInstanceCache;
+
+	// optional receiver of query timings and cache use
+	private volatile ScheduleMetricsListener metricsListener;
 
 	// optimistic locking version
 	private Integer version;
@@ -93,6 +108,11 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		return messages.getString(key);
 	}
 
+	// messages for a locale other than the default
+	static ResourceBundle getMessages(Locale locale) {
+		return ResourceBundle.getBundle(MESSAGES_BUNDLE_NAME, locale);
+	}
+
 	/**
 	 * Remove this team from the schedule
 	 * 
@@ -101,6 +121,7 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	public void deleteTeam(Team team) {
 		if (teams.contains(team)) {
 			teams.remove(team);
+			scheduleChanged();
 		}
 	}
 
@@ -119,13 +140,23 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 * @param period {@link NonWorkingPeriod}
 	 */
 	public void deleteNonWorkingPeriod(NonWorkingPeriod period) {
-		if (this.nonWorkingPeriods.contains(period)) {
-			this.nonWorkingPeriods.remove(period);
+		int position = this.nonWorkingPeriods.indexOf(period);
+
+		if (position >= 0) {
+			boolean indexed = indexedPeriodCount == nonWorkingPeriods.getModificationCount();
+			NonWorkingPeriod removed = this.nonWorkingPeriods.remove(position);
+
+			if (indexed) {
+				nonWorkingPeriodIndex.remove(removed);
+				indexedPeriodCount = nonWorkingPeriods.getModificationCount();
+			}
+			scheduleChanged();
 		}
 	}
 
 	/**
-	 * Get all non-working periods in the schedule
+	 * Get all non-working periods in the schedule. The list can be changed
+	 * directly.
 	 * 
 	 * @return List of {@link NonWorkingPeriod}
 	 */
@@ -133,6 +164,129 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		return this.nonWorkingPeriods;
 	}
 
+	// mark the non-working period index for rebuilding
+	void invalidateNonWorkingPeriods() {
+		indexedPeriodCount = -1;
+		scheduleChanged();
+	}
+
+	// a team, shift, rotation or non-working period has changed
+	void scheduleChanged() {
+		modificationCount++;
+	}
+
+	/**
+	 * Set the number of per-day shift instance lists to keep in a least recently
+	 * used cache. While the cache is enabled, the lists returned by
+	 * {@link #getShiftInstancesForDay(LocalDate)} and
+	 * {@link #getAllShiftInstancesForDay(LocalDate)} cannot be modified. The
+	 * cache is cleared whenever a team, shift, rotation or non-working period is
+	 * changed.
+	 * 
+	 * @param maximumSize Maximum number of cached lists, or 0 to disable the
+	 *                    cache
+	 */
+	public void setShiftInstanceCacheSize(int maximumSize) {
+		shiftInstanceCache = maximumSize > 0 ? new ShiftInstanceCache(maximumSize) : null;
+	}
+
+	/**
+	 * Get the shift instance cache for its size and hit and miss counts
+	 * 
+	 * @return {@link ShiftInstanceCache}, or null if not enabled
+	 */
+	public ShiftInstanceCache getShiftInstanceCache() {
+		return shiftInstanceCache;
+	}
+
+	/**
+	 * Set a listener for the timing of queries and the use of caches
+	 * 
+	 * @param listener {@link ScheduleMetricsListener}, or null for none
+	 */
+	public void setMetricsListener(ScheduleMetricsListener listener) {
+		metricsListener = listener;
+	}
+
+	/**
+	 * Get the listener for the timing of queries and the use of caches
+	 * 
+	 * @return {@link ScheduleMetricsListener}, or null if none
+	 */
+	public ScheduleMetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	// report a cache access if there is a listener
+	void cacheAccessed(ScheduleMetricsListener.Cache cache, ScheduleMetricsListener.CacheEvent event) {
+		ScheduleMetricsListener listener = metricsListener;
+
+		if (listener != null) {
+			listener.cacheAccessed(cache, event);
+		}
+	}
+
+	// look up or compute a cached list of shift instances
+	private List<ShiftInstance> getCachedShiftInstances(LocalDate day, boolean all) throws Exception {
+		ShiftInstanceCache cache = shiftInstanceCache;
+
+		if (cache == null) {
+			return all ? computeAllShiftInstancesForDay(day) : computeShiftInstancesForDay(day);
+		}
+
+		// the non-working period list can be changed directly, so its changes are
+		// counted as well as those of the teams, rotations and shifts
+		long epochDay = day.toEpochDay();
+		long version = nonWorkingPeriods.getModificationCount();
+		long modifications = modificationCount;
+
+		List<ShiftInstance> instances = cache.get(epochDay, all, version, modifications);
+
+		if (instances == null) {
+			instances = Collections.unmodifiableList(
+					all ? computeAllShiftInstancesForDay(day) : computeShiftInstancesForDay(day));
+			cache.put(epochDay, all, instances, version, modifications);
+			cacheAccessed(ScheduleMetricsListener.Cache.SHIFT_INSTANCES, ScheduleMetricsListener.CacheEvent.MISS);
+		} else {
+			cacheAccessed(ScheduleMetricsListener.Cache.SHIFT_INSTANCES, ScheduleMetricsListener.CacheEvent.HIT);
+		}
+		return instances;
+	}
+
+	// get the non-working period index for a query, with the periods added or
+	// removed since the last query merged
+	private NonWorkingPeriodIndex getNonWorkingPeriodIndex() throws Exception {
+		NonWorkingPeriodIndex index = getIndexedPeriods();
+		index.merge();
+		return index;
+	}
+
+	// get the non-working period index, rebuilt if a period has been changed
+	private NonWorkingPeriodIndex getIndexedPeriods() throws Exception {
+		long modificationCount = nonWorkingPeriods.getModificationCount();
+
+		if (indexedPeriodCount != modificationCount) {
+			nonWorkingPeriodIndex.rebuild(nonWorkingPeriods);
+			indexedPeriodCount = modificationCount;
+		}
+		return nonWorkingPeriodIndex;
+	}
+
+	/**
+	 * Check to see if this day is contained in a non-working period
+	 * 
+	 * @param day Date to check
+	 * @return True if in a non-working period
+	 * @throws Exception Exception
+	 */
+	public boolean isNonWorkingDay(LocalDate day) throws Exception {
+		return isNonWorkingDay(day.toEpochDay());
+	}
+
+	boolean isNonWorkingDay(long epochDay) throws Exception {
+		return getNonWorkingPeriodIndex().isNonWorkingDay(epochDay);
+	}
+
 	/**
 	 * Get the list of shift instances for the specified date that start in that
 	 * date
@@ -142,29 +296,32 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 * @throws Exception exception
 	 */
 	public List<ShiftInstance> getShiftInstancesForDay(LocalDate day) throws Exception {
-		List<ShiftInstance> workingShifts = new ArrayList<>();
+		ScheduleMetricsListener listener = metricsListener;
 
-		// for each team see if there is a working shift
-		for (Team team : teams) {
-			ShiftInstance instance = team.getShiftInstanceForDay(day);
+		if (listener == null) {
+			return getCachedShiftInstances(day, false);
+		}
 
-			if (instance == null) {
-				continue;
-			}
+		long start = System.nanoTime();
+		List<ShiftInstance> instances = getCachedShiftInstances(day, false);
+		listener.queryCompleted(ScheduleMetricsListener.Query.SHIFT_INSTANCES_FOR_DAY, System.nanoTime() - start,
+				instances.size());
+		return instances;
+	}
 
-			// check to see if this is a non-working day
-			boolean addShift = true;
+	private List<ShiftInstance> computeShiftInstancesForDay(LocalDate day) throws Exception {
+		List<ShiftInstance> workingShifts = new ArrayList<>();
 
-			LocalDate startDate = instance.getStartTime().toLocalDate();
+		// all shift instances start on this day, none are worked on a non-working day
+		if (isNonWorkingDay(day)) {
+			return workingShifts;
+		}
 
-			for (NonWorkingPeriod nonWorkingPeriod : nonWorkingPeriods) {
-				if (nonWorkingPeriod.isInPeriod(startDate)) {
-					addShift = false;
-					break;
-				}
-			}
+		// for each team see if there is a working shift
+		for (Team team : teams) {
+			ShiftInstance instance = team.getShiftInstanceForDay(day);
 
-			if (addShift) {
+			if (instance != null) {
 				workingShifts.add(instance);
 			}
 		}
@@ -183,13 +340,27 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 * @throws Exception exception
 	 */
 	public List<ShiftInstance> getAllShiftInstancesForDay(LocalDate day) throws Exception {
+		ScheduleMetricsListener listener = metricsListener;
+
+		if (listener == null) {
+			return getCachedShiftInstances(day, true);
+		}
+
+		long start = System.nanoTime();
+		List<ShiftInstance> instances = getCachedShiftInstances(day, true);
+		listener.queryCompleted(ScheduleMetricsListener.Query.ALL_SHIFT_INSTANCES_FOR_DAY,
+				System.nanoTime() - start, instances.size());
+		return instances;
+	}
+
+	private List<ShiftInstance> computeAllShiftInstancesForDay(LocalDate day) throws Exception {
 		// starting in this day
-		List<ShiftInstance> workingShifts = getShiftInstancesForDay(day);
+		List<ShiftInstance> workingShifts = computeShiftInstancesForDay(day);
 
 		// now check previous day
 		LocalDate yesterday = day.minusDays(1);
 
-		for (ShiftInstance instance : getShiftInstancesForDay(yesterday)) {
+		for (ShiftInstance instance : getCachedShiftInstances(yesterday, false)) {
 			if (instance.getEndTime().toLocalDate().equals(day)) {
 				// shift ends in this day
 				workingShifts.add(instance);
@@ -209,10 +380,24 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 * @throws Exception exception
 	 */
 	public List<ShiftInstance> getShiftInstancesForTime(LocalDateTime dateTime) throws Exception {
+		ScheduleMetricsListener listener = metricsListener;
+
+		if (listener == null) {
+			return computeShiftInstancesForTime(dateTime);
+		}
+
+		long start = System.nanoTime();
+		List<ShiftInstance> instances = computeShiftInstancesForTime(dateTime);
+		listener.queryCompleted(ScheduleMetricsListener.Query.SHIFT_INSTANCES_FOR_TIME, System.nanoTime() - start,
+				instances.size());
+		return instances;
+	}
+
+	private List<ShiftInstance> computeShiftInstancesForTime(LocalDateTime dateTime) throws Exception {
 		List<ShiftInstance> workingShifts = new ArrayList<>();
 
 		// shifts from this date and yesterday
-		List<ShiftInstance> candidateShifts = getAllShiftInstancesForDay(dateTime.toLocalDate());
+		List<ShiftInstance> candidateShifts = getCachedShiftInstances(dateTime.toLocalDate(), true);
 
 		for (ShiftInstance instance : candidateShifts) {
 			if (instance.isInShiftInstance(dateTime)) {
@@ -225,6 +410,98 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		return workingShifts;
 	}
 
+	/**
+	 * Compile this work schedule into an immutable snapshot. The rotation tables
+	 * and non-working periods are computed once, and the snapshot's queries can be
+	 * called from any number of threads without locking. Later changes to this
+	 * schedule's teams, members, rotations, shifts or non-working periods are not
+	 * seen by the snapshot.
+	 * 
+	 * @return {@link CompiledWorkSchedule}
+	 * @throws Exception exception
+	 */
+	public synchronized CompiledWorkSchedule compile() throws Exception {
+		return new CompiledWorkSchedule(this, getNonWorkingPeriodIndex().copy());
+	}
+
+	/**
+	 * Create a cursor over the shift instances starting in the specified range of
+	 * dates and times. The instances are in order of their start for all teams.
+	 * The cursor is moved with {@link ShiftInstanceCursor#next()} and can be
+	 * re-opened for another range.
+	 * 
+	 * @param from Starting date and time (inclusive)
+	 * @param to   Ending date and time (exclusive)
+	 * @return {@link ShiftInstanceCursor}
+	 * @throws Exception exception
+	 */
+	public ShiftInstanceCursor getShiftInstanceCursor(LocalDateTime from, LocalDateTime to) throws Exception {
+		ShiftInstanceCursor cursor = new ShiftInstanceCursor(this);
+		cursor.open(from, to);
+		return cursor;
+	}
+
+	/**
+	 * Find the earliest start of a shift instance of any team after the specified
+	 * date and time. Instances starting on a non-working day are skipped as in
+	 * {@link #getShiftInstancesForDay(LocalDate)}.
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Starting date and time, or null if no team works
+	 * @throws Exception exception
+	 */
+	public LocalDateTime nextShiftStart(LocalDateTime dateTime) throws Exception {
+		return findShiftBoundary(dateTime, true, false);
+	}
+
+	/**
+	 * Find the earliest end of a shift instance of any team after the specified
+	 * date and time
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Ending date and time, or null if no team works
+	 * @throws Exception exception
+	 */
+	public LocalDateTime nextShiftEnd(LocalDateTime dateTime) throws Exception {
+		return findShiftBoundary(dateTime, true, true);
+	}
+
+	/**
+	 * Find the latest start of a shift instance of any team before the specified
+	 * date and time
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Starting date and time, or null if there is none
+	 * @throws Exception exception
+	 */
+	public LocalDateTime previousShiftStart(LocalDateTime dateTime) throws Exception {
+		return findShiftBoundary(dateTime, false, false);
+	}
+
+	/**
+	 * Find the latest end of a shift instance of any team before the specified
+	 * date and time
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Ending date and time, or null if there is none
+	 * @throws Exception exception
+	 */
+	public LocalDateTime previousShiftEnd(LocalDateTime dateTime) throws Exception {
+		return findShiftBoundary(dateTime, false, true);
+	}
+
+	private LocalDateTime findShiftBoundary(LocalDateTime dateTime, boolean next, boolean end) throws Exception {
+		NonWorkingPeriodIndex index = getNonWorkingPeriodIndex();
+		long second = Team.toRoundedSecond(dateTime);
+		long found = next ? Long.MAX_VALUE : Long.MIN_VALUE;
+
+		for (Team team : teams) {
+			long boundary = team.findShiftBoundary(second, next, end, index);
+			found = next ? Math.min(found, boundary) : Math.max(found, boundary);
+		}
+		return Team.toBoundary(found);
+	}
+
 	/**
 	 * Create a team
 	 * 
@@ -246,6 +523,7 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 
 		teams.add(team);
 		team.setWorkSchedule(this);
+		scheduleChanged();
 		return team;
 	}
 
@@ -268,6 +546,7 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		}
 		shifts.add(shift);
 		shift.setWorkSchedule(this);
+		scheduleChanged();
 		return shift;
 	}
 
@@ -289,6 +568,7 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 
 		rotations.add(rotation);
 		rotation.setWorkSchedule(this);
+		scheduleChanged();
 		return rotation;
 	}
 
@@ -317,6 +597,7 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		}
 
 		shifts.remove(shift);
+		scheduleChanged();
 	}
 
 	/**
@@ -332,15 +613,33 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	public NonWorkingPeriod createNonWorkingPeriod(String name, String description, LocalDateTime startDateTime,
 			Duration duration) throws Exception {
 		NonWorkingPeriod period = new NonWorkingPeriod(name, description, startDateTime, duration);
+		NonWorkingPeriodIndex index = getIndexedPeriods();
 
-		if (nonWorkingPeriods.contains(period)) {
+		if (index.containsName(name)) {
 			String msg = MessageFormat.format(WorkSchedule.getMessage("nonworking.period.already.exists"), name);
 			throw new Exception(msg);
 		}
 		period.setWorkSchedule(this);
-		nonWorkingPeriods.add(period);
 
-		Collections.sort(nonWorkingPeriods);
+		// in start order, after any periods with the same start
+		int low = 0;
+		int high = nonWorkingPeriods.size();
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (nonWorkingPeriods.get(mid).compareTo(period) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		nonWorkingPeriods.add(low, period);
+
+		// the index is sorted by itself
+		index.add(period);
+		indexedPeriodCount = nonWorkingPeriods.getModificationCount();
+		scheduleChanged();
 
 		return period;
 	}
@@ -384,11 +683,113 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 * @throws Exception exception
 	 */
 	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		ScheduleMetricsListener listener = metricsListener;
+
+		if (listener == null) {
+			return computeWorkingTime(from, to);
+		}
+
+		long start = System.nanoTime();
+		Duration workingTime = computeWorkingTime(from, to);
+		listener.queryCompleted(ScheduleMetricsListener.Query.WORKING_TIME, System.nanoTime() - start, 0);
+		return workingTime;
+	}
+
+	private Duration computeWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
 		Duration sum = Duration.ZERO;
 
 		// now add up scheduled time by team
 		for (Team team : getTeams()) {
-			sum = sum.plus(team.calculateWorkingTime(from, to));
+			sum = sum.plus(team.computeWorkingTime(from, to));
+		}
+
+		// remove the non-working time
+		Duration nonWorking = computeNonWorkingTime(from, to);
+		sum = sum.minus(nonWorking);
+
+		// clip if negative
+		if (sum.isNegative()) {
+			sum = Duration.ZERO;
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Calculate the scheduled working time between the specified dates and times of
+	 * day with the teams summed in parallel on the specified pool. Non-working
+	 * periods are removed. The result is the same as
+	 * {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)}.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @param pool {@link ForkJoinPool} to run on
+	 * @return Working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to, ForkJoinPool pool) throws Exception {
+		return calculateWorkingTime(from, to, pool, false);
+	}
+
+	/**
+	 * Calculate the scheduled working time less the shift breaks between the
+	 * specified dates and times of day with the teams summed in parallel on the
+	 * specified pool. Non-working periods are removed. The result is the same as
+	 * {@link #calculateNetWorkingTime(LocalDateTime, LocalDateTime)}.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @param pool {@link ForkJoinPool} to run on
+	 * @return Working time duration net of breaks
+	 * @throws Exception exception
+	 */
+	public Duration calculateNetWorkingTime(LocalDateTime from, LocalDateTime to, ForkJoinPool pool)
+			throws Exception {
+		return calculateWorkingTime(from, to, pool, true);
+	}
+
+	private Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to, ForkJoinPool pool, boolean net)
+			throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long fromSecond = Team.toRoundedSecond(from);
+		long toSecond = Team.toRoundedSecond(to);
+
+		// check the rotations here since the tasks cannot throw
+		Team[] scheduleTeams = getTeams().toArray(new Team[0]);
+		long fromDay = Math.floorDiv(fromSecond, RotationTable.SECONDS_PER_DAY);
+
+		for (Team team : scheduleTeams) {
+			team.checkRotationStarted(fromDay);
+		}
+
+		long sum = pool.invoke(new WorkingTimeTask(scheduleTeams, 0, scheduleTeams.length, fromSecond, toSecond, net));
+
+		// remove the non-working time
+		sum -= calculateNonWorkingTime(from, to).getSeconds();
+
+		// clip if negative
+		return Duration.ofSeconds(Math.max(sum, 0));
+	}
+
+	/**
+	 * Calculate the scheduled working time less the shift breaks between the
+	 * specified dates and times of day. Non-working periods are removed.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Working time duration net of breaks
+	 * @throws Exception exception
+	 */
+	public Duration calculateNetWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		Duration sum = Duration.ZERO;
+
+		// now add up scheduled time by team
+		for (Team team : getTeams()) {
+			sum = sum.plus(team.calculateNetWorkingTime(from, to));
 		}
 
 		// remove the non-working time
@@ -403,6 +804,142 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		return sum;
 	}
 
+	/**
+	 * Calculate the scheduled working seconds in consecutive buckets of time from
+	 * the starting date and time. The last bucket ends at the ending date and time
+	 * and can be shorter. Each bucket's value is the same as
+	 * {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)} for the bucket,
+	 * but the shift instances of all teams are swept once for the whole range.
+	 * 
+	 * @param from           Starting date and time
+	 * @param to             Ending date and time
+	 * @param bucketDuration Duration of a bucket, at least one second
+	 * @return Working seconds of each bucket
+	 * @throws Exception exception
+	 */
+	public long[] workingSecondsPerBucket(LocalDateTime from, LocalDateTime to, Duration bucketDuration)
+			throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long bucketSeconds = bucketDuration.getSeconds();
+
+		if (bucketSeconds < 1) {
+			throw new Exception(WorkSchedule.getMessage("bucket.too.short"));
+		}
+
+		long fromSecond = Team.toRoundedSecond(from);
+		long toSecond = Team.toRoundedSecond(to);
+
+		// check that the rotations have started
+		long fromDay = Math.floorDiv(fromSecond, RotationTable.SECONDS_PER_DAY);
+		for (Team team : getTeams()) {
+			team.checkRotationStarted(fromDay);
+		}
+
+		int count = (int) ((toSecond - fromSecond + bucketSeconds - 1) / bucketSeconds);
+		long[] buckets = new long[count];
+
+		// shift instances that can be in progress at the start, including those on
+		// non-working days since the non-working time is removed below
+		ShiftInstanceCursor cursor = new ShiftInstanceCursor(this, false);
+		cursor.open(fromSecond - RotationTable.SECONDS_PER_DAY, toSecond);
+		boolean hasNext = cursor.next();
+
+		// ends of the instances in progress, smallest first
+		long[] ends = new long[2 * getTeams().size() + 1];
+		int active = 0;
+
+		long position = fromSecond;
+		long worked = 0;
+		long bucketStart = fromSecond;
+		NonWorkingPeriodIndex index = getNonWorkingPeriodIndex();
+
+		for (int k = 0; k < count; k++) {
+			long bucketEnd = Math.min(bucketStart + bucketSeconds, toSecond);
+			long workedBefore = worked;
+
+			while (true) {
+				long nextStart = hasNext ? Math.max(cursor.getStartSecond(), fromSecond) : Long.MAX_VALUE;
+				long nextEnd = active > 0 ? ends[0] : Long.MAX_VALUE;
+				long event = Math.min(nextStart, nextEnd);
+
+				if (event > bucketEnd) {
+					break;
+				}
+
+				// every instance in progress works until the event
+				worked += active * (event - position);
+				position = event;
+
+				if (nextEnd <= nextStart) {
+					active = removeSmallest(ends, active);
+				} else {
+					if (cursor.getEndSecond() > fromSecond) {
+						active = addEnd(ends, active, cursor.getEndSecond());
+					}
+					hasNext = cursor.next();
+				}
+			}
+
+			worked += active * (bucketEnd - position);
+			position = bucketEnd;
+
+			// remove the non-working time and clip if negative
+			long seconds = worked - workedBefore - index.getNonWorkingSeconds(bucketStart, bucketEnd);
+			buckets[k] = Math.max(seconds, 0);
+
+			bucketStart = bucketEnd;
+		}
+		return buckets;
+	}
+
+	// add to a binary min-heap, returning its new size
+	private static int addEnd(long[] heap, int size, long end) {
+		int position = size;
+
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+
+			if (heap[parent] <= end) {
+				break;
+			}
+			heap[position] = heap[parent];
+			position = parent;
+		}
+		heap[position] = end;
+		return size + 1;
+	}
+
+	// remove the smallest value of a binary min-heap, returning its new size
+	private static int removeSmallest(long[] heap, int size) {
+		int last = size - 1;
+		long moved = heap[last];
+		int position = 0;
+		int half = last >>> 1;
+
+		while (position < half) {
+			int child = 2 * position + 1;
+
+			if (child + 1 < last && heap[child + 1] < heap[child]) {
+				child++;
+			}
+
+			if (moved <= heap[child]) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+
+		if (last > 0) {
+			heap[position] = moved;
+		}
+		return last;
+	}
+
 	/**
 	 * Calculate the non-working time between the specified dates and times of day.
 	 * 
@@ -412,45 +949,400 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 * @throws Exception exception
 	 */
 	public Duration calculateNonWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
-		Duration sum = Duration.ZERO;
+		ScheduleMetricsListener listener = metricsListener;
 
-		long fromSeconds = from.atZone(ZONE_ID).toEpochSecond();
-		long toSeconds = to.atZone(ZONE_ID).toEpochSecond();
+		if (listener == null) {
+			return computeNonWorkingTime(from, to);
+		}
 
-		for (NonWorkingPeriod period : getNonWorkingPeriods()) {
-			LocalDateTime start = period.getStartDateTime();
-			long startSeconds = start.atZone(ZONE_ID).toEpochSecond();
+		long start = System.nanoTime();
+		Duration nonWorkingTime = computeNonWorkingTime(from, to);
+		listener.queryCompleted(ScheduleMetricsListener.Query.NON_WORKING_TIME, System.nanoTime() - start, 0);
+		return nonWorkingTime;
+	}
+
+	private Duration computeNonWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		long fromSeconds = NonWorkingPeriodIndex.toEpochSecond(from);
+		long toSeconds = NonWorkingPeriodIndex.toEpochSecond(to);
+
+		return Duration.ofSeconds(getNonWorkingPeriodIndex().getNonWorkingSeconds(fromSeconds, toSeconds));
+	}
+
+	/**
+	 * Calculate the scheduled working seconds between the specified seconds from
+	 * the epoch. Non-working periods are removed. Local date and time are counted
+	 * as UTC seconds, and no java.time objects are created.
+	 * 
+	 * @param fromEpochSecond Starting second
+	 * @param toEpochSecond   Ending second
+	 * @return Working seconds
+	 * @throws Exception exception
+	 */
+	public long workingSecondsBetween(long fromEpochSecond, long toEpochSecond) throws Exception {
+		long sum = 0;
+
+		for (Team team : getTeams()) {
+			sum += team.workingSecondsBetween(fromEpochSecond, toEpochSecond);
+		}
+
+		// remove the non-working time
+		sum -= nonWorkingSecondsBetween(fromEpochSecond, toEpochSecond);
+
+		// clip if negative
+		return Math.max(sum, 0);
+	}
+
+	/**
+	 * Calculate the scheduled working seconds less the shift breaks between the
+	 * specified seconds from the epoch. Non-working periods are removed. No
+	 * java.time objects are created.
+	 * 
+	 * @param fromEpochSecond Starting second
+	 * @param toEpochSecond   Ending second
+	 * @return Working seconds net of breaks
+	 * @throws Exception exception
+	 */
+	public long netWorkingSecondsBetween(long fromEpochSecond, long toEpochSecond) throws Exception {
+		long sum = 0;
+
+		for (Team team : getTeams()) {
+			sum += team.netWorkingSecondsBetween(fromEpochSecond, toEpochSecond);
+		}
+
+		// remove the non-working time
+		sum -= nonWorkingSecondsBetween(fromEpochSecond, toEpochSecond);
+
+		// clip if negative
+		return Math.max(sum, 0);
+	}
+
+	/**
+	 * Calculate the non-working seconds between the specified seconds from the
+	 * epoch. No java.time objects are created.
+	 * 
+	 * @param fromEpochSecond Starting second
+	 * @param toEpochSecond   Ending second
+	 * @return Non-working seconds
+	 * @throws Exception exception
+	 */
+	public long nonWorkingSecondsBetween(long fromEpochSecond, long toEpochSecond) throws Exception {
+		return getNonWorkingPeriodIndex().getNonWorkingSeconds(fromEpochSecond, toEpochSecond);
+	}
+
+	/**
+	 * Count the teams with a shift instance in progress at the specified second
+	 * from the epoch. As for {@link #getShiftInstancesForTime(LocalDateTime)},
+	 * instances starting on a non-working day are not counted. No java.time
+	 * objects are created.
+	 * 
+	 * @param epochSecond Second from the epoch
+	 * @return Number of teams on shift
+	 * @throws Exception exception
+	 */
+	public int teamsOnShiftAt(long epochSecond) throws Exception {
+		long epochDay = Math.floorDiv(epochSecond, RotationTable.SECONDS_PER_DAY);
+		boolean skipToday = isNonWorkingDay(epochDay);
+		boolean skipYesterday = isNonWorkingDay(epochDay - 1);
+
+		int count = 0;
+
+		for (Team team : getTeams()) {
+			if (team.isOnShiftAt(epochSecond, skipToday, skipYesterday)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Build the coverage of teams and team members on shift between the specified
+	 * dates and times of day. The shift instances of all teams are swept once in
+	 * order of their start and end. As for
+	 * {@link #getShiftInstancesForTime(LocalDateTime)}, instances starting on a
+	 * non-working day are not counted, and the members of an instance include its
+	 * team member exceptions.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return {@link Coverage}
+	 * @throws Exception exception
+	 */
+	public Coverage getCoverage(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
 
-			LocalDateTime end = period.getEndDateTime();
-			long endSeconds = end.atZone(ZONE_ID).toEpochSecond();
+		long fromSecond = Team.toRoundedSecond(from);
+		long toSecond = Team.toRoundedSecond(to);
+
+		// check that the rotations have started
+		long fromDay = Math.floorDiv(fromSecond, RotationTable.SECONDS_PER_DAY);
+		for (Team team : getTeams()) {
+			team.checkRotationStarted(fromDay);
+		}
 
-			if (fromSeconds >= endSeconds) {
-				// look at next period
+		// instances in progress or starting in the range, clipped to it
+		int count = 0;
+		long[] starts = new long[16];
+		long[] ends = new long[16];
+		int[] members = new int[16];
+
+		ShiftInstanceCursor cursor = new ShiftInstanceCursor(this);
+		cursor.open(fromSecond - RotationTable.SECONDS_PER_DAY, toSecond);
+
+		while (cursor.next()) {
+			long end = Math.min(cursor.getEndSecond(), toSecond);
+			long start = Math.max(cursor.getStartSecond(), fromSecond);
+
+			if (end <= start) {
 				continue;
 			}
 
-			if (toSeconds <= startSeconds) {
-				// done with periods
-				break;
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, 2 * count);
+				ends = Arrays.copyOf(ends, 2 * count);
+				members = Arrays.copyOf(members, 2 * count);
+			}
+
+			starts[count] = start;
+			ends[count] = end;
+			members[count] = cursor.getTeam().getMemberCount(cursor.getStartSecond());
+			count++;
+		}
+
+		// the starts are in order, sort the ends keeping their instance index
+		long[] endKeys = new long[count];
+		for (int i = 0; i < count; i++) {
+			endKeys[i] = (ends[i] - fromSecond) * count + i;
+		}
+		Arrays.sort(endKeys);
+
+		long[] stepSeconds = new long[2 * count + 1];
+		int[] teamCounts = new int[2 * count + 1];
+		int[] memberCounts = new int[2 * count + 1];
+		int stepCount = 0;
+
+		int teamsOn = 0;
+		int membersOn = 0;
+		int nextStart = 0;
+		int nextEnd = 0;
+		long second = fromSecond;
+
+		while (second < toSecond) {
+			// apply all of the changes at this second
+			while (nextEnd < count && endKeys[nextEnd] / count + fromSecond == second) {
+				teamsOn--;
+				membersOn -= members[(int) (endKeys[nextEnd] % count)];
+				nextEnd++;
 			}
 
-			// found a period, check edge conditions
-			if (fromSeconds > startSeconds) {
-				startSeconds = fromSeconds;
+			while (nextStart < count && starts[nextStart] == second) {
+				teamsOn++;
+				membersOn += members[nextStart];
+				nextStart++;
 			}
 
-			if (toSeconds < endSeconds) {
-				endSeconds = toSeconds;
+			if (stepCount == 0 || teamCounts[stepCount - 1] != teamsOn
+					|| memberCounts[stepCount - 1] != membersOn) {
+				stepSeconds[stepCount] = second;
+				teamCounts[stepCount] = teamsOn;
+				memberCounts[stepCount] = membersOn;
+				stepCount++;
 			}
 
-			sum = sum.plusSeconds(endSeconds - startSeconds);
+			// move to the next change
+			long following = toSecond;
 
-			if (toSeconds <= endSeconds) {
-				break;
+			if (nextStart < count) {
+				following = Math.min(following, starts[nextStart]);
 			}
+
+			if (nextEnd < count) {
+				following = Math.min(following, endKeys[nextEnd] / count + fromSecond);
+			}
+			second = following;
 		}
 
-		return sum;
+		return new Coverage(stepSeconds, teamCounts, memberCounts, stepCount, toSecond);
+	}
+
+	/**
+	 * Create a calendar with one bit per slot of time between the specified dates
+	 * and times of day. The shift instances of all teams are set in the calendar
+	 * and the non-working periods are then cleared. The last slot can end after
+	 * the ending date and time.
+	 * 
+	 * @param from       Starting date and time
+	 * @param to         Ending date and time
+	 * @param resolution Duration of a slot, at least one second
+	 * @return {@link WorkingCalendar}
+	 * @throws Exception exception
+	 */
+	public WorkingCalendar createWorkingCalendar(LocalDateTime from, LocalDateTime to, Duration resolution)
+			throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long resolutionSeconds = WorkingCalendar.checkResolution(resolution);
+		long fromSecond = Team.toRoundedSecond(from);
+		long toSecond = Team.toRoundedSecond(to);
+
+		long slots = (toSecond - fromSecond + resolutionSeconds - 1) / resolutionSeconds;
+
+		if (slots > WorkingCalendar.MAX_SLOTS) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("calendar.too.long"),
+					WorkingCalendar.MAX_SLOTS);
+			throw new Exception(msg);
+		}
+
+		// check that the rotations have started
+		long fromDay = Math.floorDiv(fromSecond, RotationTable.SECONDS_PER_DAY);
+		for (Team team : getTeams()) {
+			team.checkRotationStarted(fromDay);
+		}
+
+		WorkingCalendar calendar = new WorkingCalendar(fromSecond, resolutionSeconds, (int) slots);
+		long endSecond = fromSecond + slots * resolutionSeconds;
+
+		// all instances, the non-working periods are cleared below
+		ShiftInstanceCursor cursor = new ShiftInstanceCursor(this, false);
+		cursor.open(fromSecond - RotationTable.SECONDS_PER_DAY, endSecond);
+
+		while (cursor.next()) {
+			calendar.set(cursor.getStartSecond(), cursor.getEndSecond());
+		}
+
+		for (NonWorkingPeriod period : getNonWorkingPeriods()) {
+			calendar.clear(NonWorkingPeriodIndex.toEpochSecond(period.getStartDateTime()),
+					NonWorkingPeriodIndex.toEpochSecond(period.getEndDateTime()));
+		}
+		return calendar;
+	}
+
+	/**
+	 * Find the shift and team working at each of the specified seconds from the
+	 * epoch. The seconds must be in ascending order, and all of them are
+	 * classified in one pass over the shift instances of the range. If more than
+	 * one team is on shift, the instance that started last is chosen, then the
+	 * first team in the schedule. As for
+	 * {@link #getShiftInstancesForTime(LocalDateTime)}, the start and end of an
+	 * instance are both included and instances starting on a non-working day are
+	 * ignored.
+	 * 
+	 * @param epochSeconds Ascending seconds from the epoch
+	 * @param shiftIndexes Output position of the shift in {@link #getShifts()},
+	 *                     or -1 if no team is on shift
+	 * @param teamIndexes  Output position of the team in {@link #getTeams()}, or
+	 *                     -1 if no team is on shift
+	 * @return Number of seconds with a team on shift
+	 * @throws Exception exception
+	 */
+	public int classifyShifts(long[] epochSeconds, int[] shiftIndexes, int[] teamIndexes) throws Exception {
+		int count = epochSeconds.length;
+
+		if (shiftIndexes.length < count || teamIndexes.length < count) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("output.too.short"), count);
+			throw new Exception(msg);
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long first = epochSeconds[0];
+		long last = epochSeconds[count - 1];
+
+		// check that the rotations have started
+		long firstDay = Math.floorDiv(first, RotationTable.SECONDS_PER_DAY);
+		for (Team team : getTeams()) {
+			team.checkRotationStarted(firstDay);
+		}
+
+		// shift positions by identity
+		Map<Shift, Integer> shiftPositions = new IdentityHashMap<>();
+		for (int i = 0; i < shifts.size(); i++) {
+			shiftPositions.put(shifts.get(i), i);
+		}
+
+		// a team can be on two instances at the boundary of a 24 hour shift
+		int capacity = 2 * getTeams().size();
+		int[] activeShifts = new int[capacity];
+		int[] activeTeams = new int[capacity];
+		long[] activeStarts = new long[capacity];
+		long[] activeEnds = new long[capacity];
+		int activeCount = 0;
+
+		// instances starting up to a day before the first second can be in progress
+		ShiftInstanceCursor cursor = new ShiftInstanceCursor(this);
+		cursor.open(first - RotationTable.SECONDS_PER_DAY, last + 1);
+		boolean hasNext = cursor.next();
+
+		int onShift = 0;
+
+		for (int i = 0; i < count; i++) {
+			long second = epochSeconds[i];
+
+			if (i > 0 && second < epochSeconds[i - 1]) {
+				String msg = MessageFormat.format(WorkSchedule.getMessage("seconds.not.ascending"),
+						String.valueOf(second), String.valueOf(epochSeconds[i - 1]));
+				throw new Exception(msg);
+			}
+
+			// drop the instances that have ended
+			int kept = 0;
+			for (int j = 0; j < activeCount; j++) {
+				if (activeEnds[j] >= second) {
+					activeShifts[kept] = activeShifts[j];
+					activeTeams[kept] = activeTeams[j];
+					activeStarts[kept] = activeStarts[j];
+					activeEnds[kept] = activeEnds[j];
+					kept++;
+				}
+			}
+			activeCount = kept;
+
+			// add the instances that have started
+			while (hasNext && cursor.getStartSecond() <= second) {
+				if (cursor.getEndSecond() >= second) {
+					Integer shiftPosition = shiftPositions.get(cursor.getShift());
+
+					if (shiftPosition == null) {
+						String msg = MessageFormat.format(WorkSchedule.getMessage("shift.not.in.schedule"),
+								cursor.getShift().getName(), getName());
+						throw new Exception(msg);
+					}
+
+					activeShifts[activeCount] = shiftPosition;
+					activeTeams[activeCount] = cursor.getTeamIndex();
+					activeStarts[activeCount] = cursor.getStartSecond();
+					activeEnds[activeCount] = cursor.getEndSecond();
+					activeCount++;
+				}
+				hasNext = cursor.next();
+			}
+
+			// latest start, then first team
+			int chosen = -1;
+			for (int j = 0; j < activeCount; j++) {
+				if (chosen == -1 || activeStarts[j] > activeStarts[chosen]
+						|| (activeStarts[j] == activeStarts[chosen] && activeTeams[j] < activeTeams[chosen])) {
+					chosen = j;
+				}
+			}
+
+			if (chosen == -1) {
+				shiftIndexes[i] = -1;
+				teamIndexes[i] = -1;
+			} else {
+				shiftIndexes[i] = activeShifts[chosen];
+				teamIndexes[i] = activeTeams[chosen];
+				onShift++;
+			}
+		}
+		return onShift;
 	}
 
 	/**
@@ -479,32 +1371,9 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 * @throws Exception exception
 	 */
 	public void printShiftInstances(LocalDate start, LocalDate end) throws Exception {
-		if (start.isAfter(end)) {
-			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), start, end);
-			throw new Exception(msg);
-		}
-
-		long days = end.toEpochDay() - start.toEpochDay() + 1;
-
-		LocalDate day = start;
-
-		System.out.println(getMessage("shifts.working"));
-		for (long i = 0; i < days; i++) {
-			System.out.println("[" + (i + 1) + "] " + getMessage("shifts.day") + ": " + day);
-
-			List<ShiftInstance> instances = getShiftInstancesForDay(day);
-
-			if (instances.isEmpty()) {
-				System.out.println("   " + getMessage("shifts.non.working"));
-			} else {
-				int count = 1;
-				for (ShiftInstance instance : instances) {
-					System.out.println("   (" + count + ")" + instance);
-					count++;
-				}
-			}
-			day = day.plusDays(1);
-		}
+		ScheduleReportWriter writer = new ScheduleReportWriter(System.out);
+		writer.writeShiftInstances(this, start, end);
+		writer.flush();
 	}
 
 	/**
@@ -514,57 +1383,9 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	 */
 	@Override
 	public String toString() {
-		DecimalFormat df = new DecimalFormat();
-		df.setMaximumFractionDigits(2);
-		String sch = getMessage("schedule");
-		String rd = getMessage("rotation.duration");
-		String sw = getMessage("schedule.working");
-		String sf = getMessage("schedule.shifts");
-		String st = getMessage("schedule.teams");
-		String sc = getMessage("schedule.coverage");
-		String sn = getMessage("schedule.non");
-		String stn = getMessage("schedule.total");
-
-		StringBuilder text = new StringBuilder(sch).append(": ").append(super.toString());
+		StringBuilder text = new StringBuilder();
 		try {
-			text.append("\n").append(rd).append(": ").append(getRotationDuration()).append(", ")
-				.append(sw).append(": ").append(getRotationWorkingTime());
-
-			// shifts
-			text.append("\n").append(sf).append(": ");
-			int count = 1;
-			for (Shift shift : getShifts()) {
-				text.append("\n   (").append(count).append(") ").append(shift);
-				count++;
-			}
-
-			// teams
-			text.append("\n").append(st).append(": ");
-			count = 1;
-			float teamPercent = 0.0f;
-			for (Team team : this.getTeams()) {
-				text.append("\n   (").append(count).append(") ").append(team);
-				teamPercent += team.getPercentageWorked();
-				count++;
-			}
-			text.append("\n").append(sc).append(": ").append(df.format(teamPercent)).append("%");
-
-			// non-working periods
-			List<NonWorkingPeriod> periods = getNonWorkingPeriods();
-
-			if (!periods.isEmpty()) {
-				text.append("\n").append(sn).append(":");
-
-				Duration totalMinutes = Duration.ZERO;
-
-				count = 1;
-				for (NonWorkingPeriod period : periods) {
-					totalMinutes = totalMinutes.plusMinutes(period.getDuration().toMinutes());
-					text.append("\n   (").append(count).append(") ").append(period);
-					count++;
-				}
-				text.append("\n").append(stn).append(": ").append(totalMinutes);
-			}
+			new ScheduleReportWriter(text).writeSchedule(this);
 		} catch (Exception e) {
 			// ignore
 		}
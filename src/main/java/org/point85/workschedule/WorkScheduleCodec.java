@@ -0,0 +1,648 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class WorkScheduleCodec writes a {@link WorkSchedule} with its shifts, breaks,
+ * rotations, teams, team members, member exceptions and non-working periods to
+ * a compact binary form, and reads it back. Strings are written once to a
+ * table and referred to by index, and numbers and times are variable length
+ * integers. Reading is streamed from a buffer or channel and the schedule is
+ * rebuilt through the create methods, so it is validated as if built by hand.
+ * Database keys are not written.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class WorkScheduleCodec {
+	// "WSCH"
+	private static final int MAGIC = 0x57534348;
+
+	// current format version
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int CHANNEL_BUFFER_SIZE = 8192;
+
+	private WorkScheduleCodec() {
+		// static methods only
+	}
+
+	/**
+	 * Encode a work schedule
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @return Encoded bytes
+	 * @throws Exception exception
+	 */
+	public static byte[] encode(WorkSchedule workSchedule) throws Exception {
+		List<String> stringList = new ArrayList<>();
+		Output body = encodeBody(workSchedule, stringList);
+
+		Output output = new Output();
+		writeHeader(output, stringList);
+		output.write(body);
+		return output.toByteArray();
+	}
+
+	/**
+	 * Encode a work schedule to a channel. The bytes are the same as those from
+	 * {@link #encode(WorkSchedule)}, and are written from the buffers they were
+	 * encoded in without being copied to one array.
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param channel      Channel to write to
+	 * @throws Exception exception
+	 */
+	public static void encode(WorkSchedule workSchedule, WritableByteChannel channel) throws Exception {
+		List<String> stringList = new ArrayList<>();
+		Output body = encodeBody(workSchedule, stringList);
+
+		Output header = new Output();
+		writeHeader(header, stringList);
+		header.writeTo(channel);
+		body.writeTo(channel);
+	}
+
+	/**
+	 * Decode a work schedule from a buffer, starting at its position. The
+	 * position is moved past the schedule.
+	 * 
+	 * @param buffer Buffer to read from
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule decode(ByteBuffer buffer) throws Exception {
+		return decode(new Input(buffer, null));
+	}
+
+	/**
+	 * Decode one work schedule from a channel. The channel can be read past the
+	 * end of the schedule, so use a {@link Decoder} to read schedules written one
+	 * after the other.
+	 * 
+	 * @param channel Channel to read from
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule decode(ReadableByteChannel channel) throws Exception {
+		return new Decoder(channel).decode();
+	}
+
+	// write the body, collecting its strings in the list
+	private static Output encodeBody(WorkSchedule workSchedule, List<String> stringList) throws Exception {
+		Output body = new Output();
+		Map<String, Integer> strings = new HashMap<>();
+
+		writeNamed(body, workSchedule, strings, stringList);
+		Integer version = workSchedule.getVersion();
+		body.writeVarLong(version != null ? zigZag(version) + 1 : 0);
+
+		// shifts
+		List<Shift> shifts = workSchedule.getShifts();
+		Map<Shift, Integer> shiftIndexes = new IdentityHashMap<>();
+		body.writeVarLong(shifts.size());
+
+		for (Shift shift : shifts) {
+			shiftIndexes.put(shift, shiftIndexes.size());
+			writeNamed(body, shift, strings, stringList);
+			writeTime(body, shift.getStart());
+			writeDuration(body, shift.getDuration());
+
+			body.writeVarLong(shift.getBreaks().size());
+			for (Break breakPeriod : shift.getBreaks()) {
+				writeNamed(body, breakPeriod, strings, stringList);
+				writeTime(body, breakPeriod.getStart());
+				writeDuration(body, breakPeriod.getDuration());
+			}
+		}
+
+		// rotations
+		List<Rotation> rotations = workSchedule.getRotations();
+		Map<Rotation, Integer> rotationIndexes = new IdentityHashMap<>();
+		body.writeVarLong(rotations.size());
+
+		for (Rotation rotation : rotations) {
+			rotationIndexes.put(rotation, rotationIndexes.size());
+			writeNamed(body, rotation, strings, stringList);
+
+			body.writeVarLong(rotation.getRotationSegments().size());
+			for (RotationSegment segment : rotation.getRotationSegments()) {
+				Integer shiftIndex = shiftIndexes.get(segment.getStartingShift());
+
+				if (shiftIndex == null) {
+					String msg = MessageFormat.format(WorkSchedule.getMessage("codec.not.in.schedule"),
+							segment.getStartingShift().getName(), workSchedule.getName());
+					throw new Exception(msg);
+				}
+				body.writeVarLong(shiftIndex);
+				body.writeVarLong(zigZag(segment.getDaysOn()));
+				body.writeVarLong(zigZag(segment.getDaysOff()));
+				body.writeVarLong(zigZag(segment.getSequence()));
+			}
+		}
+
+		// team members are written once and referred to by index
+		Output teamOutput = new Output();
+		Map<TeamMember, Integer> memberIndexes = new IdentityHashMap<>();
+		List<TeamMember> members = new ArrayList<>();
+
+		List<Team> teams = workSchedule.getTeams();
+		teamOutput.writeVarLong(teams.size());
+
+		for (Team team : teams) {
+			Integer rotationIndex = rotationIndexes.get(team.getRotation());
+
+			if (rotationIndex == null) {
+				String msg = MessageFormat.format(WorkSchedule.getMessage("codec.not.in.schedule"),
+						team.getRotation().getName(), workSchedule.getName());
+				throw new Exception(msg);
+			}
+
+			writeNamed(teamOutput, team, strings, stringList);
+			teamOutput.writeVarLong(rotationIndex);
+			teamOutput.writeVarLong(zigZag(team.getRotationStart().toEpochDay()));
+
+			teamOutput.writeVarLong(team.getAssignedMembers().size());
+			for (TeamMember member : team.getAssignedMembers()) {
+				teamOutput.writeVarLong(memberIndex(member, memberIndexes, members));
+			}
+
+			teamOutput.writeVarLong(team.getMemberExceptions().size());
+			for (TeamMemberException exception : team.getMemberExceptions()) {
+				writeDateTime(teamOutput, exception.getDateTime());
+				teamOutput.writeVarLong(stringIndex(exception.getReason(), strings, stringList));
+				teamOutput.writeVarLong(memberIndex(exception.getAddition(), memberIndexes, members) + 1);
+				teamOutput.writeVarLong(memberIndex(exception.getRemoval(), memberIndexes, members) + 1);
+			}
+		}
+
+		body.writeVarLong(members.size());
+		for (TeamMember member : members) {
+			writeNamed(body, member, strings, stringList);
+			body.writeVarLong(stringIndex(member.getMemberID(), strings, stringList));
+		}
+		body.write(teamOutput);
+
+		// non-working periods
+		List<NonWorkingPeriod> periods = workSchedule.getNonWorkingPeriods();
+		body.writeVarLong(periods.size());
+
+		for (NonWorkingPeriod period : periods) {
+			writeNamed(body, period, strings, stringList);
+			writeDateTime(body, period.getStartDateTime());
+			writeDuration(body, period.getDuration());
+		}
+		return body;
+	}
+
+	// header and strings, written before the body
+	private static void writeHeader(Output output, List<String> stringList) {
+		output.writeInt(MAGIC);
+		output.writeVarLong(FORMAT_VERSION);
+		output.writeVarLong(stringList.size());
+
+		for (String value : stringList) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			output.writeVarLong(bytes.length);
+			output.write(bytes, bytes.length);
+		}
+	}
+
+	private static WorkSchedule decode(Input input) throws Exception {
+		if (input.readInt() != MAGIC) {
+			throw new Exception(WorkSchedule.getMessage("codec.bad.header"));
+		}
+
+		int formatVersion = input.readCount();
+		if (formatVersion != FORMAT_VERSION) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("codec.bad.version"), formatVersion,
+					FORMAT_VERSION);
+			throw new Exception(msg);
+		}
+
+		String[] strings = new String[input.readCount()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = input.readString(input.readCount());
+		}
+
+		WorkSchedule workSchedule = new WorkSchedule(readString(input, strings), readString(input, strings));
+		long version = input.readVarLong();
+		if (version != 0) {
+			workSchedule.setVersion((int) unZigZag(version - 1));
+		}
+
+		// shifts
+		Shift[] shifts = new Shift[input.readCount()];
+		for (int i = 0; i < shifts.length; i++) {
+			shifts[i] = workSchedule.createShift(readString(input, strings), readString(input, strings),
+					readTime(input), readDuration(input));
+
+			int breakCount = input.readCount();
+			for (int j = 0; j < breakCount; j++) {
+				shifts[i].createBreak(readString(input, strings), readString(input, strings), readTime(input),
+						readDuration(input));
+			}
+		}
+
+		// rotations
+		Rotation[] rotations = new Rotation[input.readCount()];
+		for (int i = 0; i < rotations.length; i++) {
+			rotations[i] = workSchedule.createRotation(readString(input, strings), readString(input, strings));
+
+			int segmentCount = input.readCount();
+			for (int j = 0; j < segmentCount; j++) {
+				Shift shift = shifts[input.readIndex(shifts.length)];
+				int daysOn = (int) unZigZag(input.readVarLong());
+				int daysOff = (int) unZigZag(input.readVarLong());
+				int sequence = (int) unZigZag(input.readVarLong());
+
+				RotationSegment segment = rotations[i].addSegment(shift, daysOn, daysOff);
+				if (segment.getSequence() != sequence) {
+					segment.setSequence(sequence);
+				}
+			}
+		}
+
+		// team members
+		TeamMember[] members = new TeamMember[input.readCount()];
+		for (int i = 0; i < members.length; i++) {
+			members[i] = new TeamMember(readString(input, strings), readString(input, strings),
+					readString(input, strings));
+		}
+
+		// teams
+		int teamCount = input.readCount();
+		for (int i = 0; i < teamCount; i++) {
+			String name = readString(input, strings);
+			String description = readString(input, strings);
+			Rotation rotation = rotations[input.readIndex(rotations.length)];
+			LocalDate rotationStart = LocalDate.ofEpochDay(unZigZag(input.readVarLong()));
+
+			Team team = workSchedule.createTeam(name, description, rotation, rotationStart);
+
+			int memberCount = input.readCount();
+			for (int j = 0; j < memberCount; j++) {
+				team.addMember(members[input.readIndex(members.length)]);
+			}
+
+			int exceptionCount = input.readCount();
+			for (int j = 0; j < exceptionCount; j++) {
+				TeamMemberException exception = new TeamMemberException(readDateTime(input));
+				exception.setReason(readString(input, strings));
+				exception.setAddition(readMember(input, members));
+				exception.setRemoval(readMember(input, members));
+				team.addMemberException(exception);
+			}
+		}
+
+		// non-working periods
+		int periodCount = input.readCount();
+		for (int i = 0; i < periodCount; i++) {
+			workSchedule.createNonWorkingPeriod(readString(input, strings), readString(input, strings),
+					readDateTime(input), readDuration(input));
+		}
+
+		return workSchedule;
+	}
+
+	private static void writeNamed(Output output, Named named, Map<String, Integer> strings,
+			List<String> stringList) {
+		output.writeVarLong(stringIndex(named.getName(), strings, stringList));
+		output.writeVarLong(stringIndex(named.getDescription(), strings, stringList));
+	}
+
+	// index in the string table plus one, or 0 for null
+	private static int stringIndex(String value, Map<String, Integer> strings, List<String> stringList) {
+		if (value == null) {
+			return 0;
+		}
+
+		Integer index = strings.get(value);
+
+		if (index == null) {
+			stringList.add(value);
+			index = stringList.size();
+			strings.put(value, index);
+		}
+		return index;
+	}
+
+	// index in the member table, or -1 for null
+	private static int memberIndex(TeamMember member, Map<TeamMember, Integer> memberIndexes,
+			List<TeamMember> members) {
+		if (member == null) {
+			return -1;
+		}
+
+		Integer index = memberIndexes.get(member);
+
+		if (index == null) {
+			index = members.size();
+			members.add(member);
+			memberIndexes.put(member, index);
+		}
+		return index;
+	}
+
+	private static String readString(Input input, String[] strings) throws Exception {
+		int index = input.readIndex(strings.length + 1);
+		return index > 0 ? strings[index - 1] : null;
+	}
+
+	private static TeamMember readMember(Input input, TeamMember[] members) throws Exception {
+		int index = input.readIndex(members.length + 1);
+		return index > 0 ? members[index - 1] : null;
+	}
+
+	private static void writeTime(Output output, LocalTime time) {
+		output.writeVarLong(time.toSecondOfDay());
+		output.writeVarLong(time.getNano());
+	}
+
+	private static LocalTime readTime(Input input) throws Exception {
+		return LocalTime.ofSecondOfDay(input.readVarLong()).withNano((int) input.readVarLong());
+	}
+
+	private static void writeDuration(Output output, Duration duration) {
+		output.writeVarLong(zigZag(duration.getSeconds()));
+		output.writeVarLong(duration.getNano());
+	}
+
+	private static Duration readDuration(Input input) throws Exception {
+		return Duration.ofSeconds(unZigZag(input.readVarLong()), input.readVarLong());
+	}
+
+	private static void writeDateTime(Output output, LocalDateTime dateTime) {
+		if (dateTime == null) {
+			output.writeVarLong(0);
+			return;
+		}
+		output.writeVarLong(zigZag(dateTime.toEpochSecond(ZoneOffset.UTC)) + 1);
+		output.writeVarLong(dateTime.getNano());
+	}
+
+	private static LocalDateTime readDateTime(Input input) throws Exception {
+		long value = input.readVarLong();
+
+		if (value == 0) {
+			return null;
+		}
+		return LocalDateTime.ofEpochSecond(unZigZag(value - 1), (int) input.readVarLong(), ZoneOffset.UTC);
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	// growable byte array for writing
+	private static final class Output {
+		private byte[] bytes = new byte[256];
+		private int size = 0;
+
+		private void ensureCapacity(int extra) {
+			if (size + extra > bytes.length) {
+				byte[] grown = new byte[Math.max(bytes.length * 2, size + extra)];
+				System.arraycopy(bytes, 0, grown, 0, size);
+				bytes = grown;
+			}
+		}
+
+		private void writeInt(int value) {
+			ensureCapacity(4);
+			bytes[size++] = (byte) (value >>> 24);
+			bytes[size++] = (byte) (value >>> 16);
+			bytes[size++] = (byte) (value >>> 8);
+			bytes[size++] = (byte) value;
+		}
+
+		// unsigned LEB128
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+
+			while ((value & ~0x7FL) != 0) {
+				bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[size++] = (byte) value;
+		}
+
+		private void write(byte[] source, int length) {
+			ensureCapacity(length);
+			System.arraycopy(source, 0, bytes, size, length);
+			size += length;
+		}
+
+		private void write(Output other) {
+			write(other.bytes, other.size);
+		}
+
+		private byte[] toByteArray() {
+			byte[] result = new byte[size];
+			System.arraycopy(bytes, 0, result, 0, size);
+			return result;
+		}
+
+		private void writeTo(WritableByteChannel channel) throws Exception {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Class Decoder reads work schedules written one after the other from a
+	 * channel. The bytes read ahead of a schedule are kept in the decoder's buffer
+	 * for the next one.
+	 */
+	public static final class Decoder {
+		private final Input input;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param channel Channel to read from
+		 */
+		public Decoder(ReadableByteChannel channel) {
+			ByteBuffer buffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+			buffer.flip();
+			input = new Input(buffer, channel);
+		}
+
+		/**
+		 * Check for another schedule before the end of the channel
+		 * 
+		 * @return True if there are more bytes to decode
+		 * @throws Exception exception
+		 */
+		public boolean hasNext() throws Exception {
+			return input.hasRemaining();
+		}
+
+		/**
+		 * Decode the next work schedule
+		 * 
+		 * @return {@link WorkSchedule}
+		 * @throws Exception exception
+		 */
+		public WorkSchedule decode() throws Exception {
+			return WorkScheduleCodec.decode(input);
+		}
+	}
+
+	// buffer for reading, refilled from the channel if there is one
+	private static final class Input {
+		private final ByteBuffer buffer;
+		private final ReadableByteChannel channel;
+
+		private Input(ByteBuffer buffer, ReadableByteChannel channel) {
+			this.buffer = buffer;
+			this.channel = channel;
+		}
+
+		private void require(int count) throws Exception {
+			if (buffer.remaining() >= count) {
+				return;
+			}
+
+			if (channel == null) {
+				throw new Exception(WorkSchedule.getMessage("codec.truncated"));
+			}
+
+			buffer.compact();
+			try {
+				while (buffer.position() < count) {
+					if (channel.read(buffer) < 0) {
+						throw new Exception(WorkSchedule.getMessage("codec.truncated"));
+					}
+				}
+			} catch (IOException e) {
+				throw new Exception(WorkSchedule.getMessage("codec.truncated"), e);
+			} finally {
+				buffer.flip();
+			}
+		}
+
+		// false at the end of the buffer and channel
+		private boolean hasRemaining() throws Exception {
+			if (buffer.hasRemaining()) {
+				return true;
+			}
+
+			if (channel == null) {
+				return false;
+			}
+
+			buffer.clear();
+			try {
+				int read;
+				do {
+					read = channel.read(buffer);
+				} while (read == 0);
+
+				return read > 0;
+			} catch (IOException e) {
+				throw new Exception(WorkSchedule.getMessage("codec.truncated"), e);
+			} finally {
+				buffer.flip();
+			}
+		}
+
+		private int readInt() throws Exception {
+			require(4);
+			return buffer.getInt();
+		}
+
+		private long readVarLong() throws Exception {
+			long value = 0;
+
+			for (int shift = 0; shift < 64; shift += 7) {
+				require(1);
+				byte b = buffer.get();
+				value |= (long) (b & 0x7F) << shift;
+
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new Exception(WorkSchedule.getMessage("codec.truncated"));
+		}
+
+		private int readCount() throws Exception {
+			long value = readVarLong();
+
+			if (value > Integer.MAX_VALUE) {
+				throw new Exception(WorkSchedule.getMessage("codec.truncated"));
+			}
+			return (int) value;
+		}
+
+		// a reference into a table of this size
+		private int readIndex(int size) throws Exception {
+			long index = readVarLong();
+
+			if (index >= size) {
+				String msg = MessageFormat.format(WorkSchedule.getMessage("codec.bad.reference"), index, size);
+				throw new Exception(msg);
+			}
+			return (int) index;
+		}
+
+		private String readString(int length) throws Exception {
+			byte[] bytes = new byte[length];
+			int read = 0;
+
+			while (read < length) {
+				require(1);
+				int count = Math.min(buffer.remaining(), length - read);
+				buffer.get(bytes, read, count);
+				read += count;
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,409 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class WorkScheduleICalendar exports the shift instances of a work schedule or
+ * a team as an iCalendar (RFC 5545) feed. A rotation repeats every
+ * {@link Rotation#getDayCount()} days, so each working day of a team's rotation
+ * is written as one VEVENT with a daily RRULE at that interval, and the
+ * occurrences starting on a non-working day are removed with EXDATEs. The
+ * number of events depends on the rotations and not on the length of the date
+ * range, and the text is written to the stream as it is produced. Times are
+ * floating local times, as in the schedule.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class WorkScheduleICalendar {
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	// longest content line in octets before folding
+	private static final int MAX_LINE_OCTETS = 75;
+
+	private static final String PRODUCT_ID = "-//Point85//Work Schedule//EN";
+
+	private WorkScheduleICalendar() {
+		// static methods only
+	}
+
+	/**
+	 * Opens the output stream for a team's feed
+	 */
+	@FunctionalInterface
+	public interface FeedOpener {
+		/**
+		 * Open the stream for this team
+		 * 
+		 * @param team {@link Team}
+		 * @return Output stream, which is closed after the feed is written
+		 * @throws Exception exception
+		 */
+		OutputStream open(Team team) throws Exception;
+	}
+
+	/**
+	 * Write a calendar of the shift instances of all teams of a work schedule
+	 * starting in the specified range of dates
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param first        First date (inclusive)
+	 * @param last         Last date (inclusive)
+	 * @param stream       Output stream, which is flushed and not closed
+	 * @throws Exception exception
+	 */
+	public static void write(WorkSchedule workSchedule, LocalDate first, LocalDate last, OutputStream stream)
+			throws Exception {
+		checkRange(first, last);
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+		List<NonWorkingPeriod> periods = getSortedPeriods(workSchedule);
+		String stamp = formatStamp(Instant.now());
+
+		beginCalendar(writer, workSchedule.getName());
+		for (Team team : workSchedule.getTeams()) {
+			writeEvents(writer, team, first, last, periods, stamp);
+		}
+		endCalendar(writer);
+		writer.flush();
+	}
+
+	/**
+	 * Write a calendar of the shift instances of a team starting in the specified
+	 * range of dates. The non-working periods of the team's work schedule are
+	 * excluded.
+	 * 
+	 * @param team   {@link Team}
+	 * @param first  First date (inclusive)
+	 * @param last   Last date (inclusive)
+	 * @param stream Output stream, which is flushed and not closed
+	 * @throws Exception exception
+	 */
+	public static void write(Team team, LocalDate first, LocalDate last, OutputStream stream) throws Exception {
+		checkRange(first, last);
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+
+		beginCalendar(writer, team.getName());
+		writeEvents(writer, team, first, last, getSortedPeriods(team.getWorkSchedule()), formatStamp(Instant.now()));
+		endCalendar(writer);
+		writer.flush();
+	}
+
+	/**
+	 * Write a calendar for each team of a work schedule in parallel on the
+	 * specified pool
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param first        First date (inclusive)
+	 * @param last         Last date (inclusive)
+	 * @param opener       {@link FeedOpener} for the stream of each team
+	 * @param pool         {@link ForkJoinPool} to run on
+	 * @throws Exception the first exception of a team's feed
+	 */
+	public static void writeTeams(WorkSchedule workSchedule, LocalDate first, LocalDate last, FeedOpener opener,
+			ForkJoinPool pool) throws Exception {
+		checkRange(first, last);
+
+		// the rotation tables are built before the tasks share them
+		List<NonWorkingPeriod> periods = getSortedPeriods(workSchedule);
+		String stamp = formatStamp(Instant.now());
+		List<Callable<Void>> tasks = new ArrayList<>();
+
+		for (Team team : workSchedule.getTeams()) {
+			team.getRotation().getTable();
+
+			tasks.add(() -> {
+				try (OutputStream stream = opener.open(team)) {
+					Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+
+					beginCalendar(writer, team.getName());
+					writeEvents(writer, team, first, last, periods, stamp);
+					endCalendar(writer);
+					writer.flush();
+				}
+				return null;
+			});
+		}
+
+		for (Future<Void> future : pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof Exception ? (Exception) cause : e;
+			}
+		}
+	}
+
+	private static void checkRange(LocalDate first, LocalDate last) throws Exception {
+		if (first.isAfter(last)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), last, first);
+			throw new Exception(msg);
+		}
+	}
+
+	// non-working periods in order of start
+	private static List<NonWorkingPeriod> getSortedPeriods(WorkSchedule workSchedule) {
+		if (workSchedule == null) {
+			return Collections.emptyList();
+		}
+
+		List<NonWorkingPeriod> periods = new ArrayList<>(workSchedule.getNonWorkingPeriods());
+		Collections.sort(periods);
+		return periods;
+	}
+
+	private static void beginCalendar(Writer writer, String name) throws IOException {
+		writeLine(writer, "BEGIN:VCALENDAR");
+		writeLine(writer, "VERSION:2.0");
+		writeLine(writer, "PRODID:" + PRODUCT_ID);
+		writeLine(writer, "CALSCALE:GREGORIAN");
+		writeLine(writer, "X-WR-CALNAME:" + escapeText(name));
+	}
+
+	private static void endCalendar(Writer writer) throws IOException {
+		writeLine(writer, "END:VCALENDAR");
+	}
+
+	// one recurring event per working day of the team's rotation
+	private static void writeEvents(Writer writer, Team team, LocalDate first, LocalDate last,
+			List<NonWorkingPeriod> periods, String stamp) throws Exception {
+		RotationTable table = team.getRotation().getTable();
+		int dayCount = table.getDayCount();
+
+		// no instances before the rotation starts
+		long firstDay = Math.max(first.toEpochDay(), team.getRotationStart().toEpochDay());
+		long lastDay = last.toEpochDay();
+
+		for (int i = 0; i < dayCount && firstDay <= lastDay; i++) {
+			Shift shift = table.getShift(i);
+
+			if (shift == null) {
+				continue;
+			}
+
+			// first and last days of this rotation day in the range
+			long firstOccurrence = firstDay + Math.floorMod(i - team.getRotationDay(firstDay), (long) dayCount);
+
+			if (firstOccurrence > lastDay) {
+				continue;
+			}
+
+			long count = (lastDay - firstOccurrence) / dayCount + 1;
+			long lastOccurrence = firstOccurrence + (count - 1) * dayCount;
+			int startSecond = table.getShiftStartSecond(i);
+
+			writeLine(writer, "BEGIN:VEVENT");
+			// the same for any date range, so from the first cycle of the rotation
+			long anchorDay = team.getRotationStart().toEpochDay() + i;
+			writeLine(writer, "UID:" + formatDateTime(anchorDay, 0).substring(0, 8) + "-"
+					+ encodeIdentifier(shift.getName()) + "-" + encodeIdentifier(team.getName()) + "@"
+					+ encodeIdentifier(getScheduleName(team)));
+			writeLine(writer, "DTSTAMP:" + stamp);
+			writeLine(writer, "DTSTART:" + formatDateTime(firstOccurrence, startSecond));
+			writeLine(writer, "DURATION:" + formatDuration(table.getShiftWorkingSeconds(i)));
+
+			if (count > 1) {
+				writeLine(writer, "RRULE:FREQ=DAILY;INTERVAL=" + dayCount + ";COUNT=" + count);
+			}
+
+			writeLine(writer, "SUMMARY:" + escapeText(shift.getName() + " - " + team.getName()));
+
+			if (team.getDescription() != null) {
+				writeLine(writer, "DESCRIPTION:" + escapeText(team.getDescription()));
+			}
+
+			writeExceptionDates(writer, firstOccurrence, lastOccurrence, dayCount, startSecond, periods);
+			writeLine(writer, "END:VEVENT");
+		}
+	}
+
+	// exclude the occurrences starting on a day of a non-working period
+	private static void writeExceptionDates(Writer writer, long firstOccurrence, long lastOccurrence, int dayCount,
+			int startSecond, List<NonWorkingPeriod> periods) throws Exception {
+		// last day checked, since periods can overlap
+		long checkedDay = firstOccurrence - 1;
+
+		for (NonWorkingPeriod period : periods) {
+			long startDay = period.getStartDateTime().toLocalDate().toEpochDay();
+
+			if (startDay > lastOccurrence) {
+				break;
+			}
+
+			long endDay = Math.min(period.getEndDateTime().toLocalDate().toEpochDay(), lastOccurrence);
+			long day = Math.max(startDay, checkedDay + 1);
+
+			// first occurrence on or after the day
+			day += Math.floorMod(firstOccurrence - day, (long) dayCount);
+
+			for (; day <= endDay; day += dayCount) {
+				writeLine(writer, "EXDATE:" + formatDateTime(day, startSecond));
+			}
+			checkedDay = Math.max(checkedDay, endDay);
+		}
+	}
+
+	private static String getScheduleName(Team team) {
+		WorkSchedule workSchedule = team.getWorkSchedule();
+		return workSchedule != null ? workSchedule.getName() : team.getName();
+	}
+
+	// local date and time as yyyyMMddTHHmmss
+	private static String formatDateTime(long epochDay, int secondOfDay) {
+		LocalDate date = LocalDate.ofEpochDay(epochDay);
+
+		StringBuilder sb = new StringBuilder(15);
+		appendDigits(sb, date.getYear(), 4);
+		appendDigits(sb, date.getMonthValue(), 2);
+		appendDigits(sb, date.getDayOfMonth(), 2);
+		sb.append('T');
+		appendDigits(sb, secondOfDay / 3600, 2);
+		appendDigits(sb, (secondOfDay / 60) % 60, 2);
+		appendDigits(sb, secondOfDay % 60, 2);
+		return sb.toString();
+	}
+
+	// UTC date and time of creation
+	private static String formatStamp(Instant instant) {
+		long epochSecond = instant.getEpochSecond();
+		return formatDateTime(Math.floorDiv(epochSecond, SECONDS_PER_DAY),
+				(int) Math.floorMod(epochSecond, SECONDS_PER_DAY)) + "Z";
+	}
+
+	private static void appendDigits(StringBuilder sb, int value, int width) {
+		String digits = Integer.toString(value);
+
+		for (int i = digits.length(); i < width; i++) {
+			sb.append('0');
+		}
+		sb.append(digits);
+	}
+
+	// duration value such as PT8H30M
+	private static String formatDuration(long seconds) {
+		StringBuilder sb = new StringBuilder("PT");
+		long hours = seconds / 3600;
+		long minutes = (seconds / 60) % 60;
+		long secs = seconds % 60;
+
+		if (hours > 0) {
+			sb.append(hours).append('H');
+		}
+
+		if (minutes > 0) {
+			sb.append(minutes).append('M');
+		}
+
+		if (secs > 0 || seconds == 0) {
+			sb.append(secs).append('S');
+		}
+		return sb.toString();
+	}
+
+	private static String escapeText(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			switch (c) {
+			case '\\':
+			case ';':
+			case ',':
+				sb.append('\\').append(c);
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				break;
+			default:
+				sb.append(c);
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	// percent encode all but letters, digits and "_.~" of the UTF-8 bytes
+	private static String encodeIdentifier(String name) {
+		StringBuilder sb = new StringBuilder(name.length());
+
+		for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+			int c = b & 0xFF;
+
+			if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '.'
+					|| c == '~') {
+				sb.append((char) c);
+			} else {
+				sb.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+						.append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+			}
+		}
+		return sb.toString();
+	}
+
+	// write a content line, folded at 75 octets of UTF-8
+	private static void writeLine(Writer writer, String line) throws IOException {
+		int octets = 0;
+		int i = 0;
+
+		while (i < line.length()) {
+			char c = line.charAt(i);
+			int length = Character.isHighSurrogate(c) && i + 1 < line.length() ? 2 : 1;
+			int size = length == 2 ? 4 : (c < 0x80 ? 1 : (c < 0x800 ? 2 : 3));
+
+			if (octets + size > MAX_LINE_OCTETS) {
+				writer.write("\r\n ");
+				octets = 1;
+			}
+
+			writer.write(line, i, length);
+			octets += size;
+			i += length;
+		}
+		writer.write("\r\n");
+	}
+}
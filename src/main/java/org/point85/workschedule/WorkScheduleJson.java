@@ -0,0 +1,743 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.point85.workschedule.JsonPullParser.Token;
+
+/**
+ * Class WorkScheduleJson writes work schedules as JSON and reads them back
+ * without a JSON library. Writing goes directly to the stream, and reading
+ * pulls one token at a time and creates the schedule's objects as they are
+ * read, so no document tree is built. A bundle is a JSON array of schedules.
+ * Shifts, rotations and teams are referred to by name and must be defined
+ * before they are used, as they are when written by this class. Times, dates
+ * and durations are ISO-8601 strings.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class WorkScheduleJson {
+
+	private WorkScheduleJson() {
+		// static methods only
+	}
+
+	/**
+	 * Write a work schedule as a JSON object
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param writer       Writer, which is flushed and not closed
+	 * @throws Exception exception
+	 */
+	public static void write(WorkSchedule workSchedule, Writer writer) throws Exception {
+		writeSchedule(new JsonStreamWriter(writer), workSchedule);
+		writer.flush();
+	}
+
+	/**
+	 * Write a work schedule as a UTF-8 JSON object
+	 * 
+	 * @param workSchedule {@link WorkSchedule}
+	 * @param stream       Output stream, which is flushed and not closed
+	 * @throws Exception exception
+	 */
+	public static void write(WorkSchedule workSchedule, OutputStream stream) throws Exception {
+		write(workSchedule, new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Write a bundle of work schedules as a JSON array
+	 * 
+	 * @param workSchedules Collection of {@link WorkSchedule}
+	 * @param writer        Writer, which is flushed and not closed
+	 * @throws Exception exception
+	 */
+	public static void writeAll(Collection<WorkSchedule> workSchedules, Writer writer) throws Exception {
+		JsonStreamWriter json = new JsonStreamWriter(writer);
+		json.beginArray();
+
+		for (WorkSchedule workSchedule : workSchedules) {
+			writeSchedule(json, workSchedule);
+		}
+		json.endArray();
+		writer.flush();
+	}
+
+	/**
+	 * Write a bundle of work schedules as a UTF-8 JSON array
+	 * 
+	 * @param workSchedules Collection of {@link WorkSchedule}
+	 * @param stream        Output stream, which is flushed and not closed
+	 * @throws Exception exception
+	 */
+	public static void writeAll(Collection<WorkSchedule> workSchedules, OutputStream stream) throws Exception {
+		writeAll(workSchedules, new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Read a work schedule from a JSON object
+	 * 
+	 * @param reader Reader
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule read(Reader reader) throws Exception {
+		JsonPullParser parser = new JsonPullParser(reader);
+		expect(parser, parser.next(), Token.BEGIN_OBJECT);
+		return readSchedule(parser);
+	}
+
+	/**
+	 * Read a work schedule from a UTF-8 JSON object
+	 * 
+	 * @param stream Input stream
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule read(InputStream stream) throws Exception {
+		return read(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Read a JSON array of work schedules, or a single schedule, passing each
+	 * schedule to the consumer as soon as it is read. Only one schedule is held
+	 * at a time.
+	 * 
+	 * @param reader   Reader
+	 * @param consumer Consumer of each {@link WorkSchedule}
+	 * @return Number of schedules read
+	 * @throws Exception exception
+	 */
+	public static int readEach(Reader reader, Consumer<WorkSchedule> consumer) throws Exception {
+		JsonPullParser parser = new JsonPullParser(reader);
+		Token token = parser.next();
+
+		if (token == Token.BEGIN_OBJECT) {
+			consumer.accept(readSchedule(parser));
+			return 1;
+		}
+
+		expect(parser, token, Token.BEGIN_ARRAY);
+		int count = 0;
+
+		while ((token = parser.next()) != Token.END_ARRAY) {
+			expect(parser, token, Token.BEGIN_OBJECT);
+			consumer.accept(readSchedule(parser));
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Read a JSON array of work schedules, or a single schedule
+	 * 
+	 * @param reader Reader
+	 * @return List of {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static List<WorkSchedule> readAll(Reader reader) throws Exception {
+		List<WorkSchedule> workSchedules = new ArrayList<>();
+		readEach(reader, workSchedules::add);
+		return workSchedules;
+	}
+
+	/**
+	 * Read a UTF-8 JSON array of work schedules, or a single schedule
+	 * 
+	 * @param stream Input stream
+	 * @return List of {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static List<WorkSchedule> readAll(InputStream stream) throws Exception {
+		return readAll(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)));
+	}
+
+	private static void writeSchedule(JsonStreamWriter json, WorkSchedule workSchedule) throws Exception {
+		json.beginObject();
+		writeNamed(json, workSchedule);
+
+		if (workSchedule.getVersion() != null) {
+			json.name("version").value(workSchedule.getVersion());
+		}
+
+		json.name("shifts").beginArray();
+		for (Shift shift : workSchedule.getShifts()) {
+			json.beginObject();
+			writeNamed(json, shift);
+			json.name("start").value(shift.getStart().toString());
+			json.name("duration").value(shift.getDuration().toString());
+
+			if (!shift.getBreaks().isEmpty()) {
+				json.name("breaks").beginArray();
+				for (Break breakPeriod : shift.getBreaks()) {
+					json.beginObject();
+					writeNamed(json, breakPeriod);
+					json.name("start").value(breakPeriod.getStart().toString());
+					json.name("duration").value(breakPeriod.getDuration().toString());
+					json.endObject();
+				}
+				json.endArray();
+			}
+			json.endObject();
+		}
+		json.endArray();
+
+		json.name("rotations").beginArray();
+		for (Rotation rotation : workSchedule.getRotations()) {
+			json.beginObject();
+			writeNamed(json, rotation);
+
+			json.name("segments").beginArray();
+			for (RotationSegment segment : rotation.getRotationSegments()) {
+				json.beginObject();
+				json.name("shift").value(segment.getStartingShift().getName());
+				json.name("daysOn").value(segment.getDaysOn());
+				json.name("daysOff").value(segment.getDaysOff());
+				json.name("sequence").value(segment.getSequence());
+				json.endObject();
+			}
+			json.endArray();
+			json.endObject();
+		}
+		json.endArray();
+
+		json.name("teams").beginArray();
+		for (Team team : workSchedule.getTeams()) {
+			json.beginObject();
+			writeNamed(json, team);
+			json.name("rotation").value(team.getRotation().getName());
+			json.name("rotationStart").value(team.getRotationStart().toString());
+
+			if (!team.getAssignedMembers().isEmpty()) {
+				json.name("members").beginArray();
+				for (TeamMember member : team.getAssignedMembers()) {
+					writeMember(json, member);
+				}
+				json.endArray();
+			}
+
+			if (!team.getMemberExceptions().isEmpty()) {
+				json.name("exceptions").beginArray();
+				for (TeamMemberException exception : team.getMemberExceptions()) {
+					json.beginObject();
+					json.optional("dateTime", exception.getDateTime());
+					json.optional("reason", exception.getReason());
+
+					if (exception.getAddition() != null) {
+						json.name("addition");
+						writeMember(json, exception.getAddition());
+					}
+
+					if (exception.getRemoval() != null) {
+						json.name("removal");
+						writeMember(json, exception.getRemoval());
+					}
+					json.endObject();
+				}
+				json.endArray();
+			}
+			json.endObject();
+		}
+		json.endArray();
+
+		json.name("nonWorkingPeriods").beginArray();
+		for (NonWorkingPeriod period : workSchedule.getNonWorkingPeriods()) {
+			json.beginObject();
+			writeNamed(json, period);
+			json.name("start").value(period.getStartDateTime().toString());
+			json.name("duration").value(period.getDuration().toString());
+			json.endObject();
+		}
+		json.endArray();
+
+		json.endObject();
+	}
+
+	private static void writeNamed(JsonStreamWriter json, Named named) throws Exception {
+		json.name("name").value(named.getName());
+		json.optional("description", named.getDescription());
+	}
+
+	private static void writeMember(JsonStreamWriter json, TeamMember member) throws Exception {
+		json.beginObject();
+		writeNamed(json, member);
+		json.optional("id", member.getMemberID());
+		json.endObject();
+	}
+
+	// read the rest of a schedule object
+	private static WorkSchedule readSchedule(JsonPullParser parser) throws Exception {
+		WorkSchedule workSchedule = new WorkSchedule();
+		String name = null;
+		String description = null;
+
+		Map<String, Shift> shifts = new HashMap<>();
+		Map<String, Rotation> rotations = new HashMap<>();
+
+		// one object for each distinct member
+		Map<TeamMember, TeamMember> members = new HashMap<>();
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "name":
+				name = readString(parser);
+				break;
+			case "description":
+				description = readString(parser);
+				break;
+			case "version":
+				workSchedule.setVersion(readInt(parser));
+				break;
+			case "shifts":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						Shift shift = readShift(parser, workSchedule);
+						shifts.put(shift.getName(), shift);
+					}
+				}
+				break;
+			case "rotations":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						Rotation rotation = readRotation(parser, workSchedule, shifts);
+						rotations.put(rotation.getName(), rotation);
+					}
+				}
+				break;
+			case "teams":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						readTeam(parser, workSchedule, rotations, members);
+					}
+				}
+				break;
+			case "nonWorkingPeriods":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						readNonWorkingPeriod(parser, workSchedule);
+					}
+				}
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+
+		workSchedule.setName(name);
+		workSchedule.setDescription(description);
+		return workSchedule;
+	}
+
+	private static Shift readShift(JsonPullParser parser, WorkSchedule workSchedule) throws Exception {
+		String name = null;
+		String description = null;
+		LocalTime start = null;
+		Duration duration = null;
+		List<Break> breaks = new ArrayList<>();
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "name":
+				name = readString(parser);
+				break;
+			case "description":
+				description = readString(parser);
+				break;
+			case "start":
+				start = LocalTime.parse(readString(parser));
+				break;
+			case "duration":
+				duration = Duration.parse(readString(parser));
+				break;
+			case "breaks":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						breaks.add(readBreak(parser));
+					}
+				}
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+
+		Shift shift = workSchedule.createShift(name, description, start, duration);
+
+		for (Break breakPeriod : breaks) {
+			shift.addBreak(breakPeriod);
+		}
+		return shift;
+	}
+
+	private static Break readBreak(JsonPullParser parser) throws Exception {
+		String name = null;
+		String description = null;
+		LocalTime start = null;
+		Duration duration = null;
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "name":
+				name = readString(parser);
+				break;
+			case "description":
+				description = readString(parser);
+				break;
+			case "start":
+				start = LocalTime.parse(readString(parser));
+				break;
+			case "duration":
+				duration = Duration.parse(readString(parser));
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+
+		return new Break(name, description, start, duration);
+	}
+
+	private static Rotation readRotation(JsonPullParser parser, WorkSchedule workSchedule, Map<String, Shift> shifts)
+			throws Exception {
+		String name = null;
+		String description = null;
+		List<Shift> segmentShifts = new ArrayList<>();
+		List<int[]> segments = new ArrayList<>();
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "name":
+				name = readString(parser);
+				break;
+			case "description":
+				description = readString(parser);
+				break;
+			case "segments":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						// days on, days off and sequence
+						int[] segment = new int[3];
+						Shift shift = null;
+
+						while ((token = parser.next()) == Token.NAME) {
+							switch (parser.getText()) {
+							case "shift":
+								shift = lookUp(parser, shifts, readString(parser));
+								break;
+							case "daysOn":
+								segment[0] = readInt(parser);
+								break;
+							case "daysOff":
+								segment[1] = readInt(parser);
+								break;
+							case "sequence":
+								segment[2] = readInt(parser);
+								break;
+							default:
+								parser.skipValue(parser.next());
+								break;
+							}
+						}
+						expect(parser, token, Token.END_OBJECT);
+						segmentShifts.add(shift);
+						segments.add(segment);
+					}
+				}
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+
+		Rotation rotation = workSchedule.createRotation(name, description);
+
+		for (int i = 0; i < segments.size(); i++) {
+			int[] segment = segments.get(i);
+			RotationSegment added = rotation.addSegment(segmentShifts.get(i), segment[0], segment[1]);
+
+			if (segment[2] != 0 && segment[2] != added.getSequence()) {
+				added.setSequence(segment[2]);
+			}
+		}
+		return rotation;
+	}
+
+	private static Team readTeam(JsonPullParser parser, WorkSchedule workSchedule, Map<String, Rotation> rotations,
+			Map<TeamMember, TeamMember> distinctMembers) throws Exception {
+		String name = null;
+		String description = null;
+		Rotation rotation = null;
+		LocalDate rotationStart = null;
+		List<TeamMember> members = new ArrayList<>();
+		List<TeamMemberException> exceptions = new ArrayList<>();
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "name":
+				name = readString(parser);
+				break;
+			case "description":
+				description = readString(parser);
+				break;
+			case "rotation":
+				rotation = lookUp(parser, rotations, readString(parser));
+				break;
+			case "rotationStart":
+				rotationStart = LocalDate.parse(readString(parser));
+				break;
+			case "members":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						members.add(intern(readMember(parser), distinctMembers));
+					}
+				}
+				break;
+			case "exceptions":
+				if (beginArray(parser)) {
+					while (nextInArray(parser)) {
+						exceptions.add(readMemberException(parser, distinctMembers));
+					}
+				}
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+
+		Team team = workSchedule.createTeam(name, description, rotation, rotationStart);
+
+		for (TeamMember member : members) {
+			team.addMember(member);
+		}
+
+		for (TeamMemberException exception : exceptions) {
+			team.addMemberException(exception);
+		}
+		return team;
+	}
+
+	private static TeamMember readMember(JsonPullParser parser) throws Exception {
+		TeamMember member = new TeamMember();
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "name":
+				member.setName(readString(parser));
+				break;
+			case "description":
+				member.setDescription(readString(parser));
+				break;
+			case "id":
+				member.setMemberID(readString(parser));
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+		return member;
+	}
+
+	private static TeamMemberException readMemberException(JsonPullParser parser,
+			Map<TeamMember, TeamMember> distinctMembers) throws Exception {
+		LocalDateTime dateTime = null;
+		String reason = null;
+		TeamMember addition = null;
+		TeamMember removal = null;
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "dateTime":
+				String value = readString(parser);
+				dateTime = value != null ? LocalDateTime.parse(value) : null;
+				break;
+			case "reason":
+				reason = readString(parser);
+				break;
+			case "addition":
+				addition = intern(readOptionalMember(parser), distinctMembers);
+				break;
+			case "removal":
+				removal = intern(readOptionalMember(parser), distinctMembers);
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+
+		TeamMemberException exception = new TeamMemberException(dateTime);
+		exception.setReason(reason);
+		exception.setAddition(addition);
+		exception.setRemoval(removal);
+		return exception;
+	}
+
+	private static TeamMember readOptionalMember(JsonPullParser parser) throws Exception {
+		Token token = parser.next();
+
+		if (token == Token.NULL) {
+			return null;
+		}
+		expect(parser, token, Token.BEGIN_OBJECT);
+		return readMember(parser);
+	}
+
+	private static TeamMember intern(TeamMember member, Map<TeamMember, TeamMember> distinctMembers) {
+		if (member == null) {
+			return null;
+		}
+		return distinctMembers.computeIfAbsent(member, key -> key);
+	}
+
+	private static void readNonWorkingPeriod(JsonPullParser parser, WorkSchedule workSchedule) throws Exception {
+		String name = null;
+		String description = null;
+		LocalDateTime start = null;
+		Duration duration = null;
+
+		Token token;
+		while ((token = parser.next()) == Token.NAME) {
+			switch (parser.getText()) {
+			case "name":
+				name = readString(parser);
+				break;
+			case "description":
+				description = readString(parser);
+				break;
+			case "start":
+				start = LocalDateTime.parse(readString(parser));
+				break;
+			case "duration":
+				duration = Duration.parse(readString(parser));
+				break;
+			default:
+				parser.skipValue(parser.next());
+				break;
+			}
+		}
+		expect(parser, token, Token.END_OBJECT);
+
+		workSchedule.createNonWorkingPeriod(name, description, start, duration);
+	}
+
+	// start an array value, false if it is null
+	private static boolean beginArray(JsonPullParser parser) throws Exception {
+		Token token = parser.next();
+
+		if (token == Token.NULL) {
+			return false;
+		}
+		expect(parser, token, Token.BEGIN_ARRAY);
+		return true;
+	}
+
+	// move to the next object in an array, false at the end of the array
+	private static boolean nextInArray(JsonPullParser parser) throws Exception {
+		Token token = parser.next();
+
+		if (token == Token.END_ARRAY) {
+			return false;
+		}
+		expect(parser, token, Token.BEGIN_OBJECT);
+		return true;
+	}
+
+	private static <T> T lookUp(JsonPullParser parser, Map<String, T> defined, String name) throws Exception {
+		T value = defined.get(name);
+
+		if (value == null) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("json.unknown.reference"), name);
+			throw parser.syntaxError(msg);
+		}
+		return value;
+	}
+
+	private static String readString(JsonPullParser parser) throws Exception {
+		Token token = parser.next();
+
+		if (token == Token.NULL) {
+			return null;
+		}
+		expect(parser, token, Token.STRING);
+		return parser.getText();
+	}
+
+	private static int readInt(JsonPullParser parser) throws Exception {
+		expect(parser, parser.next(), Token.NUMBER);
+
+		try {
+			return Integer.parseInt(parser.getText());
+		} catch (NumberFormatException e) {
+			throw parser.syntaxError(parser.getText());
+		}
+	}
+
+	private static void expect(JsonPullParser parser, Token token, Token expected) throws Exception {
+		if (token != expected) {
+			throw parser.syntaxError("expected " + expected + " but found " + token);
+		}
+	}
+}
@@ -0,0 +1,311 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Class WorkingCalendar is a bit set with one bit per slot of time, set if the
+ * slot is scheduled for work. It is created for a range of date and time by
+ * {@link WorkSchedule#createWorkingCalendar(LocalDateTime, LocalDateTime, Duration)}.
+ * A slot is working if a shift instance is in progress at the slot's start and
+ * the start is not in a non-working period. Calendars with the same start,
+ * resolution and length can be combined a word at a time, for example with a
+ * calendar of machine up time.
+ * 
+ * @author Kent Randall
+ *
+ */
+public final class WorkingCalendar {
+	private static final int WORD_BITS = 64;
+
+	// most slots in a calendar
+	static final int MAX_SLOTS = Integer.MAX_VALUE - WORD_BITS;
+
+	// start of the first slot in seconds from the epoch
+	private final long startSecond;
+
+	// duration of a slot
+	private final long resolutionSeconds;
+
+	// number of slots
+	private final int slotCount;
+
+	// one bit per slot, bits beyond the last slot are clear
+	private final long[] words;
+
+	WorkingCalendar(long startSecond, long resolutionSeconds, int slotCount) {
+		this.startSecond = startSecond;
+		this.resolutionSeconds = resolutionSeconds;
+		this.slotCount = slotCount;
+		this.words = new long[(slotCount + WORD_BITS - 1) / WORD_BITS];
+	}
+
+	/**
+	 * Create a calendar from bits, for example of machine up time
+	 * 
+	 * @param start      Start of the first slot
+	 * @param resolution Duration of a slot, at least one second
+	 * @param slotCount  Number of slots
+	 * @param bits       Bits of the slots in the order of {@link #toLongArray()}
+	 * @return {@link WorkingCalendar}
+	 * @throws Exception exception
+	 */
+	public static WorkingCalendar of(LocalDateTime start, Duration resolution, int slotCount, long[] bits)
+			throws Exception {
+		WorkingCalendar calendar = new WorkingCalendar(Team.toRoundedSecond(start), checkResolution(resolution),
+				slotCount);
+		System.arraycopy(bits, 0, calendar.words, 0, Math.min(bits.length, calendar.words.length));
+		calendar.clearUnusedBits();
+		return calendar;
+	}
+
+	static long checkResolution(Duration resolution) throws Exception {
+		long seconds = resolution.getSeconds();
+
+		if (seconds < 1) {
+			throw new Exception(WorkSchedule.getMessage("resolution.too.short"));
+		}
+		return seconds;
+	}
+
+	/**
+	 * Get the start of the first slot
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStart() {
+		return LocalDateTime.ofEpochSecond(startSecond, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Get the duration of a slot
+	 * 
+	 * @return Duration
+	 */
+	public Duration getResolution() {
+		return Duration.ofSeconds(resolutionSeconds);
+	}
+
+	/**
+	 * Get the number of slots
+	 * 
+	 * @return Slot count
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * Check to see if this slot is scheduled for work
+	 * 
+	 * @param slot Slot index
+	 * @return True if working
+	 * @throws Exception exception
+	 */
+	public boolean isWorking(int slot) throws Exception {
+		if (slot < 0 || slot >= slotCount) {
+			throw new Exception(
+					MessageFormat.format(WorkSchedule.getMessage("slot.out.of.range"), slot, slotCount));
+		}
+		return isSet(slot);
+	}
+
+	/**
+	 * Check to see if the slot containing this date and time of day is scheduled
+	 * for work
+	 * 
+	 * @param dateTime Date and time
+	 * @return True if working, false if not or outside of the calendar
+	 */
+	public boolean isWorking(LocalDateTime dateTime) {
+		long offset = dateTime.toEpochSecond(ZoneOffset.UTC) - startSecond;
+
+		if (offset < 0 || offset / resolutionSeconds >= slotCount) {
+			return false;
+		}
+		return isSet((int) (offset / resolutionSeconds));
+	}
+
+	/**
+	 * Count the working slots
+	 * 
+	 * @return Working slot count
+	 */
+	public int getWorkingSlotCount() {
+		int count = 0;
+
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Get the working time, the number of working slots times the resolution
+	 * 
+	 * @return Duration
+	 */
+	public Duration getWorkingTime() {
+		return Duration.ofSeconds(getWorkingSlotCount() * resolutionSeconds);
+	}
+
+	/**
+	 * Create a calendar of the slots working in both calendars
+	 * 
+	 * @param other {@link WorkingCalendar} with the same start, resolution and
+	 *              length
+	 * @return {@link WorkingCalendar}
+	 * @throws Exception exception
+	 */
+	public WorkingCalendar and(WorkingCalendar other) throws Exception {
+		checkAligned(other);
+		WorkingCalendar result = new WorkingCalendar(startSecond, resolutionSeconds, slotCount);
+
+		for (int i = 0; i < words.length; i++) {
+			result.words[i] = words[i] & other.words[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Create a calendar of the slots working in either calendar
+	 * 
+	 * @param other {@link WorkingCalendar} with the same start, resolution and
+	 *              length
+	 * @return {@link WorkingCalendar}
+	 * @throws Exception exception
+	 */
+	public WorkingCalendar or(WorkingCalendar other) throws Exception {
+		checkAligned(other);
+		WorkingCalendar result = new WorkingCalendar(startSecond, resolutionSeconds, slotCount);
+
+		for (int i = 0; i < words.length; i++) {
+			result.words[i] = words[i] | other.words[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Create a calendar of the slots working in this calendar and not in the other
+	 * 
+	 * @param other {@link WorkingCalendar} with the same start, resolution and
+	 *              length
+	 * @return {@link WorkingCalendar}
+	 * @throws Exception exception
+	 */
+	public WorkingCalendar andNot(WorkingCalendar other) throws Exception {
+		checkAligned(other);
+		WorkingCalendar result = new WorkingCalendar(startSecond, resolutionSeconds, slotCount);
+
+		for (int i = 0; i < words.length; i++) {
+			result.words[i] = words[i] & ~other.words[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Copy the bits, slot i is bit (i % 64) of word (i / 64)
+	 * 
+	 * @return Array of words
+	 */
+	public long[] toLongArray() {
+		return Arrays.copyOf(words, words.length);
+	}
+
+	private void checkAligned(WorkingCalendar other) throws Exception {
+		if (startSecond != other.startSecond || resolutionSeconds != other.resolutionSeconds
+				|| slotCount != other.slotCount) {
+			throw new Exception(WorkSchedule.getMessage("calendar.not.aligned"));
+		}
+	}
+
+	// the bit of a slot in range
+	private boolean isSet(int slot) {
+		return (words[slot / WORD_BITS] & (1L << slot)) != 0;
+	}
+
+	// set the slots starting in this range of seconds
+	void set(long fromSecond, long toSecond) {
+		setRange(firstSlotAtOrAfter(fromSecond), firstSlotAtOrAfter(toSecond), true);
+	}
+
+	// clear the slots starting in this range of seconds
+	void clear(long fromSecond, long toSecond) {
+		setRange(firstSlotAtOrAfter(fromSecond), firstSlotAtOrAfter(toSecond), false);
+	}
+
+	// index of the first slot starting at or after this second
+	private int firstSlotAtOrAfter(long second) {
+		long offset = second - startSecond;
+
+		if (offset <= 0) {
+			return 0;
+		}
+
+		long slot = (offset + resolutionSeconds - 1) / resolutionSeconds;
+		return (int) Math.min(slot, slotCount);
+	}
+
+	// set or clear the slots from the first (inclusive) to the last (exclusive)
+	private void setRange(int first, int last, boolean value) {
+		if (first >= last) {
+			return;
+		}
+
+		int firstWord = first / WORD_BITS;
+		int lastWord = (last - 1) / WORD_BITS;
+		long firstMask = -1L << first;
+		long lastMask = -1L >>> -last;
+
+		for (int i = firstWord; i <= lastWord; i++) {
+			long mask = -1L;
+
+			if (i == firstWord) {
+				mask &= firstMask;
+			}
+
+			if (i == lastWord) {
+				mask &= lastMask;
+			}
+
+			if (value) {
+				words[i] |= mask;
+			} else {
+				words[i] &= ~mask;
+			}
+		}
+	}
+
+	private void clearUnusedBits() {
+		if (words.length > 0 && slotCount % WORD_BITS != 0) {
+			words[words.length - 1] &= -1L >>> -slotCount;
+		}
+	}
+}
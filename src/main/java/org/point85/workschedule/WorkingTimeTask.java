@@ -0,0 +1,78 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class WorkingTimeTask sums the working seconds of a range of teams, splitting
+ * the range in half until it is small enough to sum directly. The teams'
+ * rotations must have started before the first second.
+ * 
+ * @author Kent Randall
+ *
+ */
+class WorkingTimeTask extends RecursiveTask<Long> {
+	private static final long serialVersionUID = 1L;
+
+	// teams summed without splitting
+	static final int TEAMS_PER_TASK = 4;
+
+	private final Team[] teams;
+	private final int first;
+	private final int last;
+	private final long fromSecond;
+	private final long toSecond;
+	private final boolean net;
+
+	WorkingTimeTask(Team[] teams, int first, int last, long fromSecond, long toSecond, boolean net) {
+		this.teams = teams;
+		this.first = first;
+		this.last = last;
+		this.fromSecond = fromSecond;
+		this.toSecond = toSecond;
+		this.net = net;
+	}
+
+	@Override
+	protected Long compute() {
+		if (last - first <= TEAMS_PER_TASK) {
+			long sum = 0;
+
+			for (int i = first; i < last; i++) {
+				sum += teams[i].getWorkingSeconds(fromSecond, toSecond, net);
+			}
+			return sum;
+		}
+
+		int middle = (first + last) >>> 1;
+		WorkingTimeTask left = new WorkingTimeTask(teams, first, middle, fromSecond, toSecond, net);
+		WorkingTimeTask right = new WorkingTimeTask(teams, middle, last, fromSecond, toSecond, net);
+
+		left.fork();
+		long rightSum = right.compute();
+		return left.join() + rightSum;
+	}
+}
@@ -296,6 +296,47 @@ public abstract class BaseTest {
 		assertTrue(schedule.getNonWorkingPeriods().size() == 0);
 	}
 	
+	// create a schedule with a 12 hour day shift at 07:00, a 12 hour night shift at
+	// 19:00 and a rotation of days then nights
+	protected Rotation createDayNightSchedule(String name, String description, int daysOn, int daysOff)
+			throws Exception {
+		schedule = new WorkSchedule(name, description);
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DN", "Day night");
+		rotation.addSegment(day, daysOn, daysOff);
+		rotation.addSegment(night, daysOn, daysOff);
+		return rotation;
+	}
+
+	// create a schedule with a team starting on this date whose rotation ends with
+	// a night shift that runs past midnight
+	protected Team createLastNightSchedule(String name, LocalDate rotationStart) throws Exception {
+		schedule = new WorkSchedule(name, "Night shift on the last rotation day");
+
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("N", "Nights");
+		rotation.addSegment(night, 1, 1);
+		rotation.addSegment(night, 1, 0);
+		return schedule.createTeam("A", "A team", rotation, rotationStart);
+	}
+
+	// create a schedule with this many one hour non-working periods, created out
+	// of start order
+	protected WorkSchedule createPeriodSchedule(int count) throws Exception {
+		schedule = new WorkSchedule("Periods", "Non-working periods");
+		LocalDateTime first = LocalDateTime.of(2020, 1, 1, 0, 0, 0);
+
+		for (int i = 0; i < count; i++) {
+			LocalDateTime start = first.plusHours((i * 7919L) % count * 2);
+			schedule.createNonWorkingPeriod("Period" + i, "Period #" + i, start, Duration.ofHours(1));
+		}
+		return schedule;
+	}
+
 	protected boolean isCloseTo(double actualValue, double expectedValue, double delta) {
 		double diff = Math.abs(actualValue - expectedValue);
 		return (diff <= delta) ? true : false;
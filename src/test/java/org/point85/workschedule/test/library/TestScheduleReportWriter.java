@@ -0,0 +1,110 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.ScheduleReportWriter;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.Team;
+import org.point85.workschedule.TeamMember;
+
+public class TestScheduleReportWriter extends BaseTest {
+
+	@Test
+	public void testReportWriter() throws Exception {
+		Rotation rotation = createDayNightSchedule("Report", "Report schedule", 2, 1);
+
+		Shift day = schedule.getShifts().get(0);
+		day.createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofMinutes(30));
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		Team a = schedule.createTeam("A", "A team", rotation, start);
+		Team b = schedule.createTeam("B", "B team", rotation, start.plusDays(3));
+		a.addMember(new TeamMember("Ann", "A member", "1"));
+		b.addMember(new TeamMember("Bob", "B member", "2"));
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 10, 0, 0, 0),
+				Duration.ofDays(1));
+
+		// same text as the instances for each day
+		LocalDate first = start.plusDays(3);
+		LocalDate last = start.plusDays(60);
+		String lineSeparator = System.lineSeparator();
+
+		StringBuilder expected = new StringBuilder("Working shifts").append(lineSeparator);
+		int dayCount = 1;
+		for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+			expected.append("[").append(dayCount++).append("] Day: ").append(date).append(lineSeparator);
+
+			List<ShiftInstance> instances = schedule.getShiftInstancesForDay(date);
+			if (instances.isEmpty()) {
+				expected.append("   No working shifts").append(lineSeparator);
+			}
+			for (int i = 0; i < instances.size(); i++) {
+				expected.append("   (").append(i + 1).append(")").append(instances.get(i)).append(lineSeparator);
+			}
+		}
+
+		StringWriter writer = new StringWriter();
+		ScheduleReportWriter reportWriter = new ScheduleReportWriter(writer, Locale.ENGLISH);
+		reportWriter.writeShiftInstances(schedule, first, last);
+		reportWriter.flush();
+		assertTrue(writer.toString().equals(expected.toString()));
+
+		// schedule definition
+		StringBuilder text = new StringBuilder();
+		new ScheduleReportWriter(text, Locale.ENGLISH).writeSchedule(schedule);
+		assertTrue(text.toString().startsWith("Schedule: Report (Report schedule)"));
+		assertTrue(text.toString().contains(day.toString()));
+		assertTrue(text.toString().contains(a.toString()));
+		assertTrue(text.toString().contains("Total team coverage: 66.67%"));
+		assertTrue(text.toString().equals(schedule.toString()));
+
+		// locale of the numbers
+		text = new StringBuilder();
+		new ScheduleReportWriter(text, Locale.GERMAN).writeSchedule(schedule);
+		assertTrue(text.toString().contains("66,67%"));
+
+		try {
+			reportWriter.writeShiftInstances(schedule, last, first);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+}
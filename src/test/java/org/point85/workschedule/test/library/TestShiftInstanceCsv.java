@@ -0,0 +1,181 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.ShiftInstanceCsv;
+import org.point85.workschedule.Team;
+import org.point85.workschedule.TeamMember;
+import org.point85.workschedule.TeamMemberException;
+
+public class TestShiftInstanceCsv extends BaseTest {
+
+	@Test
+	public void testShiftInstanceCsv() throws Exception {
+		Rotation rotation = createDayNightSchedule("CSV", "CSV schedule", 2, 1);
+
+		// a name to quote
+		Shift night = schedule.getShifts().get(1);
+		night.setName("Night, \"late\"");
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		Team a = schedule.createTeam("A", "A team", rotation, start);
+		Team b = schedule.createTeam("B", "B team", rotation, start.minusDays(3));
+		a.addMember(new TeamMember("Ann", "A member", "1"));
+		a.addMember(new TeamMember("Al", "A member", "2"));
+		b.addMember(new TeamMember("Bob", "B member", "3"));
+
+		// an extra member for one instance
+		TeamMemberException extra = new TeamMemberException(
+				b.getShiftInstanceForDay(LocalDate.of(2021, 1, 4)).getStartTime());
+		extra.setAddition(new TeamMember("Bea", "Extra member", "4"));
+		b.addMemberException(extra);
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 10, 0, 0, 0),
+				Duration.ofDays(1));
+
+		LocalDate first = start;
+		LocalDate last = start.plusDays(99);
+
+		StringBuilder expected = new StringBuilder("start_epoch,end_epoch,team,shift,member_count,members\n");
+		int rows = 0;
+		for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+			for (ShiftInstance instance : schedule.getShiftInstancesForDay(date)) {
+				List<TeamMember> members = instance.getTeam().getMembers(instance.getStartTime());
+				expected.append(instance.getStartTime().toEpochSecond(ZoneOffset.UTC)).append(',')
+						.append(instance.getEndTime().toEpochSecond(ZoneOffset.UTC)).append(',')
+						.append(instance.getTeam().getName()).append(',')
+						.append(instance.getShift() == night ? "\"Night, \"\"late\"\"\"" : "Day").append(',')
+						.append(members.size()).append(',');
+				for (int i = 0; i < members.size(); i++) {
+					expected.append(i > 0 ? ";" : "").append(members.get(i).getMemberID());
+				}
+				expected.append('\n');
+				rows++;
+			}
+		}
+		assertTrue(expected.indexOf(",B,Day,2,3;4\n") > 0);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		long count = ShiftInstanceCsv.write(schedule, first, last, Channels.newChannel(stream));
+		assertTrue(count == rows);
+		String text = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(text.equals(expected.toString()));
+
+		// partitioned files written in parallel
+		Path directory = Files.createTempDirectory("csv");
+		try {
+			List<Path> paths = ShiftInstanceCsv.writePartitioned(schedule, first, last, 7, directory,
+					new ForkJoinPool(3));
+			assertTrue(paths.size() == 15);
+			assertTrue(paths.get(1).getFileName().toString().equals("shift-instances-2021-01-08.csv"));
+
+			StringBuilder joined = new StringBuilder("start_epoch,end_epoch,team,shift,member_count,members\n");
+			for (Path path : paths) {
+				String part = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+				assertTrue(part.startsWith("start_epoch,"));
+				joined.append(part.substring(part.indexOf('\n') + 1));
+			}
+			assertTrue(joined.toString().equals(text));
+
+			// daily files reuse a buffer per worker thread
+			BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+					.filter(pool -> pool.getName().equals("direct")).findFirst().get();
+			long buffers = direct.getCount();
+			assertTrue(ShiftInstanceCsv.writePartitioned(schedule, first, last, 1, directory, new ForkJoinPool(3))
+					.size() == 100);
+			assertTrue(direct.getCount() - buffers <= 3);
+
+			try {
+				ShiftInstanceCsv.writePartitioned(schedule, first, last, 0, directory, new ForkJoinPool(1));
+				fail();
+			} catch (Exception e) {
+				// expected
+			}
+		} finally {
+			for (Path path : Files.list(directory).toArray(Path[]::new)) {
+				Files.delete(path);
+			}
+			Files.delete(directory);
+		}
+
+		// a failed write does not leave rows in this thread's buffer
+		try {
+			ShiftInstanceCsv.write(schedule, first, last, new WritableByteChannel() {
+				@Override
+				public int write(ByteBuffer source) throws IOException {
+					throw new IOException("closed");
+				}
+
+				@Override
+				public boolean isOpen() {
+					return false;
+				}
+
+				@Override
+				public void close() {
+				}
+			});
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+
+		stream.reset();
+		ShiftInstanceCsv.write(schedule, first, last, Channels.newChannel(stream));
+		assertTrue(new String(stream.toByteArray(), StandardCharsets.UTF_8).equals(text));
+
+		// rotation not started
+		try {
+			ShiftInstanceCsv.write(schedule, start.minusDays(1), last, Channels.newChannel(stream));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.ShiftInstanceCursor;
+import org.point85.workschedule.WorkSchedule;
+
+public class TestShiftInstanceCursor extends BaseTest {
+
+	@Test
+	public void testShiftInstanceCursor() throws Exception {
+		schedule = new WorkSchedule("Cursor", "Test shift instance cursor");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		// 7 days ON, 7 OFF
+		Rotation dayRotation = schedule.createRotation("Day", "Day");
+		dayRotation.addSegment(day, 7, 7);
+
+		Rotation nightRotation = schedule.createRotation("Night", "Night");
+		nightRotation.addSegment(night, 7, 7);
+
+		schedule.createTeam("A", "A day shift", dayRotation, LocalDate.of(2014, 1, 2));
+		schedule.createTeam("B", "B night shift", nightRotation, LocalDate.of(2014, 1, 2));
+		schedule.createTeam("C", "C day shift", dayRotation, LocalDate.of(2014, 1, 9));
+		schedule.createTeam("D", "D night shift", nightRotation, LocalDate.of(2014, 1, 9));
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 12, 25, 0, 0, 0),
+				Duration.ofHours(24));
+
+		LocalDateTime from = LocalDateTime.of(2021, 12, 1, 12, 0, 0);
+		LocalDateTime to = LocalDateTime.of(2022, 1, 31, 19, 0, 0);
+
+		List<ShiftInstance> expected = new ArrayList<>();
+		for (LocalDate date = from.toLocalDate(); !date.isAfter(to.toLocalDate()); date = date.plusDays(1)) {
+			for (ShiftInstance instance : schedule.getShiftInstancesForDay(date)) {
+				if (!instance.getStartTime().isBefore(from) && instance.getStartTime().isBefore(to)) {
+					expected.add(instance);
+				}
+			}
+		}
+
+		ShiftInstanceCursor cursor = schedule.getShiftInstanceCursor(from, to);
+
+		// re-open for the same range
+		for (int pass = 0; pass < 2; pass++) {
+			int count = 0;
+			while (cursor.next()) {
+				ShiftInstance instance = expected.get(count);
+				assertTrue(cursor.toShiftInstance().equals(instance));
+				assertTrue(cursor.getEndTime().equals(instance.getEndTime()));
+				count++;
+			}
+			assertTrue(count == expected.size());
+			cursor.open(from, to);
+		}
+
+		// empty range
+		cursor.open(from, from);
+		assertFalse(cursor.next());
+	}
+
+	@Test
+	public void testRotationStart() throws Exception {
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		createLastNightSchedule("Cursor start", start);
+
+		// no instance from the last rotation day before the start
+		LocalDateTime from = start.atStartOfDay();
+		ShiftInstanceCursor cursor = schedule.getShiftInstanceCursor(from, from.plusDays(3));
+		assertTrue(cursor.next());
+		assertTrue(cursor.getStartTime().equals(from.plusHours(22)));
+		assertTrue(cursor.next());
+		assertTrue(cursor.getStartTime().equals(from.plusDays(2).plusHours(22)));
+		assertFalse(cursor.next());
+
+		// queries opening the cursor a day early agree with the teams on shift
+		long startSecond = from.toEpochSecond(ZoneOffset.UTC);
+		long[] seconds = new long[48];
+		for (int i = 0; i < seconds.length; i++) {
+			seconds[i] = startSecond + i * 3600L;
+		}
+
+		int[] shiftIndexes = new int[seconds.length];
+		int[] teamIndexes = new int[seconds.length];
+		schedule.classifyShifts(seconds, shiftIndexes, teamIndexes);
+
+		for (int i = 0; i < seconds.length; i++) {
+			assertTrue((teamIndexes[i] >= 0) == (schedule.teamsOnShiftAt(seconds[i]) > 0));
+		}
+		assertTrue(teamIndexes[3] < 0);
+	}
+}
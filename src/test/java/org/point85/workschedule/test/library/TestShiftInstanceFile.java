@@ -0,0 +1,112 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.junit.Test;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.ShiftInstanceFile;
+
+public class TestShiftInstanceFile extends BaseTest {
+
+	@Test
+	public void testShiftInstanceFile() throws Exception {
+		Rotation rotation = createDayNightSchedule("File", "Shift instance file", 2, 1);
+		Shift full = schedule.createShift("Full", "24 hour shift", LocalTime.of(0, 0, 0), Duration.ofHours(24));
+
+		Rotation fullRotation = schedule.createRotation("F", "Full days");
+		fullRotation.addSegment(full, 1, 3);
+
+		schedule.createTeam("A", "A team", rotation, LocalDate.of(2021, 1, 1));
+		schedule.createTeam("B", "B team", rotation, LocalDate.of(2021, 1, 3));
+		schedule.createTeam("C", "C team", fullRotation, LocalDate.of(2021, 1, 1));
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 2, 1, 0, 0, 0),
+				Duration.ofDays(2));
+
+		LocalDate first = LocalDate.of(2021, 1, 10);
+		LocalDate last = LocalDate.of(2021, 3, 10);
+
+		Path path = Files.createTempFile("shifts", ".bin");
+		try {
+			ShiftInstanceFile.write(schedule, first, last, path);
+			ShiftInstanceFile file = ShiftInstanceFile.open(schedule, path);
+
+			assertTrue(file.getFirstDay().equals(first));
+			assertTrue(file.getLastDay().equals(last));
+			assertTrue(file.getInstanceCount() > 0);
+
+			for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+				assertTrue(file.getShiftInstancesForDay(date).equals(schedule.getShiftInstancesForDay(date)));
+				assertTrue(file.getAllShiftInstancesForDay(date).equals(schedule.getAllShiftInstancesForDay(date)));
+
+				for (int hour = 0; hour < 24; hour += 6) {
+					LocalDateTime time = date.atTime(hour, 0, 0);
+					assertTrue(file.getShiftInstancesForTime(time).equals(schedule.getShiftInstancesForTime(time)));
+				}
+			}
+
+			try {
+				file.getShiftInstancesForDay(last.plusDays(1));
+				fail();
+			} catch (Exception e) {
+				// expected
+			}
+
+			// a changed schedule does not open the file
+			schedule.createNonWorkingPeriod("Outage", "Outage", LocalDateTime.of(2021, 2, 20, 8, 0, 0),
+					Duration.ofHours(4));
+
+			try {
+				ShiftInstanceFile.open(schedule, path);
+				fail();
+			} catch (Exception e) {
+				// expected
+			}
+
+			// not a shift instance file
+			Files.write(path, new byte[64]);
+
+			try {
+				ShiftInstanceFile.open(schedule, path);
+				fail();
+			} catch (Exception e) {
+				// expected
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+}
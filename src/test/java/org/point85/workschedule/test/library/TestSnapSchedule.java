@@ -307,7 +307,7 @@ public class TestSnapSchedule extends BaseTest {
 
 		Duration workingTime = schedule.calculateWorkingTime(from, to);
 		Duration nonWorkingTime = schedule.calculateNonWorkingTime(from, to);
-		assertTrue(workingTime.getSeconds() == 1223 * 3600);
+		assertTrue(workingTime.getSeconds() == 1218 * 3600);
 		assertTrue(nonWorkingTime.getSeconds() == 0 * 3600);
 
 		assertTrue(schedule.getRotationDuration().getSeconds() == 384 * 3600);
@@ -539,7 +539,7 @@ public class TestSnapSchedule extends BaseTest {
 
 		Duration workingTime = schedule.calculateWorkingTime(from, to);
 		Duration nonWorkingTime = schedule.calculateNonWorkingTime(from, to);
-		assertTrue(workingTime.getSeconds() == 1320 * 3600);
+		assertTrue(workingTime.getSeconds() == 672 * 3600);
 		assertTrue(nonWorkingTime.getSeconds() == 0 * 3600);
 
 		assertTrue(schedule.getRotationDuration().getSeconds() == 48 * 3600);
@@ -32,16 +32,31 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 import org.point85.workschedule.Break;
+import org.point85.workschedule.CompiledWorkSchedule;
+import org.point85.workschedule.Coverage;
+import org.point85.workschedule.CoverageGap;
 import org.point85.workschedule.NonWorkingPeriod;
 import org.point85.workschedule.Rotation;
 import org.point85.workschedule.RotationSegment;
+import org.point85.workschedule.ScheduleMetricsListener;
 import org.point85.workschedule.Shift;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.ShiftInstanceCache;
+import org.point85.workschedule.ShiftInstanceCursor;
 import org.point85.workschedule.Team;
 import org.point85.workschedule.TeamMember;
 import org.point85.workschedule.TeamMemberException;
@@ -95,7 +110,7 @@ public class TestWorkSchedule extends BaseTest {
 
 		Duration workingTime = schedule.calculateWorkingTime(from, to);
 		Duration nonWorkingTime = schedule.calculateNonWorkingTime(from, to);
-		assertTrue(workingTime.getSeconds() == 696 * 3600);
+		assertTrue(workingTime.getSeconds() == 672 * 3600);
 		assertTrue(nonWorkingTime.getSeconds() == 0 * 3600);
 
 		assertTrue(schedule.getRotationDuration().getSeconds() == 1344 * 3600);
@@ -1176,8 +1191,1587 @@ public class TestWorkSchedule extends BaseTest {
 		assertTrue(!members.contains(one));
 		assertTrue(members.contains(ten));
 
+		// second exception for the same shift instance
+		TeamMemberException helper = new TeamMemberException(exceptionShift);
+		helper.setRemoval(eight);
+		sundayDay.addMemberException(helper);
+
+		members = sundayDay.getMembers(exceptionShift);
+		assertTrue(members.contains(ten));
+		assertTrue(!members.contains(one));
+		assertTrue(!members.contains(eight));
+
+		sundayDay.removeMemberException(replacement);
+
+		members = sundayDay.getMembers(exceptionShift);
+		assertTrue(members.contains(one));
+		assertTrue(!members.contains(ten));
+		assertTrue(!members.contains(eight));
+
+		// replaced directly without changing the size
+		sundayDay.getMemberExceptions().set(0, replacement);
+		members = sundayDay.getMembers(exceptionShift);
+		assertTrue(members.contains(ten));
+		assertTrue(members.contains(eight));
+
+		// removed and added directly without changing the size
+		sundayDay.getMemberExceptions().remove(0);
+		sundayDay.getMemberExceptions().add(helper);
+		members = sundayDay.getMembers(exceptionShift);
+		assertTrue(members.contains(one));
+		assertTrue(!members.contains(eight));
+
+		// changed directly
+		sundayDay.getMemberExceptions().clear();
+		assertTrue(sundayDay.getMembers(exceptionShift).contains(eight));
+
 		for (Team team : schedule.getTeams()) {
 			System.out.println(team.toString());
 		}
 	}
+
+	@Test
+	public void testRotationWorkingTime() throws Exception {
+		schedule = new WorkSchedule("Rotation Working Time", "Test rotation working time");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(6, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(14));
+		Shift full = schedule.createShift("Full", "24 hour shift", LocalTime.of(7, 0, 0), Duration.ofHours(24));
+
+		// ends on a working day
+		Rotation inverse = schedule.createRotation("Inverse", "Inverse day");
+		inverse.addSegment(day, 0, 3);
+		inverse.addSegment(day, 4, 4);
+		inverse.addSegment(day, 3, 0);
+
+		// crosses midnight
+		Rotation mixed = schedule.createRotation("Mixed", "Day and night");
+		mixed.addSegment(day, 1, 0);
+		mixed.addSegment(night, 2, 1);
+
+		// 24 hour shifts
+		Rotation fire = schedule.createRotation("Fire", "24 hours");
+		fire.addSegment(full, 1, 4);
+		fire.addSegment(full, 1, 2);
+
+		LocalDate startRotation = LocalDate.of(2014, 1, 6);
+		schedule.createTeam("Inverse", "Inverse team", inverse, startRotation);
+		schedule.createTeam("Mixed", "Mixed team", mixed, startRotation);
+		schedule.createTeam("Fire", "Fire team", fire, startRotation);
+
+		for (Team team : schedule.getTeams()) {
+			for (int i = 0; i < 200; i++) {
+				LocalDateTime from = LocalDateTime.of(startRotation.plusDays(1 + (i * 7) % 97), LocalTime.of(i % 24, 0));
+				LocalDateTime to = from.plusHours((i * 37L) % 2000);
+
+				// sum of each shift instance clipped to the interval
+				long expected = 0;
+				for (LocalDate date = from.toLocalDate().minusDays(1); !date.isAfter(to.toLocalDate()); date = date
+						.plusDays(1)) {
+					ShiftInstance instance = team.getShiftInstanceForDay(date);
+
+					if (instance == null) {
+						continue;
+					}
+
+					LocalDateTime start = instance.getStartTime().isBefore(from) ? from : instance.getStartTime();
+					LocalDateTime end = instance.getEndTime().isAfter(to) ? to : instance.getEndTime();
+
+					if (end.isAfter(start)) {
+						expected += Duration.between(start, end).getSeconds();
+					}
+				}
+				assertTrue(team.calculateWorkingTime(from, to).getSeconds() == expected);
+			}
+
+			// whole rotations
+			LocalDateTime from = LocalDateTime.of(startRotation, LocalTime.MIDNIGHT);
+			LocalDateTime to = from.plus(team.getRotationDuration().multipliedBy(100));
+			assertTrue(team.calculateWorkingTime(from, to).equals(team.getRotation().getWorkingTime().multipliedBy(100)));
+		}
+	}
+
+	@Test
+	public void testNonWorkingPeriodIndex() throws Exception {
+		schedule = new WorkSchedule("Non-working Index", "Test non-working period index");
+
+		LocalDateTime first = LocalDateTime.of(2020, 1, 1, 0, 0, 0);
+
+		// a decade of holidays and maintenance periods, created out of order
+		for (int i = 0; i < 300; i++) {
+			LocalDateTime start = first.plusDays((i * 7919L) % 3650).plusHours(i % 5);
+			schedule.createNonWorkingPeriod("Period" + i, "Period #" + i, start, Duration.ofHours(1 + (i % 18)));
+
+			// queries between the periods created
+			if (i % 50 == 0) {
+				checkNonWorkingTime(first);
+			}
+		}
+
+		// kept in start order
+		List<NonWorkingPeriod> sorted = new ArrayList<>(schedule.getNonWorkingPeriods());
+		Collections.sort(sorted);
+		assertTrue(sorted.equals(schedule.getNonWorkingPeriods()));
+
+		// names are unique at any start, and a renamed period frees its name
+		try {
+			schedule.createNonWorkingPeriod("Period7", "Period #7", first.plusYears(20), Duration.ofHours(1));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+		for (NonWorkingPeriod period : schedule.getNonWorkingPeriods()) {
+			if (period.getName().equals("Period7")) {
+				period.setName("Renamed");
+			}
+		}
+		NonWorkingPeriod again = schedule.createNonWorkingPeriod("Period7", "Period #7", first.plusYears(20),
+				Duration.ofHours(1));
+		schedule.deleteNonWorkingPeriod(again);
+
+		// move and delete some periods
+		schedule.getNonWorkingPeriods().get(10).setStartDateTime(first.minusDays(3));
+		schedule.getNonWorkingPeriods().get(20).setDuration(Duration.ofHours(2));
+		schedule.deleteNonWorkingPeriod(schedule.getNonWorkingPeriods().get(30));
+		checkNonWorkingTime(first);
+
+		// overlapping periods are counted once
+		schedule.createNonWorkingPeriod("Shutdown", "Shutdown", first.plusDays(100), Duration.ofDays(20));
+		checkNonWorkingTime(first);
+
+		LocalDateTime christmas = LocalDateTime.of(2031, 12, 25, 0, 0, 0);
+		schedule.createNonWorkingPeriod("Christmas", "Christmas", christmas, Duration.ofDays(1));
+		schedule.createNonWorkingPeriod("Holidays", "Holidays", christmas.minusHours(12), Duration.ofDays(3));
+		assertTrue(schedule.calculateNonWorkingTime(christmas.minusDays(1), christmas.plusDays(5))
+				.equals(Duration.ofHours(72)));
+
+		// replaced directly without changing the size
+		int index = schedule.getNonWorkingPeriods().size() - 1;
+		NonWorkingPeriod replaced = schedule.getNonWorkingPeriods().get(index);
+		schedule.getNonWorkingPeriods().set(index,
+				createPeriod("Moved", replaced.getStartDateTime().plusYears(1), Duration.ofDays(3)));
+		checkNonWorkingTime(first);
+
+		// removed and added directly without changing the size
+		schedule.getNonWorkingPeriods().remove(0);
+		schedule.getNonWorkingPeriods().add(createPeriod("Added", first.plusDays(200), Duration.ofHours(30)));
+		checkNonWorkingTime(first);
+	}
+
+	private NonWorkingPeriod createPeriod(String name, LocalDateTime start, Duration duration) throws Exception {
+		NonWorkingPeriod period = new NonWorkingPeriod();
+		period.setName(name);
+		period.setStartDateTime(start);
+		period.setDuration(duration);
+		return period;
+	}
+
+	@Test
+	public void testNonWorkingTimeDaylightSaving() throws Exception {
+		TimeZone defaultZone = TimeZone.getDefault();
+
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+			schedule = new WorkSchedule("Daylight saving", "Test non-working time across a clock change");
+
+			// local date and time is measured without a zone, so a 24 hour period over
+			// the spring forward and fall back changes is 24 hours long
+			LocalDateTime spring = LocalDateTime.of(2021, 3, 14, 0, 0, 0);
+			LocalDateTime fall = LocalDateTime.of(2021, 11, 7, 0, 0, 0);
+			schedule.createNonWorkingPeriod("Spring", "Spring forward", spring, Duration.ofHours(24));
+			schedule.createNonWorkingPeriod("Fall", "Fall back", fall, Duration.ofHours(24));
+
+			assertTrue(schedule.calculateNonWorkingTime(spring, spring.plusDays(1)).equals(Duration.ofHours(24)));
+			assertTrue(schedule.calculateNonWorkingTime(fall, fall.plusDays(1)).equals(Duration.ofHours(24)));
+			assertTrue(schedule.calculateNonWorkingTime(spring.plusHours(1), spring.plusHours(4))
+					.equals(Duration.ofHours(3)));
+			assertTrue(schedule.compile().calculateNonWorkingTime(fall.plusHours(1), fall.plusHours(2))
+					.equals(Duration.ofHours(1)));
+		} finally {
+			TimeZone.setDefault(defaultZone);
+		}
+	}
+
+	private void checkNonWorkingTime(LocalDateTime first) throws Exception {
+		for (int i = 0; i < 400; i++) {
+			LocalDateTime from = first.minusDays(5).plusHours(i * 223L);
+			LocalDateTime to = from.plusHours((i * 31L) % 500);
+
+			long expected = 0;
+			boolean inPeriod = false;
+
+			// time covered by the periods, counting overlaps once
+			List<NonWorkingPeriod> periods = new ArrayList<>(schedule.getNonWorkingPeriods());
+			Collections.sort(periods);
+			LocalDateTime covered = from;
+
+			for (NonWorkingPeriod period : periods) {
+				LocalDateTime start = period.getStartDateTime().isBefore(covered) ? covered
+						: period.getStartDateTime();
+				LocalDateTime end = period.getEndDateTime().isAfter(to) ? to : period.getEndDateTime();
+
+				if (end.isAfter(start)) {
+					expected += Duration.between(start, end).getSeconds();
+					covered = end;
+				}
+
+				if (period.isInPeriod(from.toLocalDate())) {
+					inPeriod = true;
+				}
+			}
+
+			assertTrue(schedule.calculateNonWorkingTime(from, to).getSeconds() == expected);
+			assertTrue(schedule.isNonWorkingDay(from.toLocalDate()) == inPeriod);
+		}
+	}
+
+	@Test
+	public void testCompiledWorkSchedule() throws Exception {
+		schedule = new WorkSchedule("Compiled", "Test compiled schedule");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		// 4 days ON, 4 OFF
+		Rotation dayRotation = schedule.createRotation("Day", "Day");
+		dayRotation.addSegment(day, 4, 4);
+
+		Rotation nightRotation = schedule.createRotation("Night", "Night");
+		nightRotation.addSegment(night, 4, 4);
+
+		Team a = schedule.createTeam("A", "A day shift", dayRotation, LocalDate.of(2021, 1, 1));
+		schedule.createTeam("B", "B night shift", nightRotation, LocalDate.of(2021, 1, 1));
+		schedule.createTeam("C", "C day shift", dayRotation, LocalDate.of(2021, 1, 5));
+		schedule.createTeam("D", "D night shift", nightRotation, LocalDate.of(2021, 1, 5));
+
+		schedule.createNonWorkingPeriod("Christmas", "Christmas day", LocalDateTime.of(2021, 12, 25, 0, 0, 0),
+				Duration.ofHours(24));
+		schedule.createNonWorkingPeriod("Shutdown", "Planned shutdown", LocalDateTime.of(2021, 7, 10, 12, 0, 0),
+				Duration.ofHours(60));
+
+		CompiledWorkSchedule compiled = schedule.compile();
+		assertTrue(compiled.getTeams().size() == 4);
+
+		LocalDateTime from = LocalDateTime.of(2021, 1, 10, 6, 30, 0);
+
+		for (LocalDate date = LocalDate.of(2021, 1, 10); date.isBefore(LocalDate.of(2022, 1, 10)); date = date
+				.plusDays(5)) {
+			assertTrue(compiled.isNonWorkingDay(date) == schedule.isNonWorkingDay(date));
+			assertTrue(compiled.getShiftInstancesForDay(date).equals(schedule.getShiftInstancesForDay(date)));
+			assertTrue(
+					compiled.getAllShiftInstancesForDay(date).equals(schedule.getAllShiftInstancesForDay(date)));
+
+			LocalDateTime dateTime = date.atTime(5, 15);
+			assertTrue(
+					compiled.getShiftInstancesForTime(dateTime).equals(schedule.getShiftInstancesForTime(dateTime)));
+
+			LocalDateTime to = date.atTime(20, 45);
+			assertTrue(compiled.calculateWorkingTime(from, to).equals(schedule.calculateWorkingTime(from, to)));
+			assertTrue(compiled.calculateWorkingTime(a, from, to).equals(a.calculateWorkingTime(from, to)));
+			assertTrue(
+					compiled.calculateNonWorkingTime(from, to).equals(schedule.calculateNonWorkingTime(from, to)));
+		}
+
+		// later changes to the schedule are not seen
+		LocalDate christmas = LocalDate.of(2021, 12, 25);
+		LocalDate newYear = LocalDate.of(2022, 1, 1);
+		Duration workingTime = compiled.calculateWorkingTime(from, newYear.atStartOfDay());
+
+		schedule.createNonWorkingPeriod("New Year", "New Year's day", newYear.atStartOfDay(), Duration.ofHours(24));
+		schedule.deleteNonWorkingPeriod(schedule.getNonWorkingPeriods().get(0));
+		day.setDuration(Duration.ofHours(10));
+
+		assertTrue(compiled.isNonWorkingDay(christmas));
+		assertFalse(compiled.isNonWorkingDay(newYear));
+		assertTrue(compiled.calculateWorkingTime(from, newYear.atStartOfDay()).equals(workingTime));
+		assertFalse(schedule.calculateWorkingTime(from, newYear.atStartOfDay()).equals(workingTime));
+
+		// a team not in the schedule
+		WorkSchedule other = new WorkSchedule("Other", "Other schedule");
+		Team otherTeam = other.createTeam("X", "Other team", other.createRotation("X", "X"), LocalDate.of(2021, 1, 1));
+
+		try {
+			compiled.calculateWorkingTime(otherTeam, from, from.plusDays(1));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// before the rotation start
+		try {
+			compiled.getShiftInstancesForDay(LocalDate.of(2020, 12, 31));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCompiledSnapshot() throws Exception {
+		schedule = new WorkSchedule("Snapshot", "Compiled snapshot schedule");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Rotation rotation = schedule.createRotation("DO", "Day off");
+		rotation.addSegment(day, 2, 2);
+
+		Team a = schedule.createTeam("A", "A team", rotation, LocalDate.of(2021, 1, 1));
+		TeamMember ann = new TeamMember("Ann", "Operator", "1");
+		TeamMember bob = new TeamMember("Bob", "Operator", "2");
+		a.addMember(ann);
+
+		LocalDate date = LocalDate.of(2021, 1, 5);
+		TeamMemberException exception = new TeamMemberException(date.atTime(7, 0));
+		exception.setAddition(bob);
+		a.addMemberException(exception);
+
+		CompiledWorkSchedule compiled = schedule.compile();
+
+		// change the shift, team and members after compiling
+		day.setName("Changed");
+		day.setStart(LocalTime.of(8, 0, 0));
+		day.setDuration(Duration.ofHours(8));
+		a.setName("Z");
+		a.removeMember(ann);
+		a.removeMemberException(exception);
+		bob.setName("Robert");
+
+		ShiftInstance instance = compiled.getShiftInstancesForDay(date).get(0);
+		assertTrue(instance.getShift().getName().equals("Day"));
+		assertTrue(instance.getShift().getDuration().equals(Duration.ofHours(12)));
+		assertTrue(instance.getStartTime().equals(date.atTime(7, 0)));
+		assertTrue(instance.getEndTime().equals(date.atTime(19, 0)));
+		assertTrue(instance.getTeam().getName().equals("A"));
+		assertTrue(compiled.getTeams().get(0).getName().equals("A"));
+
+		List<TeamMember> members = instance.getTeam().getMembers(instance.getStartTime());
+		assertTrue(members.size() == 2);
+		assertTrue(members.get(0).getName().equals("Ann"));
+		assertTrue(members.get(1).getName().equals("Bob"));
+		assertTrue(instance.toString().contains("Bob"));
+
+		// the copies are read-only
+		Team copy = compiled.getTeams().get(0);
+		assertTrue(copy.isReadOnly());
+		assertTrue(instance.getShift().isReadOnly());
+		assertTrue(copy.getMemberExceptions().get(0).isReadOnly());
+		assertTrue(compiled.getName().equals("Snapshot"));
+
+		try {
+			instance.getShift().setDuration(Duration.ofHours(1));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			copy.getRotation().getRotationSegments().get(0).setDaysOn(1);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			copy.getRotation().getRotationSegments().clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			copy.getMemberExceptions().clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			copy.getMemberExceptions().get(0).setAddition(ann);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			copy.addMember(bob);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			members.get(0).setName("Anne");
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			instance.getShift().getBreaks().add(null);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		assertTrue(instance.getEndTime().equals(date.atTime(19, 0)));
+		assertTrue(compiled.getShiftInstancesForTime(date.atTime(18, 0)).size() == 1);
+		assertTrue(compiled.getAllShiftInstancesForDay(date).size() == 1);
+		assertTrue(copy.getMembers(instance.getStartTime()).size() == 2);
+
+		// the schedule sees the changes
+		ShiftInstance changed = schedule.getShiftInstancesForDay(date).get(0);
+		assertTrue(changed.getShift().getName().equals("Changed"));
+		assertTrue(changed.getEndTime().equals(date.atTime(16, 0)));
+		assertTrue(changed.getTeam().getMembers(changed.getStartTime()).isEmpty());
+	}
+
+	@Test
+	public void testEpochSecondQueries() throws Exception {
+		schedule = new WorkSchedule("Epoch", "Test epoch second queries");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		LocalDate rotationStart = LocalDate.of(2021, 1, 1);
+		Team team1 = schedule.createTeam("Team 1", "First team", rotation, rotationStart);
+		schedule.createTeam("Team 2", "Second team", rotation, rotationStart.minusDays(1));
+		schedule.createTeam("Team 3", "Third team", rotation, rotationStart.minusDays(2));
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 3, 5, 0, 0, 0),
+				Duration.ofHours(24));
+		schedule.createNonWorkingPeriod("Maintenance", "Maintenance", LocalDateTime.of(2021, 4, 1, 9, 30, 0),
+				Duration.ofHours(30));
+
+		LocalDateTime from = LocalDateTime.of(2021, 1, 2, 5, 17, 0);
+		long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+
+		// every 97 minutes for 4 months
+		for (LocalDateTime to = from; to.isBefore(LocalDateTime.of(2021, 5, 1, 0, 0, 0)); to = to.plusMinutes(97)) {
+			long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+
+			assertTrue(team1.workingSecondsBetween(fromSecond, toSecond) == team1.calculateWorkingTime(from, to)
+					.getSeconds());
+			assertTrue(schedule.workingSecondsBetween(fromSecond, toSecond) == schedule
+					.calculateWorkingTime(from, to).getSeconds());
+			assertTrue(schedule.nonWorkingSecondsBetween(fromSecond, toSecond) == schedule
+					.calculateNonWorkingTime(from, to).getSeconds());
+			assertTrue(schedule.teamsOnShiftAt(toSecond) == schedule.getShiftInstancesForTime(to).size());
+
+			boolean onShift = false;
+			for (ShiftInstance instance : team1.getWorkSchedule().getShiftInstancesForTime(to)) {
+				if (instance.getTeam().equals(team1)) {
+					onShift = true;
+				}
+			}
+			if (!schedule.isNonWorkingDay(to.toLocalDate())
+					&& !schedule.isNonWorkingDay(to.toLocalDate().minusDays(1))) {
+				assertTrue(team1.isOnShiftAt(toSecond) == onShift);
+			}
+		}
+
+		// shift boundaries are included
+		long dayStart = LocalDateTime.of(2021, 1, 4, 7, 0, 0).toEpochSecond(ZoneOffset.UTC);
+		assertTrue(team1.isOnShiftAt(dayStart));
+		assertTrue(team1.isOnShiftAt(dayStart + 12 * 3600));
+		assertFalse(team1.isOnShiftAt(dayStart - 1));
+
+		// before the rotation start
+		try {
+			team1.workingSecondsBetween(fromSecond - 2 * 86400, fromSecond);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// end before start
+		try {
+			schedule.workingSecondsBetween(fromSecond + 1, fromSecond);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testClassifyShifts() throws Exception {
+		schedule = new WorkSchedule("Classify", "Test shift classification");
+
+		// overlapping shifts
+		Shift crossover = schedule.createShift("Crossover", "Cross-over", LocalTime.of(7, 0, 0),
+				Duration.ofHours(15).plusMinutes(30));
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(14));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(14));
+
+		Rotation rotation = schedule.createRotation("ICU", "ICU");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(crossover, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		LocalDate rotationStart = LocalDate.of(2021, 1, 1);
+		schedule.createTeam("Team 1", "First team", rotation, rotationStart);
+		schedule.createTeam("Team 2", "Second team", rotation, rotationStart.minusDays(3));
+		schedule.createTeam("Team 3", "Third team", rotation, rotationStart.minusDays(2));
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 2, 14, 0, 0, 0),
+				Duration.ofHours(24));
+
+		// every 7 minutes and on the shift boundaries
+		List<Long> seconds = new ArrayList<>();
+		LocalDateTime from = LocalDateTime.of(2021, 1, 2, 0, 0, 0);
+		for (LocalDateTime dateTime = from; dateTime.isBefore(from.plusDays(60)); dateTime = dateTime.plusMinutes(7)) {
+			seconds.add(dateTime.toEpochSecond(ZoneOffset.UTC));
+		}
+		for (LocalDate date = from.toLocalDate(); date.isBefore(from.toLocalDate().plusDays(60)); date = date
+				.plusDays(1)) {
+			for (Shift shift : schedule.getShifts()) {
+				long start = date.atTime(shift.getStart()).toEpochSecond(ZoneOffset.UTC);
+				seconds.add(start);
+				seconds.add(start + shift.getDuration().getSeconds());
+			}
+		}
+		seconds.sort(null);
+
+		long[] epochSeconds = new long[seconds.size()];
+		for (int i = 0; i < epochSeconds.length; i++) {
+			epochSeconds[i] = seconds.get(i);
+		}
+		int[] shiftIndexes = new int[epochSeconds.length];
+		int[] teamIndexes = new int[epochSeconds.length];
+
+		int onShift = schedule.classifyShifts(epochSeconds, shiftIndexes, teamIndexes);
+
+		int expectedOnShift = 0;
+		for (int i = 0; i < epochSeconds.length; i++) {
+			LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSeconds[i], 0, ZoneOffset.UTC);
+
+			// latest start, then first team
+			ShiftInstance expected = null;
+			for (ShiftInstance instance : schedule.getShiftInstancesForTime(dateTime)) {
+				if (expected == null || instance.getStartTime().isAfter(expected.getStartTime())
+						|| (instance.getStartTime().equals(expected.getStartTime()) && schedule.getTeams()
+								.indexOf(instance.getTeam()) < schedule.getTeams().indexOf(expected.getTeam()))) {
+					expected = instance;
+				}
+			}
+
+			if (expected == null) {
+				assertTrue(shiftIndexes[i] == -1 && teamIndexes[i] == -1);
+			} else {
+				expectedOnShift++;
+				assertTrue(schedule.getShifts().get(shiftIndexes[i]).equals(expected.getShift()));
+				assertTrue(schedule.getTeams().get(teamIndexes[i]).equals(expected.getTeam()));
+			}
+		}
+		assertTrue(onShift == expectedOnShift);
+
+		// not ascending
+		try {
+			schedule.classifyShifts(new long[] { epochSeconds[1], epochSeconds[0] }, new int[2], new int[2]);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// output too short
+		try {
+			schedule.classifyShifts(epochSeconds, new int[1], new int[1]);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// a rotation working a shift of another schedule
+		WorkSchedule other = new WorkSchedule("Other", "Other schedule");
+		Shift otherShift = other.createShift("Other", "Other shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Rotation otherRotation = schedule.createRotation("Other", "Other shift rotation");
+		otherRotation.addSegment(otherShift, 1, 0);
+		schedule.createTeam("Other", "Other shift team", otherRotation, LocalDate.of(2021, 1, 1));
+
+		try {
+			schedule.classifyShifts(new long[] { LocalDate.of(2021, 2, 1).toEpochDay() * 86400 + 8 * 3600 },
+					new int[1], new int[1]);
+			fail();
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("Other"));
+		}
+
+		// no shift in progress from the day before the rotation start
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		createLastNightSchedule("Classify start", start);
+		long startSecond = start.toEpochDay() * 86400;
+		long[] startSeconds = { startSecond, startSecond + 3 * 3600, startSecond + 23 * 3600 };
+		int[] startShifts = new int[startSeconds.length];
+		int[] startTeams = new int[startSeconds.length];
+
+		assertTrue(schedule.teamsOnShiftAt(startSeconds[1]) == 0);
+		assertTrue(schedule.classifyShifts(startSeconds, startShifts, startTeams) == 1);
+		assertTrue(startTeams[0] == -1 && startTeams[1] == -1 && startTeams[2] == 0);
+	}
+
+	@Test
+	public void testNetWorkingTime() throws Exception {
+		schedule = new WorkSchedule("Net", "Test working time net of breaks");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		day.createBreak("Morning", "Morning break", LocalTime.of(9, 30, 0), Duration.ofMinutes(15));
+		day.createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofMinutes(60));
+		day.createBreak("Meeting", "Overlaps lunch", LocalTime.of(12, 30, 0), Duration.ofMinutes(45));
+		day.createBreak("Late", "Runs past the shift end", LocalTime.of(18, 45, 0), Duration.ofMinutes(30));
+
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+		night.createBreak("Supper", "Supper", LocalTime.of(23, 30, 0), Duration.ofMinutes(60));
+		night.createBreak("Midnight", "Over midnight", LocalTime.of(23, 50, 0), Duration.ofMinutes(40));
+		night.createBreak("Early", "Early break", LocalTime.of(3, 0, 0), Duration.ofMinutes(20));
+
+		// shift totals
+		assertTrue(day.calculateBreakTime().equals(Duration.ofMinutes(150)));
+		assertTrue(day.getNetWorkingTime().equals(Duration.ofMinutes(720 - 15 - 75 - 15)));
+		assertTrue(night.getNetWorkingTime().equals(Duration.ofMinutes(720 - 60 - 20)));
+
+		// within a shift
+		assertTrue(day.calculateNetWorkingTime(LocalTime.of(8, 0), LocalTime.of(12, 30))
+				.equals(Duration.ofMinutes(270 - 15 - 30)));
+		assertTrue(day.calculateWorkingTime(LocalTime.of(8, 0), LocalTime.of(12, 30))
+				.equals(Duration.ofMinutes(270)));
+		assertTrue(night.calculateNetWorkingTime(LocalTime.of(0, 0), LocalTime.of(4, 0), false)
+				.equals(Duration.ofMinutes(240 - 30 - 20)));
+		assertTrue(night.calculateNetWorkingTime(LocalTime.of(20, 0), LocalTime.of(23, 45), true)
+				.equals(Duration.ofMinutes(225 - 15)));
+
+		// rotation
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+		assertTrue(rotation.getNetWorkingTime()
+				.equals(day.getNetWorkingTime().plus(night.getNetWorkingTime())));
+
+		LocalDate rotationStart = LocalDate.of(2021, 1, 1);
+		Team team1 = schedule.createTeam("Team 1", "First team", rotation, rotationStart);
+		schedule.createTeam("Team 2", "Second team", rotation, rotationStart.minusDays(1));
+		schedule.createTeam("Team 3", "Third team", rotation, rotationStart.minusDays(2));
+
+		// compare to a minute by minute count
+		LocalDateTime from = LocalDateTime.of(2021, 1, 3, 5, 17, 0);
+
+		for (LocalDateTime to = from; to.isBefore(from.plusDays(6)); to = to.plusMinutes(67)) {
+			long expected = 0;
+
+			for (LocalDate date = from.toLocalDate().minusDays(1); !date.isAfter(to.toLocalDate()); date = date
+					.plusDays(1)) {
+				ShiftInstance instance = team1.getShiftInstanceForDay(date);
+
+				if (instance == null) {
+					continue;
+				}
+
+				for (LocalDateTime minute = instance.getStartTime(); minute.isBefore(instance.getEndTime()); minute = minute
+						.plusMinutes(1)) {
+					if (minute.isBefore(from) || !minute.isBefore(to)) {
+						continue;
+					}
+
+					boolean onBreak = false;
+					for (Break breakPeriod : instance.getShift().getBreaks()) {
+						LocalDateTime breakStart = LocalDateTime.of(date, breakPeriod.getStart());
+						if (breakStart.isBefore(instance.getStartTime())) {
+							breakStart = breakStart.plusDays(1);
+						}
+						LocalDateTime breakEnd = breakStart.plus(breakPeriod.getDuration());
+
+						if (!minute.isBefore(breakStart) && minute.isBefore(breakEnd)) {
+							onBreak = true;
+						}
+					}
+
+					if (!onBreak) {
+						expected += 60;
+					}
+				}
+			}
+
+			assertTrue(team1.calculateNetWorkingTime(from, to).getSeconds() == expected);
+			assertTrue(team1.netWorkingSecondsBetween(from.toEpochSecond(ZoneOffset.UTC),
+					to.toEpochSecond(ZoneOffset.UTC)) == expected);
+		}
+
+		// schedule total over whole rotations
+		LocalDateTime to = from.plusDays(30);
+		Duration net = schedule.calculateNetWorkingTime(from, to);
+		assertTrue(net.equals(rotation.getNetWorkingTime().multipliedBy(30)));
+		assertTrue(schedule.netWorkingSecondsBetween(from.toEpochSecond(ZoneOffset.UTC),
+				to.toEpochSecond(ZoneOffset.UTC)) == net.getSeconds());
+
+		// removing a break is seen
+		Duration before = team1.calculateNetWorkingTime(from, to);
+		day.removeBreak(day.getBreaks().get(0));
+		assertTrue(team1.calculateNetWorkingTime(from, to).equals(before.plusMinutes(15 * 10)));
+	}
+
+	@Test
+	public void testBreakBeforeShiftStart() throws Exception {
+		schedule = new WorkSchedule("Early break", "Test breaks starting before the shift");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		day.createBreak("Handover", "Starts before the shift", LocalTime.of(6, 45, 0), Duration.ofMinutes(30));
+
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+		night.createBreak("Briefing", "Starts before the shift", LocalTime.of(18, 30, 0), Duration.ofMinutes(60));
+		night.createBreak("Cleanup", "Ends at the shift end", LocalTime.of(6, 45, 0), Duration.ofMinutes(30));
+
+		// only the part within the shift counts
+		assertTrue(day.getNetWorkingTime().equals(Duration.ofMinutes(480 - 15)));
+		assertTrue(night.getNetWorkingTime().equals(Duration.ofMinutes(720 - 30 - 15)));
+
+		assertTrue(day.calculateNetWorkingTime(LocalTime.of(7, 0), LocalTime.of(8, 0))
+				.equals(Duration.ofMinutes(60 - 15)));
+		assertTrue(night.calculateNetWorkingTime(LocalTime.of(19, 0), LocalTime.of(20, 0), true)
+				.equals(Duration.ofMinutes(60 - 30)));
+
+		Rotation rotation = schedule.createRotation("DN", "DN");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 0);
+		assertTrue(rotation.getNetWorkingTime().equals(Duration.ofMinutes(465 + 675)));
+
+		LocalDate rotationStart = LocalDate.of(2021, 1, 1);
+		Team team = schedule.createTeam("Team", "Team", rotation, rotationStart);
+
+		LocalDateTime from = LocalDateTime.of(rotationStart, day.getStart());
+		assertTrue(team.calculateNetWorkingTime(from, from.plusDays(20))
+				.equals(rotation.getNetWorkingTime().multipliedBy(10)));
+	}
+
+	@Test
+	public void testRotationPeriods() throws Exception {
+		schedule = new WorkSchedule("Periods", "Test rotation periods");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("Rotation", "Rotation");
+		rotation.addSegment(day, 3, 2);
+		RotationSegment nights = rotation.addSegment(night, 4, 0);
+		rotation.addSegment(day, 0, 3);
+		rotation.addSegment(night, 1, 1);
+
+		List<Object> expected = new ArrayList<>();
+		for (RotationSegment segment : rotation.getRotationSegments()) {
+			for (int i = 0; i < segment.getDaysOn(); i++) {
+				expected.add(segment.getStartingShift());
+			}
+			for (int i = 0; i < segment.getDaysOff(); i++) {
+				expected.add(null);
+			}
+		}
+
+		List<?> periods = rotation.getPeriods();
+		assertTrue(periods.size() == expected.size());
+		assertTrue(rotation.getDayCount() == 14);
+		assertTrue(rotation.getDuration().equals(Duration.ofDays(14)));
+		assertTrue(rotation.getWorkingTime().equals(Duration.ofHours(12 * 8)));
+
+		for (int i = 0; i < expected.size(); i++) {
+			if (expected.get(i) == null) {
+				assertFalse(periods.get(i) instanceof Shift);
+			} else {
+				assertTrue(periods.get(i) == expected.get(i));
+			}
+		}
+
+		// a segment change is seen
+		nights.setDaysOn(2);
+		assertTrue(periods.size() == 12);
+		assertTrue(rotation.getWorkingTime().equals(Duration.ofHours(12 * 6)));
+
+		Team team = schedule.createTeam("Team", "Team", rotation, LocalDate.of(2021, 1, 1));
+		assertTrue(team.getShiftInstanceForDay(LocalDate.of(2021, 1, 6)).getShift().equals(night));
+		assertTrue(team.isDayOff(LocalDate.of(2021, 1, 4)));
+		assertTrue(team.getShiftInstanceForDay(LocalDate.of(2021, 1, 12)) == null);
+
+		// a direct change to the list is seen
+		assertTrue(rotation.getPeriods().set(3, night) != night);
+		assertTrue(periods.get(3) == night);
+		assertTrue(rotation.getWorkingTime().equals(Duration.ofHours(12 * 7)));
+		assertTrue(team.getShiftInstanceForDay(LocalDate.of(2021, 1, 4)).getShift().equals(night));
+
+		rotation.getPeriods().add(day);
+		assertTrue(rotation.getDayCount() == 13);
+		assertTrue(periods.get(12) == day);
+		assertTrue(team.getShiftInstanceForDay(LocalDate.of(2021, 1, 13)).getShift().equals(day));
+
+		Iterator<?> iterator = periods.iterator();
+		iterator.next();
+		iterator.remove();
+		assertTrue(periods.size() == 12);
+		assertTrue(iterator.next() == day);
+		assertTrue(team.getShiftInstanceForDay(LocalDate.of(2021, 1, 3)).getShift().equals(night));
+
+		// adding a segment defines the rotation from the segments again
+		rotation.addSegment(day, 1, 0);
+		assertTrue(rotation.getDayCount() == 13);
+		assertTrue(periods.get(3) != night);
+	}
+
+	@Test
+	public void testShiftInstanceCache() throws Exception {
+		schedule = new WorkSchedule("Cache", "Test shift instance cache");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		LocalDate rotationStart = LocalDate.of(2021, 1, 1);
+		schedule.createTeam("Team 1", "First team", rotation, rotationStart);
+		schedule.createTeam("Team 2", "Second team", rotation, rotationStart.minusDays(1));
+
+		LocalDate today = LocalDate.of(2021, 6, 15);
+
+		// uncached results
+		List<ShiftInstance> starting = schedule.getShiftInstancesForDay(today);
+		List<ShiftInstance> all = schedule.getAllShiftInstancesForDay(today);
+		assertTrue(schedule.getShiftInstanceCache() == null);
+
+		schedule.setShiftInstanceCacheSize(4);
+		ShiftInstanceCache cache = schedule.getShiftInstanceCache();
+
+		assertTrue(schedule.getShiftInstancesForDay(today).equals(starting));
+		assertTrue(schedule.getAllShiftInstancesForDay(today).equals(all));
+		assertTrue(cache.getHitCount() == 0);
+
+		// the all list reads yesterday's starting instances
+		assertTrue(cache.getSize() == 3);
+
+		assertTrue(schedule.getShiftInstancesForDay(today) == schedule.getShiftInstancesForDay(today));
+		assertTrue(schedule.getAllShiftInstancesForDay(today).equals(all));
+		assertTrue(cache.getHitCount() == 3);
+
+		// cannot be modified
+		try {
+			schedule.getShiftInstancesForDay(today).clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		// least recently used days are evicted
+		for (int i = 1; i <= 4; i++) {
+			schedule.getShiftInstancesForDay(today.plusDays(i));
+		}
+		assertTrue(cache.getSize() == 4);
+		long misses = cache.getMissCount();
+		schedule.getShiftInstancesForDay(today);
+		assertTrue(cache.getMissCount() == misses + 1);
+
+		// changes through the schedule clear the cache
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", today.atStartOfDay(), Duration.ofHours(24));
+		assertTrue(schedule.getShiftInstancesForDay(today).isEmpty());
+
+		schedule.deleteNonWorkingPeriod(schedule.getNonWorkingPeriods().get(0));
+		assertTrue(schedule.getShiftInstancesForDay(today).equals(starting));
+
+		// and changes to the list of non-working periods
+		NonWorkingPeriod holiday = schedule.createNonWorkingPeriod("Holiday", "Holiday", today.atStartOfDay(),
+				Duration.ofHours(24));
+		assertTrue(schedule.getShiftInstancesForDay(today).isEmpty());
+		schedule.getNonWorkingPeriods().remove(holiday);
+		assertFalse(schedule.isNonWorkingDay(today));
+		assertTrue(schedule.getShiftInstancesForDay(today).equals(starting));
+
+		schedule.createTeam("Team 3", "Third team", rotation, rotationStart);
+		assertTrue(schedule.getShiftInstancesForDay(today).size() == starting.size() + 1);
+
+		day.setStart(LocalTime.of(6, 0, 0));
+		for (ShiftInstance instance : schedule.getShiftInstancesForDay(today)) {
+			if (instance.getShift().equals(day)) {
+				assertTrue(instance.getStartTime().equals(today.atTime(6, 0)));
+			}
+		}
+
+		// disable
+		schedule.setShiftInstanceCacheSize(0);
+		assertTrue(schedule.getShiftInstanceCache() == null);
+		schedule.getShiftInstancesForDay(today).clear();
+	}
+
+	@Test
+	public void testParallelWorkingTime() throws Exception {
+		schedule = new WorkSchedule("Parallel", "Test parallel working time");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift swing = schedule.createShift("Swing", "Swing shift", LocalTime.of(15, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(23, 0, 0), Duration.ofHours(8));
+		night.createBreak("Lunch", "Lunch", LocalTime.of(3, 0, 0), Duration.ofMinutes(30));
+
+		LocalDate rotationStart = LocalDate.of(2021, 1, 1);
+		int teamNumber = 1;
+
+		for (Shift shift : new Shift[] { day, swing, night }) {
+			Rotation rotation = schedule.createRotation(shift.getName(), shift.getName());
+			rotation.addSegment(shift, 6, 3);
+			rotation.addSegment(shift, 5, 3);
+			rotation.addSegment(shift, 6, 2);
+
+			for (int i = 0; i < 14; i++) {
+				schedule.createTeam("Team " + teamNumber, "Team", rotation, rotationStart.plusDays(i));
+				teamNumber++;
+			}
+		}
+
+		schedule.createNonWorkingPeriod("Shutdown", "Shutdown", LocalDateTime.of(2022, 7, 1, 12, 0, 0),
+				Duration.ofHours(72));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			LocalDateTime from = LocalDateTime.of(2021, 1, 15, 10, 30, 0);
+
+			for (LocalDateTime to = from; to.isBefore(from.plusYears(3)); to = to.plusHours(397)) {
+				assertTrue(schedule.calculateWorkingTime(from, to, pool)
+						.equals(schedule.calculateWorkingTime(from, to)));
+				assertTrue(schedule.calculateNetWorkingTime(from, to, pool)
+						.equals(schedule.calculateNetWorkingTime(from, to)));
+			}
+
+			// before a rotation starts
+			try {
+				schedule.calculateWorkingTime(from.minusDays(30), from, pool);
+				fail();
+			} catch (Exception e) {
+				// expected
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testWorkingSecondsPerBucket() throws Exception {
+		schedule = new WorkSchedule("Buckets", "Bucketed working time");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+		Shift middle = schedule.createShift("Middle", "Middle shift", LocalTime.of(11, 30, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("DN", "Day night");
+		rotation.addSegment(day, 2, 1);
+		rotation.addSegment(night, 2, 2);
+
+		Rotation middleRotation = schedule.createRotation("M", "Middle");
+		middleRotation.addSegment(middle, 5, 2);
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		schedule.createTeam("A", "A team", rotation, start);
+		schedule.createTeam("B", "B team", rotation, start.plusDays(3));
+		schedule.createTeam("C", "C team", middleRotation, start);
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 20, 0, 0, 0),
+				Duration.ofDays(1));
+		schedule.createNonWorkingPeriod("Outage", "Outage", LocalDateTime.of(2021, 2, 2, 13, 15, 0),
+				Duration.ofHours(30));
+
+		LocalDateTime from = LocalDateTime.of(2021, 1, 10, 5, 0, 0);
+		LocalDateTime to = LocalDateTime.of(2021, 2, 9, 2, 20, 0);
+
+		Duration[] sizes = { Duration.ofMinutes(50), Duration.ofHours(1), Duration.ofHours(8), Duration.ofDays(1),
+				Duration.ofDays(7), Duration.ofDays(60) };
+
+		for (Duration size : sizes) {
+			long[] buckets = schedule.workingSecondsPerBucket(from, to, size);
+
+			LocalDateTime bucketStart = from;
+			long total = 0;
+
+			for (long seconds : buckets) {
+				LocalDateTime bucketEnd = bucketStart.plus(size);
+
+				if (bucketEnd.isAfter(to)) {
+					bucketEnd = to;
+				}
+
+				assertTrue(seconds == schedule.calculateWorkingTime(bucketStart, bucketEnd).getSeconds());
+				total += seconds;
+				bucketStart = bucketEnd;
+			}
+			assertTrue(bucketStart.equals(to));
+			assertTrue(total > 0);
+		}
+
+		assertTrue(schedule.workingSecondsPerBucket(from, from, Duration.ofHours(1)).length == 0);
+
+		try {
+			schedule.workingSecondsPerBucket(from, to, Duration.ZERO);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		try {
+			schedule.workingSecondsPerBucket(to, from, Duration.ofHours(1));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// no time from the night shift of the day before the rotation start
+		createLastNightSchedule("Bucket start", start);
+		LocalDateTime midnight = start.atStartOfDay();
+		long[] buckets = schedule.workingSecondsPerBucket(midnight, midnight.plusDays(1), Duration.ofHours(6));
+
+		for (int i = 0; i < buckets.length; i++) {
+			LocalDateTime bucketStart = midnight.plusHours(6 * i);
+			assertTrue(buckets[i] == schedule.calculateWorkingTime(bucketStart, bucketStart.plusHours(6)).getSeconds());
+		}
+		assertTrue(buckets[0] == 0);
+		assertTrue(buckets[3] == 2 * 3600);
+	}
+
+	@Test
+	public void testCoverage() throws Exception {
+		Rotation rotation = createDayNightSchedule("Coverage", "Coverage schedule", 2, 1);
+		Shift middle = schedule.createShift("Middle", "Middle shift", LocalTime.of(10, 0, 0), Duration.ofHours(8));
+
+		Rotation middleRotation = schedule.createRotation("M", "Middle");
+		middleRotation.addSegment(middle, 5, 2);
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		Team a = schedule.createTeam("A", "A team", rotation, start);
+		Team b = schedule.createTeam("B", "B team", rotation, start.plusDays(2));
+		Team c = schedule.createTeam("C", "C team", middleRotation, start);
+
+		a.addMember(new TeamMember("Ann", "A member", "1"));
+		a.addMember(new TeamMember("Al", "A member", "2"));
+		b.addMember(new TeamMember("Bob", "B member", "3"));
+		c.addMember(new TeamMember("Cy", "C member", "4"));
+
+		// an extra member for one instance of team B
+		LocalDateTime extraStart = b.getShiftInstanceForDay(LocalDate.of(2021, 1, 7)).getStartTime();
+		TeamMemberException extra = new TeamMemberException(extraStart);
+		extra.setAddition(new TeamMember("Bea", "Extra member", "5"));
+		b.addMemberException(extra);
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 18, 0, 0, 0),
+				Duration.ofDays(1));
+
+		LocalDateTime from = LocalDateTime.of(2021, 1, 5, 3, 0, 0);
+		LocalDateTime to = LocalDateTime.of(2021, 2, 5, 0, 0, 0);
+
+		Coverage coverage = schedule.getCoverage(from, to);
+		assertTrue(coverage.getStepCount() > 0);
+		assertTrue(coverage.getStepStart(0).equals(from));
+		assertTrue(coverage.getStepEnd(coverage.getStepCount() - 1).equals(to));
+
+		// every minute away from the shift boundaries
+		for (LocalDateTime time = from.plusSeconds(30); time.isBefore(to); time = time.plusMinutes(1)) {
+			List<ShiftInstance> instances = schedule.getShiftInstancesForTime(time);
+
+			int memberCount = 0;
+			for (ShiftInstance instance : instances) {
+				memberCount += instance.getTeam().getMembers(instance.getStartTime()).size();
+			}
+
+			assertTrue(coverage.getTeamCount(time) == instances.size());
+			assertTrue(coverage.getMemberCount(time) == memberCount);
+		}
+
+		assertTrue(coverage.getTeamCount(to) == 0);
+		assertTrue(coverage.getMemberCount(from.minusSeconds(1)) == 0);
+
+		// gaps are joined steps under the minimum
+		List<CoverageGap> gaps = coverage.getTeamGaps(2);
+		assertFalse(gaps.isEmpty());
+
+		for (CoverageGap gap : gaps) {
+			assertTrue(gap.getLowestCount() < 2);
+			assertTrue(gap.getDuration().getSeconds() > 0);
+
+			for (LocalDateTime time = gap.getStartDateTime(); time.isBefore(gap.getEndDateTime()); time = time
+					.plusMinutes(30)) {
+				assertTrue(coverage.getTeamCount(time) < 2);
+			}
+
+			if (gap.getEndDateTime().isBefore(to)) {
+				assertTrue(coverage.getTeamCount(gap.getEndDateTime()) >= 2);
+			}
+		}
+
+		// the holiday has no coverage after the night shift ends
+		boolean found = false;
+		for (CoverageGap gap : coverage.getMemberGaps(1)) {
+			if (gap.getStartDateTime().isBefore(LocalDateTime.of(2021, 1, 18, 12, 0, 0))
+					&& gap.getEndDateTime().isAfter(LocalDateTime.of(2021, 1, 18, 19, 0, 0))) {
+				found = true;
+			}
+		}
+		assertTrue(found);
+
+		assertTrue(schedule.getCoverage(from, from).getStepCount() == 0);
+
+		try {
+			schedule.getCoverage(to, from);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// no coverage from the night shift of the day before the rotation start
+		Team night = createLastNightSchedule("Coverage start", start);
+		night.addMember(new TeamMember("Ann", "A member", "1"));
+		LocalDateTime midnight = start.atStartOfDay();
+
+		Coverage startCoverage = schedule.getCoverage(midnight, midnight.plusDays(1));
+		assertTrue(startCoverage.getTeamCount(midnight.plusHours(3)) == 0);
+		assertTrue(startCoverage.getMemberCount(midnight.plusHours(3)) == 0);
+		assertTrue(startCoverage.getTeamCount(midnight.plusHours(23)) == 1);
+		assertTrue(startCoverage.getTeamGaps(1).get(0).getEndDateTime().equals(midnight.plusHours(22)));
+	}
+
+	@Test
+	public void testShiftSecondsOfDay() throws Exception {
+		schedule = new WorkSchedule("Seconds", "Shift seconds of day");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(9));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 30, 0), Duration.ofHours(8));
+		Shift full = schedule.createShift("Full", "24 hour shift", LocalTime.of(6, 0, 0), Duration.ofHours(24));
+		night.createBreak("Lunch", "Lunch", LocalTime.of(2, 0, 0), Duration.ofMinutes(30));
+
+		assertFalse(day.spansMidnight());
+		assertTrue(night.spansMidnight());
+		assertTrue(full.spansMidnight());
+
+		Shift[] shifts = { day, night, full };
+
+		for (Shift shift : shifts) {
+			for (int from = 0; from < 86400; from += 1800) {
+				LocalTime fromTime = LocalTime.ofSecondOfDay(from);
+
+				assertTrue(shift.isInShift(from) == shift.isInShift(fromTime));
+
+				for (int to = 0; to < 86400; to += 2700) {
+					LocalTime toTime = LocalTime.ofSecondOfDay(to);
+
+					for (boolean beforeMidnight : new boolean[] { true, false }) {
+						assertTrue(shift.workingSecondsBetween(from, to, beforeMidnight) == shift
+								.calculateWorkingTime(fromTime, toTime, beforeMidnight).getSeconds());
+						assertTrue(shift.netWorkingSecondsBetween(from, to, beforeMidnight) == shift
+								.calculateNetWorkingTime(fromTime, toTime, beforeMidnight).getSeconds());
+					}
+				}
+			}
+		}
+
+		assertTrue(day.workingSecondsBetween(8 * 3600, 10 * 3600) == 7200);
+
+		// the cached seconds follow a change of the definition
+		day.setStart(LocalTime.of(20, 0, 0));
+		assertTrue(day.spansMidnight());
+		assertTrue(day.isInShift(3600));
+		assertFalse(day.isInShift(12 * 3600));
+
+		try {
+			day.workingSecondsBetween(0, 3600);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		day.setDuration(Duration.ofHours(2));
+		assertFalse(day.spansMidnight());
+		assertTrue(day.workingSecondsBetween(20 * 3600, 23 * 3600) == 7200);
+	}
+
+	@Test
+	public void testMetricsListener() throws Exception {
+		Rotation rotation = createDayNightSchedule("Metrics", "Instrumented schedule", 2, 2);
+		Shift day = schedule.getShifts().get(0);
+
+		Team a = schedule.createTeam("A", "A team", rotation, LocalDate.of(2021, 1, 1));
+		schedule.createTeam("B", "B team", rotation, LocalDate.of(2021, 1, 3));
+		a.addMember(new TeamMember("Ann", "Operator", "1"));
+
+		Map<ScheduleMetricsListener.Query, int[]> calls = new HashMap<>();
+		Map<ScheduleMetricsListener.Cache, int[]> cacheEvents = new HashMap<>();
+		AtomicLong nanos = new AtomicLong();
+
+		ScheduleMetricsListener listener = new ScheduleMetricsListener() {
+			@Override
+			public void queryCompleted(Query query, long elapsedNanos, int instanceCount) {
+				int[] counts = calls.computeIfAbsent(query, q -> new int[2]);
+				counts[0]++;
+				counts[1] += instanceCount;
+				nanos.addAndGet(elapsedNanos);
+			}
+
+			@Override
+			public void cacheAccessed(Cache cache, CacheEvent event) {
+				cacheEvents.computeIfAbsent(cache, c -> new int[CacheEvent.values().length])[event.ordinal()]++;
+			}
+		};
+
+		// nothing is reported without a listener
+		schedule.getShiftInstancesForDay(LocalDate.of(2021, 1, 10));
+		schedule.setMetricsListener(listener);
+		assertTrue(schedule.getMetricsListener() == listener);
+
+		LocalDate date = LocalDate.of(2021, 1, 10);
+		int dayCount = schedule.getShiftInstancesForDay(date).size();
+		int allCount = schedule.getAllShiftInstancesForDay(date).size();
+		int timeCount = schedule.getShiftInstancesForTime(date.atTime(8, 0)).size();
+		schedule.calculateWorkingTime(date.atStartOfDay(), date.plusDays(7).atStartOfDay());
+		schedule.calculateNonWorkingTime(date.atStartOfDay(), date.plusDays(7).atStartOfDay());
+		a.calculateWorkingTime(date.atStartOfDay(), date.plusDays(7).atStartOfDay());
+		int memberCount = a.getMembers(date.atTime(7, 0)).size();
+
+		// each public query is reported once, nested queries are not reported
+		for (ScheduleMetricsListener.Query query : ScheduleMetricsListener.Query.values()) {
+			assertTrue(calls.get(query)[0] == 1);
+		}
+		assertTrue(calls.get(ScheduleMetricsListener.Query.SHIFT_INSTANCES_FOR_DAY)[1] == dayCount);
+		assertTrue(calls.get(ScheduleMetricsListener.Query.ALL_SHIFT_INSTANCES_FOR_DAY)[1] == allCount);
+		assertTrue(calls.get(ScheduleMetricsListener.Query.SHIFT_INSTANCES_FOR_TIME)[1] == timeCount);
+		assertTrue(calls.get(ScheduleMetricsListener.Query.TEAM_MEMBERS)[1] == memberCount);
+		assertTrue(nanos.get() >= 0);
+
+		int hit = ScheduleMetricsListener.CacheEvent.HIT.ordinal();
+		int miss = ScheduleMetricsListener.CacheEvent.MISS.ordinal();
+		int rebuild = ScheduleMetricsListener.CacheEvent.REBUILD.ordinal();
+
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[hit] > 0);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.MEMBER_EXCEPTIONS)[hit] == 1);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.SHIFT_INSTANCES) == null);
+
+		// a changed definition rebuilds the rotation table
+		int rebuilds = cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[rebuild];
+		day.setDuration(Duration.ofHours(11));
+		schedule.getShiftInstancesForDay(date);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[rebuild] == rebuilds + 1);
+
+		// the first build of a rotation table is a miss
+		Rotation days = schedule.createRotation("D", "Days");
+		days.addSegment(day, 1, 1);
+		Team c = schedule.createTeam("C", "C team", days, LocalDate.of(2021, 1, 1));
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[miss] == 0);
+		assertTrue(c.calculateWorkingTime(date.atStartOfDay(), date.plusDays(2).atStartOfDay())
+				.equals(Duration.ofHours(11)));
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[miss] == 1);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[rebuild] == rebuilds + 1);
+		assertTrue(calls.get(ScheduleMetricsListener.Query.TEAM_WORKING_TIME)[0] == 2);
+		schedule.deleteTeam(c);
+
+		// the rotation table is got once per team for a cursor, not per instance
+		int hits = cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[hit];
+		ShiftInstanceCursor cursor = schedule.getShiftInstanceCursor(date.atStartOfDay(),
+				date.plusYears(1).atStartOfDay());
+		int instanceCount = 0;
+		while (cursor.next()) {
+			instanceCount++;
+		}
+		for (Object period : rotation.getPeriods()) {
+			assertTrue(period != null);
+		}
+		assertTrue(instanceCount > 300);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.ROTATION_TABLE)[hit] <= hits + 2);
+
+		// exceptions changed directly rebuild the member cache
+		a.getMemberExceptions().add(new TeamMemberException(date.atTime(7, 0)));
+		a.getMembers(date.atTime(7, 0));
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.MEMBER_EXCEPTIONS)[rebuild] == 1);
+
+		// exceptions added and removed through the team update the member cache in
+		// place
+		int memberHits = cacheEvents.get(ScheduleMetricsListener.Cache.MEMBER_EXCEPTIONS)[hit];
+		for (int i = 0; i < 10; i++) {
+			TeamMemberException exception = new TeamMemberException(date.plusDays(i).atTime(7, 0));
+			exception.setAddition(new TeamMember("Extra" + i, "Extra", String.valueOf(i)));
+			a.addMemberException(exception);
+			assertTrue(a.getMembers(date.plusDays(i).atTime(7, 0)).contains(exception.getAddition()));
+			a.removeMemberException(exception);
+			assertTrue(!a.getMembers(date.plusDays(i).atTime(7, 0)).contains(exception.getAddition()));
+		}
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.MEMBER_EXCEPTIONS)[rebuild] == 1);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.MEMBER_EXCEPTIONS)[hit] == memberHits + 20);
+
+		// shift instance cache hits and misses
+		schedule.setShiftInstanceCacheSize(10);
+		schedule.getShiftInstancesForDay(date);
+		schedule.getShiftInstancesForDay(date);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.SHIFT_INSTANCES)[miss] == 1);
+		assertTrue(cacheEvents.get(ScheduleMetricsListener.Cache.SHIFT_INSTANCES)[hit] == 1);
+
+		schedule.setMetricsListener(null);
+		schedule.getShiftInstancesForDay(date);
+		assertTrue(calls.get(ScheduleMetricsListener.Query.SHIFT_INSTANCES_FOR_DAY)[0] == 4);
+	}
+
+	@Test
+	public void testScopedInvalidation() throws Exception {
+		WorkSchedule[] schedules = new WorkSchedule[2];
+		Shift[] shifts = new Shift[2];
+
+		for (int i = 0; i < 2; i++) {
+			schedules[i] = new WorkSchedule("Schedule" + i, "Scoped schedule");
+			shifts[i] = schedules[i].createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+			shifts[i].createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofMinutes(30));
+
+			Rotation rotation = schedules[i].createRotation("DO", "Day off");
+			rotation.addSegment(shifts[i], 2, 2);
+			schedules[i].createTeam("A", "A team", rotation, LocalDate.of(2021, 1, 1));
+			schedules[i].setShiftInstanceCacheSize(10);
+		}
+
+		int[] rebuilds = new int[1];
+		int[] tableAccesses = new int[1];
+		int[] hits = new int[1];
+
+		schedules[0].setMetricsListener(new ScheduleMetricsListener() {
+			@Override
+			public void queryCompleted(Query query, long elapsedNanos, int instanceCount) {
+			}
+
+			@Override
+			public void cacheAccessed(Cache cache, CacheEvent event) {
+				if (cache == Cache.ROTATION_TABLE) {
+					tableAccesses[0]++;
+				}
+
+				if (cache == Cache.ROTATION_TABLE && event == CacheEvent.REBUILD) {
+					rebuilds[0]++;
+				} else if (cache == Cache.SHIFT_INSTANCES && event == CacheEvent.HIT) {
+					hits[0]++;
+				}
+			}
+		});
+
+		LocalDate date = LocalDate.of(2021, 1, 5);
+		ShiftInstance before = schedules[0].getShiftInstancesForDay(date).get(0);
+		Duration working = schedules[0].calculateWorkingTime(date.atStartOfDay(), date.plusDays(4).atStartOfDay());
+		int rebuildCount = rebuilds[0];
+
+		// a cached day does not check the rotation tables
+		int tableAccessCount = tableAccesses[0];
+		assertTrue(schedules[0].getShiftInstancesForDay(date).get(0) == before);
+		assertTrue(tableAccesses[0] == tableAccessCount);
+
+		// changing the other schedule's shift, breaks and rotation does not
+		// invalidate this schedule's tables or cached instances
+		shifts[1].setDuration(Duration.ofHours(8));
+		shifts[1].createBreak("Coffee", "Coffee", LocalTime.of(9, 0, 0), Duration.ofMinutes(15));
+		shifts[1].getBreaks().get(0).setDuration(Duration.ofMinutes(45));
+		schedules[1].getRotations().get(0).getRotationSegments().get(0).setDaysOff(3);
+		schedules[1].createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		assertTrue(schedules[0].getShiftInstancesForDay(date).get(0) == before);
+		assertTrue(schedules[0].calculateWorkingTime(date.atStartOfDay(), date.plusDays(4).atStartOfDay())
+				.equals(working));
+		assertTrue(rebuilds[0] == rebuildCount);
+		assertTrue(hits[0] == 2);
+
+		// a break changed in place rebuilds this schedule's table, but the cached
+		// instances do not depend on the breaks
+		shifts[0].getBreaks().get(0).setDuration(Duration.ofHours(1));
+		assertTrue(schedules[0].getShiftInstancesForDay(date).get(0) == before);
+		assertTrue(schedules[0].getRotations().get(0).getNetWorkingTime().equals(Duration.ofHours(22)));
+		assertTrue(rebuilds[0] == rebuildCount + 1);
+
+		// a segment change rebuilds the table and drops the cached instances
+		schedules[0].getRotations().get(0).getRotationSegments().get(0).setDaysOn(3);
+		assertTrue(schedules[0].getShiftInstancesForDay(date).isEmpty());
+		assertTrue(schedules[0].calculateWorkingTime(date.atStartOfDay(), date.plusDays(4).atStartOfDay())
+				.compareTo(working) > 0);
+		assertTrue(rebuilds[0] == rebuildCount + 2);
+	}
+
+	@Test
+	public void testRotationStartBoundary() throws Exception {
+		schedule = new WorkSchedule("Rotation start", "Night shift on the first and last rotation days");
+
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+		Rotation rotation = schedule.createRotation("N", "Nights");
+		rotation.addSegment(night, 3, 0);
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		Team team = schedule.createTeam("A", "A team", rotation, start);
+		long startSecond = start.toEpochDay() * 86400;
+
+		// no night shift from the day before the rotation starts
+		assertFalse(team.isOnShiftAt(startSecond));
+		assertFalse(team.isOnShiftAt(startSecond + 3 * 3600));
+		assertTrue(team.isOnShiftAt(startSecond + 19 * 3600));
+		assertTrue(team.isOnShiftAt(startSecond + 27 * 3600));
+
+		LocalDateTime midnight = start.atStartOfDay();
+		CompiledWorkSchedule compiled = schedule.compile();
+
+		assertTrue(team.calculateWorkingTime(midnight, midnight.plusHours(6)).isZero());
+		assertTrue(team.calculateWorkingTime(midnight, midnight.plusDays(1)).equals(Duration.ofHours(5)));
+		assertTrue(team.calculateWorkingTime(midnight, midnight.plusDays(2)).equals(Duration.ofHours(17)));
+		assertTrue(team.calculateNetWorkingTime(midnight, midnight.plusHours(6)).isZero());
+		assertTrue(schedule.calculateWorkingTime(midnight, midnight.plusDays(1)).equals(Duration.ofHours(5)));
+		assertTrue(compiled.calculateWorkingTime(midnight, midnight.plusHours(6)).isZero());
+		assertTrue(compiled.calculateWorkingTime(team, midnight, midnight.plusDays(1)).equals(Duration.ofHours(5)));
+		assertTrue(team.nextShiftEnd(midnight).equals(midnight.plusHours(31)));
+		assertTrue(team.previousShiftStart(midnight.plusHours(6)) == null);
+
+		// before the start is rejected
+		try {
+			team.isOnShiftAt(startSecond - 1);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		try {
+			team.calculateWorkingTime(midnight.minusHours(1), midnight.plusHours(6));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testShiftBoundaries() throws Exception {
+		schedule = new WorkSchedule("Boundaries", "Shift boundary schedule");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		// 7 on, 7 off
+		Rotation rotation = schedule.createRotation("7-7", "Seven on seven off");
+		rotation.addSegment(day, 7, 7);
+
+		Rotation nightRotation = schedule.createRotation("N", "Nights");
+		nightRotation.addSegment(night, 3, 11);
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		Team a = schedule.createTeam("A", "A team", rotation, start);
+		schedule.createTeam("B", "B team", nightRotation, start);
+
+		// overlapping holidays
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 12, 0, 0, 0),
+				Duration.ofDays(2));
+		schedule.createNonWorkingPeriod("Shutdown", "Shutdown", LocalDateTime.of(2021, 1, 13, 12, 0, 0),
+				Duration.ofDays(3));
+
+		// shift instances by brute force
+		List<ShiftInstance> teamInstances = new ArrayList<>();
+		List<ShiftInstance> scheduleInstances = new ArrayList<>();
+
+		for (LocalDate date = start; date.isBefore(LocalDate.of(2021, 4, 1)); date = date.plusDays(1)) {
+			ShiftInstance instance = a.getShiftInstanceForDay(date);
+			if (instance != null) {
+				teamInstances.add(instance);
+			}
+			scheduleInstances.addAll(schedule.getShiftInstancesForDay(date));
+		}
+
+		for (LocalDateTime time = LocalDateTime.of(2021, 1, 1, 0, 0, 0); time
+				.isBefore(LocalDateTime.of(2021, 3, 1, 0, 0, 0)); time = time.plusMinutes(317)) {
+			checkBoundaries(time, teamInstances, a.nextShiftStart(time), a.nextShiftEnd(time),
+					a.previousShiftStart(time), a.previousShiftEnd(time));
+			checkBoundaries(time, scheduleInstances, schedule.nextShiftStart(time), schedule.nextShiftEnd(time),
+					schedule.previousShiftStart(time), schedule.previousShiftEnd(time));
+		}
+
+		// on a boundary
+		LocalDateTime time = LocalDateTime.of(2021, 1, 7, 7, 0, 0);
+		assertTrue(a.nextShiftStart(time).equals(LocalDateTime.of(2021, 1, 15, 7, 0, 0)));
+		assertTrue(a.previousShiftStart(time).equals(LocalDateTime.of(2021, 1, 6, 7, 0, 0)));
+
+		// across the off days and the non-working periods
+		time = LocalDateTime.of(2021, 1, 10, 0, 0, 0);
+		assertTrue(schedule.nextShiftStart(time).equals(LocalDateTime.of(2021, 1, 17, 7, 0, 0)));
+		assertTrue(schedule.nextShiftEnd(time).equals(LocalDateTime.of(2021, 1, 17, 19, 0, 0)));
+		assertTrue(schedule.previousShiftEnd(time).equals(LocalDateTime.of(2021, 1, 7, 19, 0, 0)));
+		assertTrue(schedule.previousShiftStart(LocalDateTime.of(2021, 1, 1, 6, 0, 0)) == null);
+
+		// before the rotation start
+		assertTrue(a.previousShiftStart(LocalDateTime.of(2021, 1, 1, 6, 0, 0)) == null);
+		assertTrue(a.nextShiftStart(LocalDateTime.of(2020, 12, 1, 0, 0, 0))
+				.equals(LocalDateTime.of(2021, 1, 1, 7, 0, 0)));
+
+		// a team that never works
+		Rotation off = schedule.createRotation("Off", "Off");
+		off.addSegment(day, 0, 5);
+		Team c = schedule.createTeam("C", "C team", off, start);
+		assertTrue(c.nextShiftEnd(time) == null);
+		assertTrue(c.previousShiftEnd(time) == null);
+		assertTrue(schedule.nextShiftStart(time).equals(LocalDateTime.of(2021, 1, 17, 7, 0, 0)));
+	}
+
+	@Test
+	public void testFindDayInRotation() throws Exception {
+		schedule = new WorkSchedule("Find", "Find schedule");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Rotation rotation = schedule.createRotation("4-3", "Four on three off");
+		rotation.addSegment(day, 4, 3);
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		Team team = schedule.createTeam("A", "A team", rotation, start);
+
+		// same as the checked queries once the rotation has started
+		for (LocalDate date = start; date.isBefore(start.plusDays(30)); date = date.plusDays(1)) {
+			assertTrue(team.findDayInRotation(date) == team.getDayInRotation(date));
+			assertTrue((team.findShiftForDay(date) == null) == team.isDayOff(date));
+
+			ShiftInstance instance = team.getShiftInstanceForDay(date);
+			ShiftInstance found = team.findShiftInstanceForDay(date);
+			assertTrue(instance == null ? found == null : instance.compareTo(found) == 0);
+		}
+
+		// counted backwards before the start
+		assertTrue(team.findDayInRotation(start.minusDays(1)) == 7);
+		assertTrue(team.findDayInRotation(start.minusDays(7)) == 1);
+		assertTrue(team.findShiftForDay(start.minusDays(1)) == null);
+		assertTrue(team.findShiftInstanceForDay(start.minusDays(7)).getStartTime()
+				.equals(LocalDateTime.of(2020, 12, 25, 7, 0, 0)));
+
+		try {
+			team.getDayInRotation(start.minusDays(1));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// no days in the rotation
+		Team empty = schedule.createTeam("E", "Empty team", schedule.createRotation("E", "Empty"), start);
+		assertTrue(empty.findDayInRotation(start) == 0);
+		assertTrue(empty.findShiftInstanceForDay(start) == null);
+	}
+
+	private void checkBoundaries(LocalDateTime time, List<ShiftInstance> instances, LocalDateTime nextStart,
+			LocalDateTime nextEnd, LocalDateTime previousStart, LocalDateTime previousEnd) {
+		LocalDateTime expectedNextStart = null;
+		LocalDateTime expectedNextEnd = null;
+		LocalDateTime expectedPreviousStart = null;
+		LocalDateTime expectedPreviousEnd = null;
+
+		for (ShiftInstance instance : instances) {
+			LocalDateTime startTime = instance.getStartTime();
+			LocalDateTime endTime = instance.getEndTime();
+
+			if (startTime.isAfter(time) && (expectedNextStart == null || startTime.isBefore(expectedNextStart))) {
+				expectedNextStart = startTime;
+			}
+			if (endTime.isAfter(time) && (expectedNextEnd == null || endTime.isBefore(expectedNextEnd))) {
+				expectedNextEnd = endTime;
+			}
+			if (startTime.isBefore(time)
+					&& (expectedPreviousStart == null || startTime.isAfter(expectedPreviousStart))) {
+				expectedPreviousStart = startTime;
+			}
+			if (endTime.isBefore(time) && (expectedPreviousEnd == null || endTime.isAfter(expectedPreviousEnd))) {
+				expectedPreviousEnd = endTime;
+			}
+		}
+
+		assertTrue(Objects.equals(expectedNextStart, nextStart));
+		assertTrue(Objects.equals(expectedNextEnd, nextEnd));
+		assertTrue(Objects.equals(expectedPreviousStart, previousStart));
+		assertTrue(Objects.equals(expectedPreviousEnd, previousEnd));
+	}
 }
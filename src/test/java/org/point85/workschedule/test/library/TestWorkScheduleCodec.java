@@ -0,0 +1,198 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.Team;
+import org.point85.workschedule.TeamMember;
+import org.point85.workschedule.TeamMemberException;
+import org.point85.workschedule.WorkSchedule;
+import org.point85.workschedule.WorkScheduleCodec;
+
+public class TestWorkScheduleCodec extends BaseTest {
+
+	@Test
+	public void testBinaryCodec() throws Exception {
+		schedule = new WorkSchedule("Codec", "Binary encoded schedule");
+		schedule.setVersion(7);
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", null, LocalTime.of(19, 0, 0), Duration.ofHours(12));
+		day.createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofMinutes(45));
+		night.createBreak("Tea", "Tea break", LocalTime.of(23, 30, 0, 250_000_000), Duration.ofMillis(900_500));
+
+		Rotation rotation = schedule.createRotation("DN", "Day night");
+		rotation.addSegment(day, 3, 1);
+		rotation.addSegment(night, 3, 2);
+
+		Rotation dayRotation = schedule.createRotation("D", "Days only");
+		dayRotation.addSegment(day, 5, 2);
+
+		Team a = schedule.createTeam("A", "A team", rotation, LocalDate.of(2021, 1, 1));
+		Team b = schedule.createTeam("B", "B team", rotation, LocalDate.of(2021, 1, 5));
+		schedule.createTeam("C", "\u00c9quipe C", dayRotation, LocalDate.of(1969, 12, 29));
+
+		TeamMember ann = new TeamMember("Ann", "Operator", "1");
+		TeamMember bob = new TeamMember("Bob", "Operator", "2");
+		TeamMember cy = new TeamMember("Cy", null, "3");
+		a.addMember(ann);
+		a.addMember(bob);
+		b.addMember(cy);
+
+		LocalDateTime shiftStart = a.getShiftInstanceForDay(LocalDate.of(2021, 1, 2)).getStartTime();
+		TeamMemberException swap = new TeamMemberException(shiftStart);
+		swap.setReason("Swap");
+		swap.setAddition(cy);
+		swap.setRemoval(ann);
+		a.addMemberException(swap);
+
+		TeamMemberException extra = new TeamMemberException(shiftStart.plusDays(1));
+		extra.setAddition(new TeamMember("Dee", "Temporary", "4"));
+		a.addMemberException(extra);
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 18, 0, 0, 0),
+				Duration.ofDays(1));
+		schedule.createNonWorkingPeriod("Outage", "Outage", LocalDateTime.of(2021, 2, 2, 13, 15, 0),
+				Duration.ofHours(30));
+
+		byte[] bytes = WorkScheduleCodec.encode(schedule);
+		WorkSchedule decoded = WorkScheduleCodec.decode(ByteBuffer.wrap(bytes));
+
+		// a decoded schedule encodes to the same bytes
+		assertTrue(Arrays.equals(bytes, WorkScheduleCodec.encode(decoded)));
+
+		assertTrue(decoded.getName().equals("Codec"));
+		assertTrue(decoded.getVersion() == 7);
+		assertTrue(decoded.getShifts().size() == 2);
+		assertTrue(decoded.getRotations().size() == 2);
+		assertTrue(decoded.getTeams().size() == 3);
+		assertTrue(decoded.getNonWorkingPeriods().size() == 2);
+
+		Shift decodedNight = decoded.getShifts().get(1);
+		assertTrue(decodedNight.getDescription() == null);
+		assertTrue(decodedNight.getBreaks().get(0).getStart().equals(LocalTime.of(23, 30, 0, 250_000_000)));
+		assertTrue(decodedNight.getBreaks().get(0).getDuration().equals(Duration.ofMillis(900_500)));
+		assertTrue(decoded.getTeams().get(2).getDescription().equals("\u00c9quipe C"));
+		assertTrue(decoded.getTeams().get(2).getRotationStart().equals(LocalDate.of(1969, 12, 29)));
+
+		Team decodedA = decoded.getTeams().get(0);
+		assertTrue(decodedA.getMemberExceptions().equals(a.getMemberExceptions()));
+		assertTrue(decodedA.getMembers(shiftStart).equals(a.getMembers(shiftStart)));
+		assertTrue(decodedA.getMembers(shiftStart.plusDays(1)).size() == 3);
+
+		LocalDateTime from = LocalDateTime.of(2021, 1, 10, 0, 0, 0);
+		LocalDateTime to = LocalDateTime.of(2021, 3, 1, 0, 0, 0);
+		assertTrue(decoded.calculateWorkingTime(from, to).equals(schedule.calculateWorkingTime(from, to)));
+		assertTrue(decoded.calculateNetWorkingTime(from, to).equals(schedule.calculateNetWorkingTime(from, to)));
+
+		// schedules one after the other in a stream
+		byte[] both = new byte[2 * bytes.length];
+		System.arraycopy(bytes, 0, both, 0, bytes.length);
+		System.arraycopy(bytes, 0, both, bytes.length, bytes.length);
+
+		ByteBuffer buffer = ByteBuffer.wrap(both);
+		WorkScheduleCodec.decode(buffer);
+		WorkScheduleCodec.decode(buffer);
+		assertFalse(buffer.hasRemaining());
+
+		WorkSchedule fromChannel = WorkScheduleCodec.decode(Channels.newChannel(new ByteArrayInputStream(bytes)));
+		assertTrue(Arrays.equals(bytes, WorkScheduleCodec.encode(fromChannel)));
+
+		// schedules one after the other in a channel
+		WorkSchedule other = new WorkSchedule("Other", "Other schedule");
+		other.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		byte[] otherBytes = WorkScheduleCodec.encode(other);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		WritableByteChannel output = Channels.newChannel(stream);
+		WorkScheduleCodec.encode(schedule, output);
+		WorkScheduleCodec.encode(other, output);
+		WorkScheduleCodec.encode(schedule, output);
+		assertTrue(stream.size() == 2 * bytes.length + otherBytes.length);
+
+		WorkScheduleCodec.Decoder decoder = new WorkScheduleCodec.Decoder(
+				Channels.newChannel(new ByteArrayInputStream(stream.toByteArray())));
+		assertTrue(decoder.hasNext());
+		assertTrue(Arrays.equals(bytes, WorkScheduleCodec.encode(decoder.decode())));
+		assertTrue(decoder.hasNext());
+		assertTrue(Arrays.equals(otherBytes, WorkScheduleCodec.encode(decoder.decode())));
+		assertTrue(decoder.hasNext());
+		assertTrue(Arrays.equals(bytes, WorkScheduleCodec.encode(decoder.decode())));
+		assertFalse(decoder.hasNext());
+
+		try {
+			WorkScheduleCodec.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 3));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		try {
+			WorkScheduleCodec.decode(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 }));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDecodeScaling() throws Exception {
+		byte[] small = WorkScheduleCodec.encode(createPeriodSchedule(5_000));
+		byte[] large = WorkScheduleCodec.encode(createPeriodSchedule(20_000));
+
+		long smallNanos = Long.MAX_VALUE;
+		long largeNanos = Long.MAX_VALUE;
+
+		for (int pass = 0; pass < 10; pass++) {
+			long start = System.nanoTime();
+			assertTrue(WorkScheduleCodec.decode(ByteBuffer.wrap(small)).getNonWorkingPeriods().size() == 5_000);
+			long middle = System.nanoTime();
+			assertTrue(WorkScheduleCodec.decode(ByteBuffer.wrap(large)).getNonWorkingPeriods().size() == 20_000);
+			smallNanos = Math.min(smallNanos, middle - start);
+			largeNanos = Math.min(largeNanos, System.nanoTime() - middle);
+		}
+
+		// four times the periods take well under the sixteen times of a quadratic
+		// decode
+		assertTrue(largeNanos < 10 * smallNanos);
+	}
+}
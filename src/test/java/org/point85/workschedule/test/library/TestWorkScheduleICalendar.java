@@ -0,0 +1,217 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.Team;
+import org.point85.workschedule.WorkScheduleICalendar;
+
+public class TestWorkScheduleICalendar extends BaseTest {
+
+	@Test
+	public void testICalendar() throws Exception {
+		Rotation rotation = createDayNightSchedule("Calendar", "Calendar; schedule", 2, 1);
+
+		Rotation sevenRotation = schedule.createRotation("7-7", "Seven on seven off");
+		sevenRotation.addSegment(schedule.getShifts().get(0), 7, 7);
+
+		LocalDate start = LocalDate.of(2021, 1, 1);
+		schedule.createTeam("A", "A team", rotation, start);
+		schedule.createTeam("B, the long named team with a name that is folded over the end of the line", "B team",
+				rotation, start.plusDays(3));
+		schedule.createTeam("C", "C team", sevenRotation, start);
+
+		// overlapping holidays
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 10, 0, 0, 0),
+				Duration.ofDays(1));
+		schedule.createNonWorkingPeriod("Shutdown", "Shutdown", LocalDateTime.of(2021, 1, 10, 12, 0, 0),
+				Duration.ofDays(3));
+		schedule.createNonWorkingPeriod("Christmas", "Christmas", LocalDateTime.of(2021, 12, 25, 0, 0, 0),
+				Duration.ofDays(1));
+
+		LocalDate first = start.plusDays(2);
+		LocalDate last = LocalDate.of(2022, 1, 31);
+
+		List<String> expected = new ArrayList<>();
+		for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+			for (Team team : schedule.getTeams()) {
+				// team B starts after the first day
+				if (date.isBefore(team.getRotationStart()) || schedule.isNonWorkingDay(date)) {
+					continue;
+				}
+
+				ShiftInstance instance = team.getShiftInstanceForDay(date);
+				if (instance != null) {
+					expected.add(instance.getStartTime() + " " + instance.getEndTime() + " " + team.getName());
+				}
+			}
+		}
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		WorkScheduleICalendar.write(schedule, first, last, stream);
+		String text = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+
+		assertTrue(text.startsWith("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"));
+		assertTrue(text.endsWith("END:VCALENDAR\r\n"));
+		assertTrue(text.contains("X-WR-CALNAME:Calendar\r\n"));
+
+		// one event per working day of each rotation
+		String[] lines = text.split("\r\n");
+		int eventCount = 0;
+		for (String line : lines) {
+			assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75);
+			if (line.equals("BEGIN:VEVENT")) {
+				eventCount++;
+			}
+		}
+		assertTrue(eventCount == 4 + 4 + 7);
+
+		List<String> occurrences = expandCalendar(text);
+		Collections.sort(expected);
+		Collections.sort(occurrences);
+		assertTrue(occurrences.equals(expected));
+
+		// the event UIDs are unique and do not change with the date range
+		List<String> uids = getCalendarUids(text);
+		assertTrue(uids.size() == eventCount && new HashSet<>(uids).size() == eventCount);
+		assertTrue(uids.contains("20210101-Day-A@Calendar"));
+		assertTrue(uids.contains("20210107-Night-B%2C%20the%20long%20named%20team%20with%20a%20name%20that%20is"
+				+ "%20folded%20over%20the%20end%20of%20the%20line@Calendar"));
+
+		stream = new ByteArrayOutputStream();
+		WorkScheduleICalendar.write(schedule, first.plusDays(10), last.plusDays(10), stream);
+		List<String> rolledUids = getCalendarUids(new String(stream.toByteArray(), StandardCharsets.UTF_8));
+		Collections.sort(uids);
+		Collections.sort(rolledUids);
+		assertTrue(rolledUids.equals(uids));
+
+		// a feed per team in parallel
+		Map<Team, ByteArrayOutputStream> feeds = new ConcurrentHashMap<>();
+		WorkScheduleICalendar.writeTeams(schedule, first, last, team -> {
+			ByteArrayOutputStream feed = new ByteArrayOutputStream();
+			feeds.put(team, feed);
+			return feed;
+		}, new ForkJoinPool(2));
+
+		assertTrue(feeds.size() == 3);
+		occurrences.clear();
+		for (Team team : schedule.getTeams()) {
+			String feed = new String(feeds.get(team).toByteArray(), StandardCharsets.UTF_8);
+			occurrences.addAll(expandCalendar(feed));
+
+			stream = new ByteArrayOutputStream();
+			WorkScheduleICalendar.write(team, first, last, stream);
+			String teamText = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+			assertTrue(teamText.replaceAll("DTSTAMP:.*\r\n", "").equals(feed.replaceAll("DTSTAMP:.*\r\n", "")));
+		}
+		Collections.sort(occurrences);
+		assertTrue(occurrences.equals(expected));
+
+		try {
+			WorkScheduleICalendar.write(schedule, last, first, new ByteArrayOutputStream());
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	// UID of each event, after unfolding the lines
+	private List<String> getCalendarUids(String text) {
+		List<String> uids = new ArrayList<>();
+
+		for (String line : text.replace("\r\n ", "").split("\r\n")) {
+			if (line.startsWith("UID:")) {
+				uids.add(line.substring(4));
+			}
+		}
+		return uids;
+	}
+
+	// start, end and team name of each occurrence of the events
+	private List<String> expandCalendar(String text) {
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+		List<String> occurrences = new ArrayList<>();
+
+		LocalDateTime start = null;
+		Duration duration = null;
+		int interval = 1;
+		int count = 1;
+		String team = null;
+		List<LocalDateTime> excluded = new ArrayList<>();
+
+		// unfold the lines
+		for (String line : text.replace("\r\n ", "").split("\r\n")) {
+			if (line.equals("BEGIN:VEVENT")) {
+				interval = 1;
+				count = 1;
+				excluded.clear();
+			} else if (line.startsWith("DTSTART:")) {
+				start = LocalDateTime.parse(line.substring(8), formatter);
+			} else if (line.startsWith("DURATION:")) {
+				duration = Duration.parse(line.substring(9));
+			} else if (line.startsWith("RRULE:")) {
+				for (String part : line.substring(6).split(";")) {
+					if (part.startsWith("INTERVAL=")) {
+						interval = Integer.parseInt(part.substring(9));
+					} else if (part.startsWith("COUNT=")) {
+						count = Integer.parseInt(part.substring(6));
+					}
+				}
+			} else if (line.startsWith("SUMMARY:")) {
+				String summary = line.substring(8).replace("\\,", ",");
+				team = summary.substring(summary.indexOf(" - ") + 3);
+			} else if (line.startsWith("EXDATE:")) {
+				excluded.add(LocalDateTime.parse(line.substring(7), formatter));
+			} else if (line.equals("END:VEVENT")) {
+				for (int i = 0; i < count; i++) {
+					LocalDateTime occurrence = start.plusDays((long) i * interval);
+					if (!excluded.contains(occurrence)) {
+						occurrences.add(occurrence + " " + occurrence.plus(duration) + " " + team);
+					}
+				}
+			}
+		}
+		return occurrences;
+	}
+}
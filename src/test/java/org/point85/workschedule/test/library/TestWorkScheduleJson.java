@@ -0,0 +1,167 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.Team;
+import org.point85.workschedule.TeamMember;
+import org.point85.workschedule.TeamMemberException;
+import org.point85.workschedule.WorkSchedule;
+import org.point85.workschedule.WorkScheduleCodec;
+import org.point85.workschedule.WorkScheduleJson;
+
+public class TestWorkScheduleJson extends BaseTest {
+
+	@Test
+	public void testJson() throws Exception {
+		schedule = new WorkSchedule("JSON", "Schedule \"exchanged\" as JSON");
+		schedule.setVersion(3);
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", null, LocalTime.of(19, 0, 0), Duration.ofHours(12));
+		day.createBreak("Lunch", "Lunch\tbreak", LocalTime.of(12, 0, 0), Duration.ofMinutes(45));
+
+		Rotation rotation = schedule.createRotation("DN", "Day night");
+		rotation.addSegment(day, 3, 1);
+		rotation.addSegment(night, 3, 2);
+
+		Team a = schedule.createTeam("A", "A team", rotation, LocalDate.of(2021, 1, 1));
+		schedule.createTeam("B", "\u00c9quipe B", rotation, LocalDate.of(2021, 1, 5));
+
+		TeamMember ann = new TeamMember("Ann", "Operator", "1");
+		TeamMember bob = new TeamMember("Bob", null, "2");
+		a.addMember(ann);
+
+		TeamMemberException swap = new TeamMemberException(LocalDateTime.of(2021, 1, 2, 7, 0, 0));
+		swap.setReason("Swap\nshift");
+		swap.setAddition(bob);
+		swap.setRemoval(ann);
+		a.addMemberException(swap);
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 1, 18, 0, 0, 0),
+				Duration.ofDays(1));
+
+		StringWriter writer = new StringWriter();
+		WorkScheduleJson.write(schedule, writer);
+		String json = writer.toString();
+
+		WorkSchedule read = WorkScheduleJson.read(new StringReader(json));
+
+		// the same schedule is written again, and it has the same binary encoding
+		StringWriter rewriter = new StringWriter();
+		WorkScheduleJson.write(read, rewriter);
+		assertTrue(rewriter.toString().equals(json));
+		assertTrue(Arrays.equals(WorkScheduleCodec.encode(schedule), WorkScheduleCodec.encode(read)));
+
+		assertTrue(read.getDescription().equals("Schedule \"exchanged\" as JSON"));
+		assertTrue(read.getTeams().get(1).getDescription().equals("\u00c9quipe B"));
+		assertTrue(read.getTeams().get(0).getMemberExceptions().equals(a.getMemberExceptions()));
+
+		// bundles through streams
+		List<WorkSchedule> bundle = new ArrayList<>();
+		bundle.add(schedule);
+		bundle.add(read);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		WorkScheduleJson.writeAll(bundle, stream);
+
+		List<WorkSchedule> readBundle = WorkScheduleJson.readAll(new ByteArrayInputStream(stream.toByteArray()));
+		assertTrue(readBundle.size() == 2);
+		assertTrue(readBundle.get(1).getName().equals("JSON"));
+
+		int[] count = { 0 };
+		assertTrue(WorkScheduleJson.readEach(new StringReader(json), s -> count[0]++) == 1);
+		assertTrue(count[0] == 1);
+
+		// hand written, with other field orders, unknown fields and null values
+		String hand = "{ \"designer\": {\"x\": [1, 2.5e3, true, null]},\n"
+				+ "  \"shifts\": [ {\"duration\": \"PT8H\", \"start\": \"06:00\", \"name\": \"Early\", \"breaks\": null} ],\n"
+				+ "  \"rotations\": [ {\"segments\": [ {\"daysOff\": 2, \"shift\": \"Early\", \"daysOn\": 5} ], \"name\": \"Week\"} ],\n"
+				+ "  \"teams\": [ {\"rotation\": \"Week\", \"name\": \"T\", \"rotationStart\": \"2021-01-04\"} ],\n"
+				+ "  \"name\": \"Hand\\u0021\", \"description\": null }";
+		WorkSchedule handSchedule = WorkScheduleJson.read(new StringReader(hand));
+		assertTrue(handSchedule.getName().equals("Hand!"));
+		assertTrue(handSchedule.getDescription() == null);
+		assertTrue(handSchedule.getRotations().get(0).getDayCount() == 7);
+		assertTrue(handSchedule.calculateWorkingTime(LocalDateTime.of(2021, 1, 4, 0, 0, 0),
+				LocalDateTime.of(2021, 1, 11, 0, 0, 0)).equals(Duration.ofHours(40)));
+
+		String[] bad = { "{\"name\": \"X\",}", "{\"name\" \"X\"}", "[{\"name\": \"X\"}",
+				"{\"name\": \"X\", \"rotations\": [{\"name\": \"R\", \"segments\": [{\"shift\": \"None\"}]}]}",
+				"{\"name\": \"X\"]" };
+
+		for (String text : bad) {
+			try {
+				WorkScheduleJson.readAll(new StringReader(text));
+				fail(text);
+			} catch (Exception e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testReadScaling() throws Exception {
+		StringWriter small = new StringWriter();
+		WorkScheduleJson.write(createPeriodSchedule(5_000), small);
+		StringWriter large = new StringWriter();
+		WorkScheduleJson.write(createPeriodSchedule(20_000), large);
+
+		long smallNanos = Long.MAX_VALUE;
+		long largeNanos = Long.MAX_VALUE;
+
+		for (int pass = 0; pass < 10; pass++) {
+			long start = System.nanoTime();
+			WorkSchedule read = WorkScheduleJson.read(new StringReader(small.toString()));
+			assertTrue(read.getNonWorkingPeriods().size() == 5_000);
+			long middle = System.nanoTime();
+			read = WorkScheduleJson.read(new StringReader(large.toString()));
+			assertTrue(read.getNonWorkingPeriods().size() == 20_000);
+			smallNanos = Math.min(smallNanos, middle - start);
+			largeNanos = Math.min(largeNanos, System.nanoTime() - middle);
+		}
+
+		// four times the periods take well under the sixteen times of a quadratic
+		// read
+		assertTrue(largeNanos < 10 * smallNanos);
+	}
+}
@@ -0,0 +1,185 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule.test.library;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+import org.point85.workschedule.NonWorkingPeriod;
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.Team;
+import org.point85.workschedule.WorkSchedule;
+import org.point85.workschedule.WorkingCalendar;
+
+public class TestWorkingCalendar extends BaseTest {
+
+	@Test
+	public void testWorkingCalendar() throws Exception {
+		schedule = new WorkSchedule("Calendar", "Working calendar");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(6, 30, 0), Duration.ofHours(10));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(21, 0, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("DN", "Day night");
+		rotation.addSegment(day, 3, 1);
+		rotation.addSegment(night, 3, 2);
+
+		LocalDate start = LocalDate.of(2021, 3, 1);
+		schedule.createTeam("A", "A team", rotation, start);
+		schedule.createTeam("B", "B team", rotation, start.plusDays(4));
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(2021, 3, 20, 0, 0, 0),
+				Duration.ofDays(1));
+		schedule.createNonWorkingPeriod("Outage", "Outage", LocalDateTime.of(2021, 3, 25, 8, 10, 0),
+				Duration.ofMinutes(95));
+
+		LocalDateTime from = LocalDateTime.of(2021, 3, 10, 0, 0, 0);
+		LocalDateTime to = LocalDateTime.of(2021, 4, 10, 0, 0, 0);
+
+		WorkingCalendar calendar = schedule.createWorkingCalendar(from, to, Duration.ofMinutes(1));
+		assertTrue(calendar.getSlotCount() == 31 * 24 * 60);
+		assertTrue(calendar.getStart().equals(from));
+
+		// brute force at the start of every minute
+		int working = 0;
+		for (int slot = 0; slot < calendar.getSlotCount(); slot++) {
+			LocalDateTime time = from.plusMinutes(slot);
+			boolean expected = false;
+
+			for (Team team : schedule.getTeams()) {
+				for (int d = -1; d <= 0; d++) {
+					ShiftInstance instance = team.getShiftInstanceForDay(time.toLocalDate().plusDays(d));
+
+					if (instance != null && !time.isBefore(instance.getStartTime())
+							&& time.isBefore(instance.getEndTime())) {
+						expected = true;
+					}
+				}
+			}
+
+			for (NonWorkingPeriod period : schedule.getNonWorkingPeriods()) {
+				if (!time.isBefore(period.getStartDateTime()) && time.isBefore(period.getEndDateTime())) {
+					expected = false;
+				}
+			}
+
+			assertTrue(calendar.isWorking(slot) == expected);
+			assertTrue(calendar.isWorking(time.plusSeconds(30)) == expected);
+
+			if (expected) {
+				working++;
+			}
+		}
+
+		assertTrue(calendar.getWorkingSlotCount() == working);
+		assertTrue(calendar.getWorkingTime().equals(Duration.ofMinutes(working)));
+		assertFalse(calendar.isWorking(to));
+		assertFalse(calendar.isWorking(from.minusMinutes(1)));
+
+		// slots outside of the calendar
+		try {
+			calendar.isWorking(-1);
+			fail();
+		} catch (Exception e) {
+		}
+
+		try {
+			calendar.isWorking(calendar.getSlotCount());
+			fail();
+		} catch (Exception e) {
+		}
+
+		// set operations with a machine that is up every other hour
+		long[] bits = new long[(calendar.getSlotCount() + 63) / 64];
+		for (int slot = 0; slot < calendar.getSlotCount(); slot++) {
+			if ((slot / 60) % 2 == 0) {
+				bits[slot / 64] |= 1L << slot;
+			}
+		}
+		WorkingCalendar machine = WorkingCalendar.of(from, Duration.ofMinutes(1), calendar.getSlotCount(), bits);
+
+		WorkingCalendar both = calendar.and(machine);
+		WorkingCalendar either = calendar.or(machine);
+		WorkingCalendar idle = calendar.andNot(machine);
+
+		assertTrue(both.getWorkingSlotCount() + idle.getWorkingSlotCount() == working);
+		assertTrue(either.getWorkingSlotCount() == working + machine.getWorkingSlotCount()
+				- both.getWorkingSlotCount());
+
+		for (int slot = 0; slot < calendar.getSlotCount(); slot += 7) {
+			assertTrue(both.isWorking(slot) == (calendar.isWorking(slot) && machine.isWorking(slot)));
+		}
+
+		// hourly slots are working if a shift is in progress at the hour
+		WorkingCalendar hourly = schedule.createWorkingCalendar(from, to.minusSeconds(1), Duration.ofHours(1));
+		assertTrue(hourly.getSlotCount() == 31 * 24);
+
+		for (int slot = 0; slot < hourly.getSlotCount(); slot++) {
+			assertTrue(hourly.isWorking(slot) == calendar.isWorking(slot * 60));
+		}
+
+		try {
+			calendar.and(hourly);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		try {
+			schedule.createWorkingCalendar(from, to, Duration.ofMillis(10));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRotationStart() throws Exception {
+		LocalDate start = LocalDate.of(2021, 3, 1);
+		createLastNightSchedule("Calendar start", start);
+
+		// no slot working from the night shift of the day before the rotation start
+		LocalDateTime midnight = start.atStartOfDay();
+		WorkingCalendar calendar = schedule.createWorkingCalendar(midnight, midnight.plusDays(2), Duration.ofHours(1));
+
+		// a shift ending at the start of a slot does not work it
+		for (int slot = 0; slot < calendar.getSlotCount(); slot++) {
+			long second = midnight.plusHours(slot).toEpochSecond(ZoneOffset.UTC);
+			assertTrue(calendar.isWorking(slot) == (schedule.teamsOnShiftAt(second + 1) > 0));
+		}
+		assertFalse(calendar.isWorking(3));
+		assertTrue(calendar.isWorking(23));
+	}
+}